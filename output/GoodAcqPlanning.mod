@@ -1,9 +1,12 @@
 /** Number of... */
 int NacquisitionWindows = ...;
 int Ncandidates = ...;
+int Nsatellites = ...;
 /** Acquisition problem range */
 range AcquisitionWindows = 1..NacquisitionWindows;
-range AcquisitionWindowsExt = -1..NacquisitionWindows;
+/** Dummy acquisition windows (one for each satellite) numbered from 1-Nsatellites to 0 */
+range DummyWindows = (1-Nsatellites)..0;
+range AcquisitionWindowsExt = (1-Nsatellites)..NacquisitionWindows;
 
 /** Index of the acquisition in the list of candidate acquisitions of the problem */
 int CandidateAcquisitionIdx[AcquisitionWindows] = ...;
@@ -76,14 +79,15 @@ execute{
 maximize jnew;
 
 constraints {
-	// The same candidate acquisition cannot be repeated (for different acq windows)
-	forall(cand in 1..Ncandidates){ 
+	// The same candidate acquisition cannot be repeated (for different acq windows); candidate acquisition indices start at 0
+	forall(cand in 0..Ncandidates-1){ 
 		sum(a1 in AcquisitionWindows : CandidateAcquisitionIdx[a1] == cand) selectAcq[a1] <= 1;	
 	}
 	
-	// default selection of the dummy acquisition windows numbered by 0 and -1 (one for each satellite)
-	selectAcq[-1] 	== 1;
-	selectAcq[0] 	== 1;
+	// default selection of the dummy acquisition windows numbered from 1-Nsatellites to 0 (one for each satellite)
+	forall(d in DummyWindows){
+		selectAcq[d] == 1;
+	}
 	
 	// Acquisitions that do not share the same satellite cannot be linked
 	forall(a1,a2 in AcquisitionWindows : SatelliteIdx[a1] != SatelliteIdx[a2]){
@@ -0,0 +1,137 @@
+/** Number of... */
+int NacquisitionWindows = ...;
+int Ncandidates = ...;
+int Nsatellites = ...;
+/** Acquisition problem range */
+range AcquisitionWindows = 1..NacquisitionWindows;
+/** Dummy acquisition windows (one for each satellite) numbered from 1-Nsatellites to 0 */
+range DummyWindows = (1-Nsatellites)..0;
+range AcquisitionWindowsExt = (1-Nsatellites)..NacquisitionWindows;
+
+/** Index of the acquisition in the list of candidate acquisitions of the problem */
+int CandidateAcquisitionIdx[AcquisitionWindows] = ...;
+/** "Cost" of each acquisition */
+float CostFunc[AcquisitionWindows] = ...;
+/** Index of the acquisition window in the list of windows associated with the same candidate acquisition */
+int AcquisitionWindowIdx[AcquisitionWindows] = ...;
+/** Index of the satellites linked with each acq window (even the dummy ones) in the list of windows associated with the same candidate acquisition */
+int SatelliteIdx[AcquisitionWindowsExt] = ...;
+
+/** Candidate aquisition user quota */
+float CandidateAcquisitionQuota[AcquisitionWindows] = ...;
+/** Candidate acquisition priority */
+int CandidateAcquisitionPri[AcquisitionWindows] = ...;
+
+/** Earliest start time associated with each acquisition window */
+float EarliestStartTime[AcquisitionWindows] = ...;
+/** Latest start time associated with each acquisition window */
+float LatestStartTime[AcquisitionWindows] = ...;
+/** Acquisition duration */
+float Duration[AcquisitionWindows] = ...;
+/** Acquisition Cloud Probability */
+float cloudProba[AcquisitionWindows] = ...;
+/** Acquisition Zenith angle */
+float Zenangle[AcquisitionWindows] = ...;
+/** Acquisition roll angle */
+float Rollangle[AcquisitionWindows] = ...;
+/** Aquisition data volume */
+int Volume[AcquisitionWindows] = ...;
+
+/** Rotation speed of the satellites (transition time between two windows = roll angle difference / rotation speed) */
+float MeanRotationSpeed = ...;
+/** Windows which can follow each acquisition window on the same satellite (only feasible successions are given, dummy windows included) */
+{int} Successors[AcquisitionWindowsExt] = ...;
+/** Windows which can precede each acquisition window on the same satellite */
+{int} Predecessors[AcquisitionWindowsExt] = ...;
+
+/** Feasible succession between two acquisition windows (the arc <d,d> of a dummy window d stands for an empty plan) */
+tuple Arc {
+	int a1;
+	int a2;
+}
+/** All arcs */
+{Arc} Arcs = {<a1,a2> | a1 in AcquisitionWindowsExt, a2 in Successors[a1]};
+/** Arcs between two real acquisition windows */
+{Arc} WindowArcs = {<a1,a2> | a1 in AcquisitionWindows, a2 in Successors[a1] : a2 >= 1};
+/** Required transition time for each arc between two real acquisition windows */
+float TransitionTime[arc in WindowArcs] = abs(Rollangle[arc.a1] - Rollangle[arc.a2]) / MeanRotationSpeed;
+
+/** Weights for the second level Jnew */
+float beta1 = 1.0;
+float beta2 = 0;
+
+/** Calculation of total transition time (over the feasible successions only) */
+float TotalTransTime = sum(arc in WindowArcs) TransitionTime[arc];
+
+/** File in which the result will be written */
+string OutputFile = ...;
+
+//DECISION VARIABLES
+/** Boolean variable indicating whether an acquisition window is selected */
+dvar int selectAcq[AcquisitionWindowsExt] in 0..1;
+/** next[<a1,a2>] = 1 when a1 is the selected acquisition window that precedes a2 */
+dvar int next[Arcs] in 0..1;
+/** Acquisition start time in each acquisition window */
+dvar float+ startTime[a in AcquisitionWindows] in EarliestStartTime[a]..LatestStartTime[a];
+
+//Expression for currently considered time 
+dexpr float ConsideredTime = sum(arc in WindowArcs) next[arc]*TransitionTime[arc];
+
+//Expression for cost function imported from Java 
+dexpr float janterieur = sum(a in AcquisitionWindows) (CostFunc[a]*selectAcq[a])/NacquisitionWindows;
+
+//Expression for sum of selected acquisitions
+dexpr int acqsum = sum(w in AcquisitionWindows) selectAcq[w];
+
+//Expression for sum of new cost function in which transition time is considered
+dexpr float jnew = beta1*beta1*janterieur - beta2*beta2*ConsideredTime/maxl(TotalTransTime,1);
+
+
+
+execute{
+	cplex.tilim = 60*20; // 60 seconds
+}
+
+// maximize the number of acquisition windows selected
+maximize jnew;
+
+constraints {
+	// The same candidate acquisition cannot be repeated (for different acq windows); candidate acquisition indices start at 0
+	forall(cand in 0..Ncandidates-1){ 
+		sum(a1 in AcquisitionWindows : CandidateAcquisitionIdx[a1] == cand) selectAcq[a1] <= 1;	
+	}
+	
+	// default selection of the dummy acquisition windows numbered from 1-Nsatellites to 0 (one for each satellite)
+	forall(d in DummyWindows){
+		selectAcq[d] == 1;
+	}
+	
+	// An acquisition window is selected if and only if it has a (unique) precedessor and a (unique) 
+	// successor in the plan (arcs only link windows of the same satellite)
+	forall(a1 in AcquisitionWindowsExt){
+		sum(a2 in Successors[a1]) next[<a1,a2>] == selectAcq[a1];
+		sum(a0 in Predecessors[a1]) next[<a0,a1>] == selectAcq[a1];
+	}
+
+	// Temporal separation constraints between successive acquisition windows (big-M formulation)
+	forall(arc in WindowArcs){
+		startTime[arc.a1] + Duration[arc.a1] + TransitionTime[arc] <= startTime[arc.a2] 
+                + (1-next[arc])*(LatestStartTime[arc.a1]+Duration[arc.a1]+TransitionTime[arc]-EarliestStartTime[arc.a2]);
+	}
+}
+
+execute {
+	for(var i=1; i <= NacquisitionWindows; i++){
+		writeln(CostFunc[i]*selectAcq[i]);
+	}
+	writeln("costsum: " + jnew + " #acquisitions: " + acqsum + " TransTime: " + TotalTransTime + " s");			
+	
+	// Writes the .txt file, that follows the matrix structure
+	// (	Candidate ACK idx	|	ACK window idx	|	ACK start time	| 	ACK end time	|	idx of Satellite holding ACK	)
+	var ofile = new IloOplOutputFile(OutputFile);
+	for(var i=1; i <= NacquisitionWindows; i++) { 
+		if(selectAcq[i] == 1){
+			ofile.writeln(CandidateAcquisitionIdx[i] + " " + AcquisitionWindowIdx[i] + " " + startTime[i] + " " + (startTime[i]+Duration[i])+ " " + SatelliteIdx[i]);
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/** Number of acquisition opportunities */
+int NacquisitionWindows = ...;
+/** Acquisition range */
+range AcquisitionWindows = 1..NacquisitionWindows;
+range AcquisitionWindowsPlusZero = 0..NacquisitionWindows;
+
+/** Index of the acquisition in the list of candidate acquisitions of the problem */
+int CandidateAcquisitionIdx[AcquisitionWindows] = ...;
+/** Index of the acquisition window in the list of windows associated with the same candidate acquisition */
+int AcquisitionWindowIdx[AcquisitionWindows] = ...;
+
+/** Earliest start time associated with each acquisition window */
+float EarliestStartTime[AcquisitionWindows] = ...;
+/** Latest start time associated with each acquisition window */
+float LatestStartTime[AcquisitionWindows] = ...;
+/** Acquisition duration associated with each acquisition window */
+float Duration[AcquisitionWindows] = ...;
+
+/** Roll angle associated with each acquisition window */
+float Rollangle[AcquisitionWindows] = ...;
+/** Rotation speed of the satellite (transition time between two windows = roll angle difference / rotation speed) */
+float MeanRotationSpeed = ...;
+/** Windows which can follow each acquisition window (only feasible successions are given, dummy window included) */
+{int} Successors[AcquisitionWindowsPlusZero] = ...;
+/** Windows which can precede each acquisition window */
+{int} Predecessors[AcquisitionWindowsPlusZero] = ...;
+
+/** Feasible succession between two acquisition windows (the arc <0,0> stands for an empty plan) */
+tuple Arc {
+	int a1;
+	int a2;
+}
+/** All arcs */
+{Arc} Arcs = {<a1,a2> | a1 in AcquisitionWindowsPlusZero, a2 in Successors[a1]};
+/** Arcs between two real acquisition windows */
+{Arc} WindowArcs = {<a1,a2> | a1 in AcquisitionWindows, a2 in Successors[a1] : a2 >= 1};
+/** Required transition time for each arc between two real acquisition windows */
+float TransitionTime[arc in WindowArcs] = abs(Rollangle[arc.a1] - Rollangle[arc.a2]) / MeanRotationSpeed;
+
+/** File in which the result will be written */
+string OutputFile = ...;
+
+/** Boolean variable indicating whether an acquisition window is selected */
+dvar int selectAcq[AcquisitionWindowsPlusZero] in 0..1;
+/** next[<a1,a2>] = 1 when a2 is the selected acquisition window that follows a1 */
+dvar int next[Arcs] in 0..1;
+/** Acquisition start time in each acquisition window */
+dvar float+ startTime[a in AcquisitionWindows] in EarliestStartTime[a]..LatestStartTime[a];
+
+execute{
+	cplex.tilim = 60*20; // 60 seconds
+}
+
+// maximize the number of acquisition windows selected
+maximize sum(a in AcquisitionWindows) selectAcq[a];
+
+constraints {
+	
+	// default selection of the dummy acquisition window numbered by 0
+	selectAcq[0] == 1;
+	// an acquisition window is selected if and only if it has a (unique) precedessor and a (unique) successor in the plan
+	forall(a1 in AcquisitionWindowsPlusZero){
+		sum(a2 in Successors[a1]) next[<a1,a2>] == selectAcq[a1];
+		sum(a0 in Predecessors[a1]) next[<a0,a1>] == selectAcq[a1];
+	}
+
+	// temporal separation constraints between successive acquisition windows (big-M formulation)
+	forall(arc in WindowArcs){
+		startTime[arc.a1] + Duration[arc.a1] + TransitionTime[arc] <= startTime[arc.a2] 
+                + (1-next[arc])*(LatestStartTime[arc.a1]+Duration[arc.a1]+TransitionTime[arc]-EarliestStartTime[arc.a2]);
+	}
+
+}
+
+execute {
+	var ofile = new IloOplOutputFile(OutputFile);
+	for(var i=1; i <= NacquisitionWindows; i++) { 
+		if(selectAcq[i] == 1){
+			ofile.writeln(CandidateAcquisitionIdx[i] + " " + AcquisitionWindowIdx[i] + " " + startTime[i] + " " + (startTime[i]+Duration[i]));
+		}
+	}	
+}
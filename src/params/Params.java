@@ -11,9 +11,25 @@ public class Params {
 //	public final static String planningDataFile = "data/planning_data_12h_complexzones.xml";
 //	public final static String planningDataFile = "data/planning_data_24h_simplezones.xml";
 //	public final static String planningDataFile = "data/planning_data_24h_complexzones.xml";
+	/** Directory containing the binary snapshots of already parsed scenarios */
+	public final static String snapshotDirectory = "output/snapshots";
 	/** Approximation of the rotation speed of the satellite (in radians per second) */
 	public final static double meanRotationSpeed = (2*Math.PI)/180; // 2 degrees per second
 	/** Rate associated with data downlink to ground stations (in bits per second) */
 	public final static double downlinkRate = 1E6;
+	/** Capacity of the mass memory of each satellite (in bits) */
+	public final static double massMemoryCapacity = 2E9; // 250 MB
+	/** Wall-clock time budget of the anytime search algorithms (in seconds) */
+	public final static double searchTimeBudget = 60;
+	/** Seed of the random generators of the search algorithms */
+	public final static long searchSeed = 0;
+	/** Time between two replanning cycles of the rolling-horizon planner, during which the plan is committed (in seconds) */
+	public final static double replanningPeriod = 1800;
+	/** Length of the time window replanned at each cycle of the rolling-horizon planner (in seconds) */
+	public final static double replanningLookahead = 7200;
+	/** File to which each planner run adds its incumbent, upper bound and gap */
+	public final static String gapReportFile = "output/gapReport.txt";
+	/** True if the acquisition windows dominated by another window of the same candidate acquisition are removed when a problem is read */
+	public final static boolean pruneDominatedWindows = true;
 	
 }
@@ -16,12 +16,8 @@ public abstract class Acquisition {
 	public final int priority;
 	/** Cost function for the acquisition's download */
 	public final double DownloadCost;
-	/** Download window selected for this acquisition (value null if the acquisition is not downloaded) */
-	public DownloadWindow selectedDownloadWindow;
-	/** Start time of the download (if any) */
-	public double selectedDownloadStartTime;
-	/** End time of the download (if any) */
-	public double selectedDownloadEndTime;
+	/** True if the acquisition has been removed from the problem (its index is kept, but it must not be planned anymore) */
+	public boolean removed;
 	
 	
 	/**
@@ -37,24 +33,6 @@ public abstract class Acquisition {
 		this.DownloadCost = 0.5*(1 - priority) + 0.5*user.quota;
 	}
 
-	/**
-	 * 
-	 * @return the satellite used for realizing this acquisition (if any)
-	 */
-	public abstract Satellite getSatellite();
-	
-	/**
-	 * 
-	 * @return the time at which the acquisition ends, if it is realized (in seconds from the start time of the planning horizon)
-	 */
-	public abstract double getAcquisitionTime();
-	
-	/**
-	 * 
-	 * @return the volume (in bits) associated with the acquisition
-	 */
-	public abstract long getVolume();
-	
 	/**
 	 * 
 	 * @return the Idx associated with the acquisition
@@ -29,6 +29,8 @@ public class AcquisitionWindow {
 	public final double cloudProba;
 	/**    */
 	public final double Cost;
+	/** True if the window has been removed from the problem (its index is kept, but it must not be used anymore) */
+	public boolean removed;
 	
 	/**
 	 * Create an acquisition opportunity
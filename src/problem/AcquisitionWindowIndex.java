@@ -0,0 +1,142 @@
+package problem;
+
+import java.util.Arrays;
+
+/**
+ * Interval index over the acquisition windows of each satellite. Each window w is seen as the
+ * interval [earliestStart(w), latestStart(w) + duration(w)] during which it may use the satellite.
+ * The index is built over the columnar view of the windows (windows of each satellite sorted by
+ * earliest start time) and augments it with implicit max-trees on interval ends and latest start
+ * times, so that overlap, stabbing and successor queries cost O(log n + k) for k windows returned.
+ * Windows are designated by their position in the store.
+ *
+ */
+public class AcquisitionWindowIndex {
+
+	/** Columnar view of the windows indexed */
+	public final AcquisitionWindowStore store;
+	/** Number of leaves of the implicit trees (power of 2) */
+	final int nLeaves;
+	/** Max-tree of the interval ends (node k has children 2k and 2k+1, leaf of position i is nLeaves+i) */
+	final double[] maxEnd;
+	/** Max-tree of the latest start times */
+	final double[] maxLatestStart;
+
+	/**
+	 * Build the interval index over a columnar view of acquisition windows
+	 * @param store
+	 */
+	public AcquisitionWindowIndex(AcquisitionWindowStore store){
+		this.store = store;
+		int n = 1;
+		while(n < store.nWindows)
+			n *= 2;
+		nLeaves = n;
+		maxEnd = new double[2*n];
+		maxLatestStart = new double[2*n];
+		Arrays.fill(maxEnd, Double.NEGATIVE_INFINITY);
+		Arrays.fill(maxLatestStart, Double.NEGATIVE_INFINITY);
+		for(int i=0;i<store.nWindows;i++){
+			maxEnd[n+i] = store.latestStart[i] + store.duration[i];
+			maxLatestStart[n+i] = store.latestStart[i];
+		}
+		for(int k=n-1;k>=1;k--){
+			maxEnd[k] = Math.max(maxEnd[2*k], maxEnd[2*k+1]);
+			maxLatestStart[k] = Math.max(maxLatestStart[2*k], maxLatestStart[2*k+1]);
+		}
+	}
+
+	/**
+	 *
+	 * @param s satellite idx
+	 * @param t
+	 * @return the first position of a window of satellite s whose earliest start time is strictly greater than t
+	 * (satelliteStart[s+1] if there is no such window)
+	 */
+	public int firstStartingAfter(int s, double t){
+		int lo = store.satelliteStart[s], hi = store.satelliteStart[s+1];
+		while(lo < hi){
+			int mid = (lo + hi) >>> 1;
+			if(store.earliestStart[mid] <= t)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Get all windows of a satellite whose interval intersects [t1,t2]
+	 * @param s satellite idx
+	 * @param t1
+	 * @param t2
+	 * @param out array receiving the positions of the windows, by increasing earliest start time
+	 * (must be able to contain all windows of the satellite)
+	 * @return the number of windows written in out
+	 */
+	public int getOverlapping(int s, double t1, double t2, int[] out){
+		return collect(maxEnd, 1, 0, nLeaves, store.satelliteStart[s], firstStartingAfter(s, t2), t1, out, 0);
+	}
+
+	/**
+	 * Get all windows of a satellite whose interval contains t
+	 * @param s satellite idx
+	 * @param t
+	 * @param out array receiving the positions of the windows, by increasing earliest start time
+	 * (must be able to contain all windows of the satellite)
+	 * @return the number of windows written in out
+	 */
+	public int getStabbing(int s, double t, int[] out){
+		return getOverlapping(s, t, t, out);
+	}
+
+	/**
+	 * Get all windows which can be realized just after window w on the same satellite, when w starts
+	 * at its earliest start time, and whose earliest start time is at most maxGap after the end of w
+	 * @param w position of the window
+	 * @param maxGap maximum time between the end of w and the earliest start time of the windows returned
+	 * (Double.POSITIVE_INFINITY for all successors)
+	 * @param out array receiving the positions of the windows, by increasing earliest start time
+	 * (must be able to contain all windows of the satellite)
+	 * @return the number of windows written in out
+	 */
+	public int getSuccessors(int w, double maxGap, int[] out){
+		int s = store.satellite[w];
+		double end = store.earliestStart[w] + store.duration[w];
+		// windows whose latest start time is before the end of w cannot follow w, whatever the transition time
+		int n = collect(maxLatestStart, 1, 0, nLeaves, store.satelliteStart[s], firstStartingAfter(s, end + maxGap), end, out, 0);
+		int k = 0;
+		for(int i=0;i<n;i++){
+			int w2 = out[i];
+			if(w2 != w && end + store.getTransitionTime(w, w2) <= store.latestStart[w2])
+				out[k++] = w2;
+		}
+		return k;
+	}
+
+	/**
+	 * Collect the positions in [from,to) whose value in a max-tree is greater than or equal to threshold
+	 * @param tree
+	 * @param node current node, covering positions [lo,hi)
+	 * @param lo
+	 * @param hi
+	 * @param from
+	 * @param to
+	 * @param threshold
+	 * @param out
+	 * @param n number of positions already in out
+	 * @return the new number of positions in out
+	 */
+	int collect(double[] tree, int node, int lo, int hi, int from, int to, double threshold, int[] out, int n){
+		if(hi <= from || to <= lo || tree[node] < threshold)
+			return n;
+		if(node >= nLeaves){
+			out[n++] = lo;
+			return n;
+		}
+		int mid = (lo + hi) >>> 1;
+		n = collect(tree, 2*node, lo, mid, from, to, threshold, out, n);
+		return collect(tree, 2*node+1, mid, hi, from, to, threshold, out, n);
+	}
+
+}
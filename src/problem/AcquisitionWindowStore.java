@@ -0,0 +1,190 @@
+package problem;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Columnar (structure-of-arrays) view of all acquisition windows of a planning problem.
+ * Windows are identified by their position in the store: windows of satellite s are at positions
+ * [satelliteStart[s], satelliteStart[s+1]), sorted by increasing earliest start time.
+ * Removed windows are not included. The store is a snapshot: it must be rebuilt when the problem changes
+ * (see PlanningProblem.getAcquisitionWindowStore).
+ *
+ */
+public class AcquisitionWindowStore {
+
+	/** Number of windows in the store */
+	public final int nWindows;
+	/** Position of the first window of each satellite (index: satellite idx), followed by nWindows */
+	public final int[] satelliteStart;
+	/** Earliest start time of each window */
+	public final double[] earliestStart;
+	/** Latest start time of each window */
+	public final double[] latestStart;
+	/** Acquisition duration of each window */
+	public final double[] duration;
+	/** Roll angle of each window */
+	public final double[] rollAngle;
+	/** Zenith angle of each window */
+	public final double[] zenithAngle;
+	/** Cloud probability of each window */
+	public final double[] cloudProba;
+	/** Cost of each window (AcquisitionWindow.Cost) */
+	public final double[] cost;
+	/** Volume of each window */
+	public final long[] volume;
+	/** Index of the candidate acquisition of each window */
+	public final int[] candidate;
+	/** Index of each window in the list of windows of its candidate acquisition */
+	public final int[] windowIdx;
+	/** Index of the satellite of each window */
+	public final int[] satellite;
+	/** Index of the user of the candidate acquisition of each window */
+	public final int[] user;
+	/** Priority of the candidate acquisition of each window */
+	public final int[] priority;
+	/** Position in the store of window 0 of each candidate acquisition in windowPositions (index: candidate idx), followed by the total number of windows */
+	final int[] firstWindowOfCandidate;
+	/** Position in the store of each window, candidate by candidate (-1 for removed windows) */
+	final int[] windowPositions;
+	/** Maximum transition time between two windows of the store */
+	public final double maxTransitionTime;
+	/** Version of the problem from which the store has been built */
+	public final int version;
+
+	/**
+	 * Build the columnar view of the acquisition windows of a problem
+	 * @param pb
+	 */
+	public AcquisitionWindowStore(PlanningProblem pb){
+		this.version = pb.version;
+		int nSatellites = pb.satellites.size();
+		int nCandidates = pb.candidateAcquisitions.size();
+
+		// count windows per satellite
+		satelliteStart = new int[nSatellites+1];
+		firstWindowOfCandidate = new int[nCandidates+1];
+		for(CandidateAcquisition a : pb.candidateAcquisitions){
+			firstWindowOfCandidate[a.idx+1] = firstWindowOfCandidate[a.idx] + a.acquisitionWindows.size();
+			for(AcquisitionWindow w : a.acquisitionWindows){
+				if(!w.removed)
+					satelliteStart[w.satellite.idx+1]++;
+			}
+		}
+		for(int s=0;s<nSatellites;s++)
+			satelliteStart[s+1] += satelliteStart[s];
+		nWindows = satelliteStart[nSatellites];
+
+		// sort windows of each satellite by increasing earliest start time
+		AcquisitionWindow[] windows = new AcquisitionWindow[nWindows];
+		int[] next = Arrays.copyOf(satelliteStart, nSatellites);
+		for(CandidateAcquisition a : pb.candidateAcquisitions){
+			for(AcquisitionWindow w : a.acquisitionWindows){
+				if(!w.removed)
+					windows[next[w.satellite.idx]++] = w;
+			}
+		}
+		// windows were added candidate by candidate and the sort is stable, so that ties are broken deterministically
+		for(int s=0;s<nSatellites;s++){
+			Arrays.sort(windows, satelliteStart[s], satelliteStart[s+1], new Comparator<AcquisitionWindow>(){
+				@Override
+				public int compare(AcquisitionWindow w0, AcquisitionWindow w1) {
+					return Double.compare(w0.earliestStart, w1.earliestStart);
+				}
+			});
+		}
+
+		earliestStart = new double[nWindows];
+		latestStart = new double[nWindows];
+		duration = new double[nWindows];
+		rollAngle = new double[nWindows];
+		zenithAngle = new double[nWindows];
+		cloudProba = new double[nWindows];
+		cost = new double[nWindows];
+		volume = new long[nWindows];
+		candidate = new int[nWindows];
+		windowIdx = new int[nWindows];
+		satellite = new int[nWindows];
+		user = new int[nWindows];
+		priority = new int[nWindows];
+		windowPositions = new int[firstWindowOfCandidate[nCandidates]];
+		Arrays.fill(windowPositions, -1);
+		for(int i=0;i<nWindows;i++){
+			AcquisitionWindow w = windows[i];
+			earliestStart[i] = w.earliestStart;
+			latestStart[i] = w.latestStart;
+			duration[i] = w.duration;
+			rollAngle[i] = w.rollAngle;
+			zenithAngle[i] = w.zenithAngle;
+			cloudProba[i] = w.cloudProba;
+			cost[i] = w.Cost;
+			volume[i] = w.volume;
+			candidate[i] = w.candidateAcquisition.idx;
+			windowIdx[i] = w.idx;
+			satellite[i] = w.satellite.idx;
+			user[i] = w.candidateAcquisition.user.idx;
+			priority[i] = w.candidateAcquisition.priority;
+			windowPositions[firstWindowOfCandidate[w.candidateAcquisition.idx] + w.idx] = i;
+		}
+		double minRollAngle = Double.POSITIVE_INFINITY, maxRollAngle = Double.NEGATIVE_INFINITY;
+		for(int i=0;i<nWindows;i++){
+			minRollAngle = Math.min(minRollAngle, rollAngle[i]);
+			maxRollAngle = Math.max(maxRollAngle, rollAngle[i]);
+		}
+		maxTransitionTime = (nWindows == 0) ? 0 : PlanningProblem.getTransitionTime(minRollAngle, maxRollAngle);
+	}
+
+	/**
+	 *
+	 * @param candidateIdx
+	 * @param windowIdx
+	 * @return the position in the store of a window given by its candidate acquisition and its index in this acquisition (-1 if the window is not in the store)
+	 */
+	public int getPosition(int candidateIdx, int windowIdx){
+		if(candidateIdx < 0 || candidateIdx >= firstWindowOfCandidate.length-1)
+			return -1;
+		int first = firstWindowOfCandidate[candidateIdx];
+		if(windowIdx < 0 || first + windowIdx >= firstWindowOfCandidate[candidateIdx+1])
+			return -1;
+		return windowPositions[first + windowIdx];
+	}
+
+	/**
+	 *
+	 * @param w
+	 * @return the position of an acquisition window in the store (-1 if the window is not in the store)
+	 */
+	public int getPosition(AcquisitionWindow w){
+		return getPosition(w.candidateAcquisition.idx, w.idx);
+	}
+
+	/**
+	 *
+	 * @param pb problem from which the store has been built
+	 * @param i
+	 * @return the acquisition window at position i
+	 */
+	public AcquisitionWindow getWindow(PlanningProblem pb, int i){
+		return pb.getCandidateAcquisition(candidate[i]).getAcquisitionWindow(windowIdx[i]);
+	}
+
+	/**
+	 *
+	 * @param i
+	 * @param j
+	 * @return the transition time between windows at positions i and j (see PlanningProblem.getTransitionTime)
+	 */
+	public double getTransitionTime(int i, int j){
+		return PlanningProblem.getTransitionTime(rollAngle[i], rollAngle[j]);
+	}
+
+	/**
+	 *
+	 * @param s satellite idx
+	 * @return the number of windows of satellite s
+	 */
+	public int getNumberOfWindows(int s){
+		return satelliteStart[s+1] - satelliteStart[s];
+	}
+
+}
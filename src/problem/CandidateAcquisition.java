@@ -15,13 +15,6 @@ public class CandidateAcquisition extends Acquisition {
 	/** All acquisition windows associated with this candidate acquisition */
 	public List<AcquisitionWindow> acquisitionWindows;
 	
-	/** Acquisition window selected for realizing the candidate acquisition (value null if no window is selected, that is if the acquisition is not planned) */
-	public AcquisitionWindow selectedAcquisitionWindow;
-	/** Start time of the acquisition if the acquisition is selected for being realized */
-	public double selectedAcquisitionStartTime;
-	/** End time of the acquisition */
-	public double selectedAcquisitionEndTime;
-	
 	
 	/**
 	 * Create a candidate acquisition
@@ -62,21 +55,6 @@ public class CandidateAcquisition extends Acquisition {
 		return acquisitionWindows.get(idx);
 	}
 	
-	@Override
-	public Satellite getSatellite() {
-		return selectedAcquisitionWindow.satellite;
-	}
-
-	@Override
-	public double getAcquisitionTime() {
-		return selectedAcquisitionEndTime;
-	}
-
-	@Override
-	public long getVolume() {
-		return selectedAcquisitionWindow.volume;
-	}
-	
 	@Override
 	public long getIdx() {
 		return idx;
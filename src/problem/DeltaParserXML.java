@@ -0,0 +1,263 @@
+package problem;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Class used for reading scenario deltas written in XML and applying them to an existing planning problem.
+ * A delta is a planningDelta element containing a sequence of operations, applied in order:
+ * <pre>
+ * &lt;addCandidateAcquisition name user priority&gt; &lt;acquisitionOpportunity .../&gt;* &lt;/addCandidateAcquisition&gt;
+ * &lt;removeCandidateAcquisition idx/&gt;
+ * &lt;modifyCandidateAcquisition idx [user] [priority]/&gt;
+ * &lt;addAcquisitionOpportunity candidate satellite earliestStartTime latestStartTime duration zenithAngle rollAngle cloudProba volume/&gt;
+ * &lt;removeAcquisitionOpportunity candidate idx/&gt;
+ * &lt;modifyAcquisitionOpportunity candidate idx [satellite] [earliestStartTime] ... [volume]/&gt;
+ * &lt;addRecordedAcquisition id satellite user priority acquisitionTime volume/&gt;
+ * &lt;removeRecordedAcquisition idx/&gt;
+ * &lt;modifyRecordedAcquisition idx [satellite] [user] [priority] [acquisitionTime] [volume]/&gt;
+ * &lt;addDownloadWindow satellite station startTime endTime/&gt;
+ * &lt;removeDownloadWindow idx/&gt;
+ * &lt;modifyDownloadWindow idx [satellite] [station] [startTime] [endTime]/&gt;
+ * </pre>
+ * Elements are designated by their index in the problem (candidate being the index of a candidate acquisition),
+ * attributes have the same meaning as in planning data files, and attributes missing in modify operations keep
+ * their previous value. Indices are stable: added elements get new indices and removed ones are kept as tombstones.
+ *
+ */
+public class DeltaParserXML {
+
+	/**
+	 * Apply the delta contained in a file to a planning problem
+	 * @param pb
+	 * @param filenameDelta
+	 * @return a report describing what changed
+	 * @throws XMLStreamException
+	 * @throws FileNotFoundException
+	 * @throws FactoryConfigurationError
+	 */
+	public DeltaReport apply(PlanningProblem pb, String filenameDelta) throws XMLStreamException, FileNotFoundException, FactoryConfigurationError{
+		DeltaReport report = new DeltaReport();
+		XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(new BufferedInputStream(new FileInputStream(filenameDelta)));
+		CandidateAcquisition addedAcquisition = null;
+		while(reader.hasNext()){
+			int event = reader.next();
+			if(event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("addCandidateAcquisition")){
+				addedAcquisition = null;
+				continue;
+			}
+			if(event != XMLStreamConstants.START_ELEMENT)
+				continue;
+			String operation = reader.getLocalName();
+			switch(operation){
+			case "addCandidateAcquisition":
+				addedAcquisition = pb.addCandidateAcquisition(reader.getAttributeValue(null, "name"),
+						getUser(pb, reader, "user"), Integer.parseInt(getAttribute(reader, "priority")));
+				report.addedCandidateAcquisitions.add(addedAcquisition.idx);
+				report.nAdded++;
+				break;
+			case "acquisitionOpportunity":
+				if(addedAcquisition != null)
+					addAcquisitionWindow(pb, reader, addedAcquisition, report);
+				break;
+			case "removeCandidateAcquisition": {
+				CandidateAcquisition a = pb.getCandidateAcquisition(getIdx(reader, "idx"));
+				for(AcquisitionWindow w : a.acquisitionWindows){
+					if(!w.removed)
+						addChange(report, w);
+				}
+				pb.removeCandidateAcquisition(a.idx);
+				report.nRemoved++;
+				break;
+			}
+			case "modifyCandidateAcquisition": {
+				CandidateAcquisition a = pb.getCandidateAcquisition(getIdx(reader, "idx"));
+				User user = reader.getAttributeValue(null, "user") == null ? a.user : getUser(pb, reader, "user");
+				String priority = reader.getAttributeValue(null, "priority");
+				a = pb.replaceCandidateAcquisition(a.idx, user, priority == null ? a.priority : Integer.parseInt(priority));
+				for(AcquisitionWindow w : a.acquisitionWindows){
+					if(!w.removed)
+						addChange(report, w);
+				}
+				report.nModified++;
+				break;
+			}
+			case "addAcquisitionOpportunity":
+				addAcquisitionWindow(pb, reader, pb.getCandidateAcquisition(getIdx(reader, "candidate")), report);
+				break;
+			case "removeAcquisitionOpportunity": {
+				CandidateAcquisition a = pb.getCandidateAcquisition(getIdx(reader, "candidate"));
+				AcquisitionWindow w = a.getAcquisitionWindow(getIdx(reader, "idx"));
+				addChange(report, w);
+				pb.removeAcquisitionWindow(a, w.idx);
+				report.nRemoved++;
+				break;
+			}
+			case "modifyAcquisitionOpportunity": {
+				CandidateAcquisition a = pb.getCandidateAcquisition(getIdx(reader, "candidate"));
+				AcquisitionWindow w = a.getAcquisitionWindow(getIdx(reader, "idx"));
+				Satellite satellite = reader.getAttributeValue(null, "satellite") == null ? w.satellite : getSatellite(pb, reader, "satellite");
+				double earliestStart = Math.max(getDouble(reader, "earliestStartTime", w.earliestStart), pb.horizonStart);
+				double latestStart = Math.min(getDouble(reader, "latestStartTime", w.latestStart), pb.horizonEnd);
+				addChange(report, w);
+				if(earliestStart <= latestStart){
+					AcquisitionWindow modified = pb.replaceAcquisitionWindow(a, w.idx, satellite, earliestStart, latestStart,
+							getDouble(reader, "duration", w.duration), getDouble(reader, "zenithAngle", w.zenithAngle),
+							getDouble(reader, "rollAngle", w.rollAngle), getDouble(reader, "cloudProba", w.cloudProba),
+							getLong(reader, "volume", w.volume));
+					modified.removed = w.removed || a.removed;
+					addChange(report, modified);
+					report.nModified++;
+				}
+				else { // the modified window is outside of the planning horizon
+					pb.removeAcquisitionWindow(a, w.idx);
+					report.nRemoved++;
+				}
+				break;
+			}
+			case "addRecordedAcquisition": {
+				int id = Integer.parseInt(getAttribute(reader, "id"));
+				Satellite satellite = getSatellite(pb, reader, "satellite");
+				double acquisitionTime = Double.parseDouble(getAttribute(reader, "acquisitionTime"));
+				pb.addRecordedAcquisition(id, "REC_"+id, getUser(pb, reader, "user"), Integer.parseInt(getAttribute(reader, "priority")),
+						satellite, acquisitionTime, Long.parseLong(getAttribute(reader, "volume")));
+				report.addedRecordedAcquisitions.add(pb.recordedAcquisitions.size()-1);
+				report.addChange(satellite, acquisitionTime, pb.horizonEnd);
+				report.nAdded++;
+				break;
+			}
+			case "removeRecordedAcquisition": {
+				RecordedAcquisition a = pb.getRecordedAcquisition(getIdx(reader, "idx"));
+				report.addChange(a.satellite, a.acquisitionTime, pb.horizonEnd);
+				pb.removeRecordedAcquisition(a.idx);
+				report.nRemoved++;
+				break;
+			}
+			case "modifyRecordedAcquisition": {
+				RecordedAcquisition a = pb.getRecordedAcquisition(getIdx(reader, "idx"));
+				report.addChange(a.satellite, a.acquisitionTime, pb.horizonEnd);
+				Satellite satellite = reader.getAttributeValue(null, "satellite") == null ? a.satellite : getSatellite(pb, reader, "satellite");
+				User user = reader.getAttributeValue(null, "user") == null ? a.user : getUser(pb, reader, "user");
+				String priority = reader.getAttributeValue(null, "priority");
+				RecordedAcquisition modified = pb.replaceRecordedAcquisition(a.idx, user, priority == null ? a.priority : Integer.parseInt(priority),
+						satellite, getDouble(reader, "acquisitionTime", a.acquisitionTime), getLong(reader, "volume", a.volume));
+				modified.removed = a.removed;
+				report.addChange(modified.satellite, modified.acquisitionTime, pb.horizonEnd);
+				report.nModified++;
+				break;
+			}
+			case "addDownloadWindow": {
+				Satellite satellite = getSatellite(pb, reader, "satellite");
+				double start = Math.max(Double.parseDouble(getAttribute(reader, "startTime")), pb.horizonStart);
+				double end = Math.min(Double.parseDouble(getAttribute(reader, "endTime")), pb.horizonEnd);
+				if(start <= end){
+					pb.addDownloadWindow(satellite, getStation(pb, reader, "station"), start, end);
+					report.addedDownloadWindows.add(pb.downloadWindows.size()-1);
+					report.addChange(satellite, start, end);
+					report.nAdded++;
+				}
+				break;
+			}
+			case "removeDownloadWindow": {
+				DownloadWindow w = pb.getDownloadWindow(getIdx(reader, "idx"));
+				report.addChange(w.satellite, w.start, w.end);
+				pb.removeDownloadWindow(w.idx);
+				report.nRemoved++;
+				break;
+			}
+			case "modifyDownloadWindow": {
+				DownloadWindow w = pb.getDownloadWindow(getIdx(reader, "idx"));
+				report.addChange(w.satellite, w.start, w.end);
+				Satellite satellite = reader.getAttributeValue(null, "satellite") == null ? w.satellite : getSatellite(pb, reader, "satellite");
+				Station station = reader.getAttributeValue(null, "station") == null ? w.station : getStation(pb, reader, "station");
+				double start = Math.max(getDouble(reader, "startTime", w.start), pb.horizonStart);
+				double end = Math.min(getDouble(reader, "endTime", w.end), pb.horizonEnd);
+				if(start <= end){
+					DownloadWindow modified = pb.replaceDownloadWindow(w.idx, satellite, station, start, end);
+					modified.removed = w.removed;
+					report.addChange(satellite, start, end);
+					report.nModified++;
+				}
+				else { // the modified window is outside of the planning horizon
+					pb.removeDownloadWindow(w.idx);
+					report.nRemoved++;
+				}
+				break;
+			}
+			default:
+				break;
+			}
+		}
+		reader.close();
+		return report;
+	}
+
+	void addAcquisitionWindow(PlanningProblem pb, XMLStreamReader reader, CandidateAcquisition a, DeltaReport report) throws XMLStreamException{
+		Satellite satellite = getSatellite(pb, reader, "satellite");
+		double earliestStart = Math.max(Double.parseDouble(getAttribute(reader, "earliestStartTime")), pb.horizonStart);
+		double latestStart = Math.min(Double.parseDouble(getAttribute(reader, "latestStartTime")), pb.horizonEnd);
+		if(earliestStart <= latestStart){
+			AcquisitionWindow w = pb.addAcquisitionWindow(a, satellite, earliestStart, latestStart,
+					Double.parseDouble(getAttribute(reader, "duration")), Double.parseDouble(getAttribute(reader, "zenithAngle")),
+					Double.parseDouble(getAttribute(reader, "rollAngle")), Double.parseDouble(getAttribute(reader, "cloudProba")),
+					Long.parseLong(getAttribute(reader, "volume")));
+			w.removed = a.removed;
+			addChange(report, w);
+			report.nAdded++;
+		}
+	}
+
+	static void addChange(DeltaReport report, AcquisitionWindow w){
+		report.addChange(w.satellite, w.earliestStart, w.latestStart + w.duration);
+	}
+
+	static String getAttribute(XMLStreamReader reader, String name) throws XMLStreamException{
+		String value = reader.getAttributeValue(null, name);
+		if(value == null)
+			throw new XMLStreamException("Missing attribute " + name + " in " + reader.getLocalName(), reader.getLocation());
+		return value;
+	}
+
+	static int getIdx(XMLStreamReader reader, String name) throws XMLStreamException{
+		return Integer.parseInt(getAttribute(reader, name));
+	}
+
+	static double getDouble(XMLStreamReader reader, String name, double defaultValue){
+		String value = reader.getAttributeValue(null, name);
+		return value == null ? defaultValue : Double.parseDouble(value);
+	}
+
+	static long getLong(XMLStreamReader reader, String name, long defaultValue){
+		String value = reader.getAttributeValue(null, name);
+		return value == null ? defaultValue : Long.parseLong(value);
+	}
+
+	static User getUser(PlanningProblem pb, XMLStreamReader reader, String name) throws XMLStreamException{
+		User user = pb.getUser(getAttribute(reader, name));
+		if(user == null)
+			throw new XMLStreamException("Unknown user " + reader.getAttributeValue(null, name), reader.getLocation());
+		return user;
+	}
+
+	static Satellite getSatellite(PlanningProblem pb, XMLStreamReader reader, String name) throws XMLStreamException{
+		Satellite satellite = pb.getSatellite(getAttribute(reader, name));
+		if(satellite == null)
+			throw new XMLStreamException("Unknown satellite " + reader.getAttributeValue(null, name), reader.getLocation());
+		return satellite;
+	}
+
+	static Station getStation(PlanningProblem pb, XMLStreamReader reader, String name) throws XMLStreamException{
+		Station station = pb.getStation(getAttribute(reader, name));
+		if(station == null)
+			throw new XMLStreamException("Unknown station " + reader.getAttributeValue(null, name), reader.getLocation());
+		return station;
+	}
+
+}
@@ -0,0 +1,115 @@
+package problem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class used for describing the impact of a scenario delta applied to a planning problem:
+ * elements added, removed or modified, and time ranges changed on each satellite (only
+ * these parts of the plans need to be computed again)
+ *
+ */
+public class DeltaReport {
+
+	/** Indices of the candidate acquisitions added */
+	public final List<Integer> addedCandidateAcquisitions;
+	/** Indices of the recorded acquisitions added */
+	public final List<Integer> addedRecordedAcquisitions;
+	/** Indices of the download windows added */
+	public final List<Integer> addedDownloadWindows;
+	/** Number of elements (acquisitions, acquisition windows, download windows) added */
+	public int nAdded;
+	/** Number of elements removed */
+	public int nRemoved;
+	/** Number of elements modified */
+	public int nModified;
+	/** Time intervals changed on each satellite, as {start,end} pairs (raw, use getChangedIntervals for merged intervals) */
+	final Map<Satellite,List<double[]>> changes;
+
+	/**
+	 * Create an empty report
+	 */
+	public DeltaReport(){
+		addedCandidateAcquisitions = new ArrayList<Integer>();
+		addedRecordedAcquisitions = new ArrayList<Integer>();
+		addedDownloadWindows = new ArrayList<Integer>();
+		changes = new LinkedHashMap<Satellite,List<double[]>>();
+	}
+
+	/**
+	 * Record that [start,end] changed on a satellite
+	 * @param satellite
+	 * @param start
+	 * @param end
+	 */
+	public void addChange(Satellite satellite, double start, double end){
+		List<double[]> intervals = changes.get(satellite);
+		if(intervals == null){
+			intervals = new ArrayList<double[]>();
+			changes.put(satellite, intervals);
+		}
+		intervals.add(new double[]{start, end});
+	}
+
+	/**
+	 *
+	 * @return all satellites whose data changed
+	 */
+	public List<Satellite> getChangedSatellites(){
+		return new ArrayList<Satellite>(changes.keySet());
+	}
+
+	/**
+	 *
+	 * @param satellite
+	 * @return true if the data of the satellite changed
+	 */
+	public boolean isChanged(Satellite satellite){
+		return changes.containsKey(satellite);
+	}
+
+	/**
+	 *
+	 * @param satellite
+	 * @return the disjoint time intervals {start,end} changed on the satellite, by increasing start time
+	 */
+	public List<double[]> getChangedIntervals(Satellite satellite){
+		List<double[]> merged = new ArrayList<double[]>();
+		List<double[]> intervals = changes.get(satellite);
+		if(intervals == null)
+			return merged;
+		List<double[]> sorted = new ArrayList<double[]>(intervals);
+		Collections.sort(sorted, new Comparator<double[]>(){
+			@Override
+			public int compare(double[] i0, double[] i1) {
+				return Double.compare(i0[0], i1[0]);
+			}
+		});
+		double[] current = null;
+		for(double[] interval : sorted){
+			if(current != null && interval[0] <= current[1])
+				current[1] = Math.max(current[1], interval[1]);
+			else {
+				current = new double[]{interval[0], interval[1]};
+				merged.add(current);
+			}
+		}
+		return merged;
+	}
+
+	@Override
+	public String toString(){
+		StringBuilder s = new StringBuilder("Delta: " + nAdded + " added, " + nRemoved + " removed, " + nModified + " modified");
+		for(Satellite satellite : changes.keySet()){
+			s.append("\n\t" + satellite.name + ":");
+			for(double[] interval : getChangedIntervals(satellite))
+				s.append(" [" + interval[0] + "," + interval[1] + "]");
+		}
+		return s.toString();
+	}
+
+}
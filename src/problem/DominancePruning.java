@@ -0,0 +1,79 @@
+package problem;
+
+import java.util.List;
+
+/**
+ * Removal of the acquisition windows dominated by another window of the same candidate acquisition on the same satellite.
+ * Window b dominates window a when b can replace a in any plan containing a, with a cost at least as high. Transition times
+ * only depend on roll angles and satisfy the triangle inequality, so that with d = transitionTime(a,b), b can start d
+ * seconds after a (preceding acquisitions are still respected) and end d seconds before the end of a (following
+ * acquisitions are still respected) if:
+ * <ul>
+ * <li>duration(b) + 2d &lt;= duration(a);</li>
+ * <li>earliestStart(b) &lt;= earliestStart(a) + duration(a) - duration(b) - d, and latestStart(b) &gt;= latestStart(a) + d;</li>
+ * <li>Cost(b) &gt;= Cost(a), and volume(b) &lt;= volume(a) (downloads and mass memory are not worse).</li>
+ * </ul>
+ * For windows with the same roll angle (d = 0) and the same duration, this is the inclusion of [earliestStart, latestStart]
+ * of a in the one of b. The relation is transitive, and identical windows are kept once (lowest idx), so that each window
+ * removed is dominated by a window kept. Since every feasible succession with a is also feasible with b, the successor
+ * graph and the OPL models of the reduced problem do not lose any plan value.
+ * <p>
+ * Windows are removed as tombstones (see PlanningProblem.removeAcquisitionWindow), so that all planners and .dat writers
+ * built on the acquisition window store only see the windows kept.
+ *
+ */
+public class DominancePruning {
+
+	/**
+	 *
+	 * @param b
+	 * @param a
+	 * @return true if window b dominates window a (b can replace a in any plan, with a cost at least as high)
+	 */
+	public static boolean dominates(AcquisitionWindow b, AcquisitionWindow a){
+		if(b.candidateAcquisition != a.candidateAcquisition || b.satellite != a.satellite)
+			return false;
+		double d = PlanningProblem.getTransitionTime(a.rollAngle, b.rollAngle);
+		return b.duration + 2*d <= a.duration
+				&& b.earliestStart <= a.earliestStart + a.duration - b.duration - d
+				&& b.latestStart >= a.latestStart + d
+				&& b.Cost >= a.Cost
+				&& b.volume <= a.volume;
+	}
+
+	/**
+	 * Remove the dominated acquisition windows of a problem
+	 * @param pb
+	 * @return the number of acquisition windows removed
+	 */
+	public static int prune(PlanningProblem pb){
+		int nRemoved = 0;
+		for(CandidateAcquisition a : pb.candidateAcquisitions){
+			if(a.removed)
+				continue;
+			List<AcquisitionWindow> windows = a.acquisitionWindows;
+			boolean[] dominated = new boolean[windows.size()];
+			for(AcquisitionWindow w : windows){
+				if(w.removed)
+					continue;
+				for(AcquisitionWindow w2 : windows){
+					if(w2 == w || w2.removed || !dominates(w2, w))
+						continue;
+					// windows which dominate each other are identical: the one with the lowest idx is kept
+					if(!dominates(w, w2) || w2.idx < w.idx){
+						dominated[w.idx] = true;
+						break;
+					}
+				}
+			}
+			for(int i=0;i<dominated.length;i++){
+				if(dominated[i]){
+					pb.removeAcquisitionWindow(a, i);
+					nRemoved++;
+				}
+			}
+		}
+		return nRemoved;
+	}
+
+}
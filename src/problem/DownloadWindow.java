@@ -17,6 +17,8 @@ public class DownloadWindow {
 	public final double end;
 	/** Index of this download window in the list of download windows of the problem */
 	public final int idx;
+	/** True if the window has been removed (cancelled) from the problem (its index is kept, but it must not be used anymore) */
+	public boolean removed;
 	
 	/**
 	 * Create a download window
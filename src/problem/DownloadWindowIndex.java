@@ -0,0 +1,162 @@
+package problem;
+
+/**
+ * Index of the download windows of a planning problem, per satellite and per (satellite, station) pair.
+ * Each group of windows is stored as primitive arrays sorted by increasing start time, so that planners
+ * neither filter nor sort the windows again, and can jump to the first useful window by binary search.
+ * Removed windows are not included. The index must be rebuilt when the problem changes
+ * (see PlanningProblem.getDownloadWindowIndex).
+ *
+ */
+public class DownloadWindowIndex {
+
+	/**
+	 * Download windows of a group, sorted by increasing start time
+	 */
+	public static class Windows {
+		/** Index of each download window (position in pb.downloadWindows) */
+		public final int[] idx;
+		/** Start time of each download window */
+		public final double[] start;
+		/** End time of each download window */
+		public final double[] end;
+		/** Maximum end time of the windows at positions 0..k (non-decreasing, windows may overlap when they concern several stations) */
+		final double[] maxEnd;
+
+		Windows(int[] idx, double[] start, double[] end){
+			this.idx = idx;
+			this.start = start;
+			this.end = end;
+			maxEnd = new double[idx.length];
+		}
+
+		/**
+		 * Compute the prefix maxima of the end times, once all windows have been set
+		 */
+		void updateMaxEnd(){
+			for(int k=0;k<idx.length;k++)
+				maxEnd[k] = (k == 0) ? end[k] : Math.max(maxEnd[k-1], end[k]);
+		}
+
+		/**
+		 *
+		 * @return the number of windows in the group
+		 */
+		public int size(){
+			return idx.length;
+		}
+
+		/**
+		 *
+		 * @param t
+		 * @return the first position k such that a window at position k or before ends at t or later
+		 * (all windows before k end strictly before t; size() if all windows end before t)
+		 */
+		public int firstEndingAfter(double t){
+			int lo = 0, hi = idx.length;
+			while(lo < hi){
+				int mid = (lo + hi) >>> 1;
+				if(maxEnd[mid] < t)
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+			return lo;
+		}
+
+		/**
+		 *
+		 * @param t
+		 * @return the first position of a window starting strictly after t (size() if there is no such window)
+		 */
+		public int firstStartingAfter(double t){
+			int lo = 0, hi = idx.length;
+			while(lo < hi){
+				int mid = (lo + hi) >>> 1;
+				if(start[mid] <= t)
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+			return lo;
+		}
+	}
+
+	/** Version of the problem from which the index has been built */
+	public final int version;
+	/** Download windows of each satellite (index: satellite idx) */
+	final Windows[] bySatellite;
+	/** Download windows of each satellite and station (indices: satellite idx, station idx) */
+	final Windows[][] bySatelliteAndStation;
+
+	/**
+	 * Build the index of the download windows of a problem
+	 * @param pb
+	 */
+	public DownloadWindowIndex(PlanningProblem pb){
+		this.version = pb.version;
+		int nSatellites = pb.satellites.size();
+		int nStations = pb.stations.size();
+		double[] starts = new double[pb.downloadWindows.size()];
+		for(DownloadWindow w : pb.downloadWindows)
+			starts[w.idx] = w.start;
+		int[] order = Sorting.sortedByKey(starts.length, starts);
+
+		int[] count = new int[nSatellites];
+		int[][] stationCount = new int[nSatellites][nStations];
+		for(DownloadWindow w : pb.downloadWindows){
+			if(!w.removed){
+				count[w.satellite.idx]++;
+				stationCount[w.satellite.idx][w.station.idx]++;
+			}
+		}
+		bySatellite = new Windows[nSatellites];
+		bySatelliteAndStation = new Windows[nSatellites][nStations];
+		for(int s=0;s<nSatellites;s++){
+			bySatellite[s] = new Windows(new int[count[s]], new double[count[s]], new double[count[s]]);
+			for(int st=0;st<nStations;st++)
+				bySatelliteAndStation[s][st] = new Windows(new int[stationCount[s][st]], new double[stationCount[s][st]], new double[stationCount[s][st]]);
+		}
+		int[] next = new int[nSatellites];
+		int[][] stationNext = new int[nSatellites][nStations];
+		for(int i : order){
+			DownloadWindow w = pb.downloadWindows.get(i);
+			if(w.removed)
+				continue;
+			int s = w.satellite.idx, st = w.station.idx;
+			add(bySatellite[s], next[s]++, w);
+			add(bySatelliteAndStation[s][st], stationNext[s][st]++, w);
+		}
+		for(int s=0;s<nSatellites;s++){
+			bySatellite[s].updateMaxEnd();
+			for(int st=0;st<nStations;st++)
+				bySatelliteAndStation[s][st].updateMaxEnd();
+		}
+	}
+
+	static void add(Windows windows, int k, DownloadWindow w){
+		windows.idx[k] = w.idx;
+		windows.start[k] = w.start;
+		windows.end[k] = w.end;
+	}
+
+	/**
+	 *
+	 * @param satellite
+	 * @return the download windows of a satellite, by increasing start time
+	 */
+	public Windows getWindows(Satellite satellite){
+		return bySatellite[satellite.idx];
+	}
+
+	/**
+	 *
+	 * @param satellite
+	 * @param station
+	 * @return the download windows of a satellite over a station, by increasing start time
+	 */
+	public Windows getWindows(Satellite satellite, Station station){
+		return bySatelliteAndStation[satellite.idx][station.idx];
+	}
+
+}
@@ -0,0 +1,125 @@
+package problem;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLStreamException;
+
+import params.Params;
+
+/**
+ * Side-by-side timing of the planning data parsers (event, cursor and parallel modes) on all
+ * data/planning_data_*.xml scenarios. For each scenario, the cursor and parallel parsers are
+ * also checked to build the same planning problem as the event parser.
+ *
+ */
+public class ParserTiming {
+
+	/** Number of untimed runs per parser and per scenario (JIT warm-up) */
+	final static int nWarmupRuns = 2;
+	/** Number of timed runs per parser and per scenario */
+	final static int nTimedRuns = 5;
+
+	/**
+	 *
+	 * @param mode
+	 * @param filenamePlanningData
+	 * @return the planning problem read using the given parser mode
+	 */
+	static PlanningProblem parse(ProblemParserXML.Mode mode, String filenamePlanningData) throws IOException, XMLStreamException, FactoryConfigurationError{
+		return new ProblemParserXML(mode).read(Params.systemDataFile, filenamePlanningData);
+	}
+
+	/**
+	 *
+	 * @param mode
+	 * @param filenamePlanningData
+	 * @return the median parsing time (in milliseconds) over nTimedRuns runs
+	 */
+	static double time(ProblemParserXML.Mode mode, String filenamePlanningData) throws IOException, XMLStreamException, FactoryConfigurationError{
+		for(int i=0;i<nWarmupRuns;i++)
+			parse(mode, filenamePlanningData);
+		double[] times = new double[nTimedRuns];
+		for(int i=0;i<nTimedRuns;i++){
+			long t0 = System.nanoTime();
+			parse(mode, filenamePlanningData);
+			times[i] = (System.nanoTime() - t0) / 1E6;
+		}
+		Arrays.sort(times);
+		return times[nTimedRuns/2];
+	}
+
+	/**
+	 *
+	 * @param pb1
+	 * @param pb2
+	 * @return true if both problems contain the same acquisitions, windows and download windows (same order, same values)
+	 */
+	static boolean sameProblem(PlanningProblem pb1, PlanningProblem pb2){
+		if(pb1.horizonStart != pb2.horizonStart || pb1.horizonEnd != pb2.horizonEnd)
+			return false;
+		if(pb1.candidateAcquisitions.size() != pb2.candidateAcquisitions.size()
+				|| pb1.recordedAcquisitions.size() != pb2.recordedAcquisitions.size()
+				|| pb1.downloadWindows.size() != pb2.downloadWindows.size())
+			return false;
+		for(int i=0;i<pb1.candidateAcquisitions.size();i++){
+			CandidateAcquisition a1 = pb1.candidateAcquisitions.get(i), a2 = pb2.candidateAcquisitions.get(i);
+			if(!a1.name.equals(a2.name) || a1.priority != a2.priority || a1.user.idx != a2.user.idx
+					|| a1.acquisitionWindows.size() != a2.acquisitionWindows.size())
+				return false;
+			for(int j=0;j<a1.acquisitionWindows.size();j++){
+				AcquisitionWindow w1 = a1.acquisitionWindows.get(j), w2 = a2.acquisitionWindows.get(j);
+				if(!w1.satellite.name.equals(w2.satellite.name) || w1.earliestStart != w2.earliestStart || w1.latestStart != w2.latestStart
+						|| w1.duration != w2.duration || w1.zenithAngle != w2.zenithAngle || w1.rollAngle != w2.rollAngle
+						|| w1.cloudProba != w2.cloudProba || w1.volume != w2.volume)
+					return false;
+			}
+		}
+		for(int i=0;i<pb1.recordedAcquisitions.size();i++){
+			RecordedAcquisition a1 = pb1.recordedAcquisitions.get(i), a2 = pb2.recordedAcquisitions.get(i);
+			if(!a1.name.equals(a2.name) || a1.priority != a2.priority || a1.user.idx != a2.user.idx || !a1.satellite.name.equals(a2.satellite.name)
+					|| a1.acquisitionTime != a2.acquisitionTime || a1.volume != a2.volume)
+				return false;
+		}
+		for(int i=0;i<pb1.downloadWindows.size();i++){
+			DownloadWindow w1 = pb1.downloadWindows.get(i), w2 = pb2.downloadWindows.get(i);
+			if(!w1.satellite.name.equals(w2.satellite.name) || !w1.station.name.equals(w2.station.name) || w1.start != w2.start || w1.end != w2.end)
+				return false;
+		}
+		return true;
+	}
+
+	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException{
+		File[] scenarios = new File("data").listFiles(new FilenameFilter(){
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.startsWith("planning_data_") && name.endsWith(".xml");
+			}
+		});
+		if(scenarios == null || scenarios.length == 0){
+			System.out.println("No data/planning_data_*.xml scenario found");
+			return;
+		}
+		Arrays.sort(scenarios);
+		ProblemParserXML.Mode[] modes = ProblemParserXML.Mode.values();
+		StringBuilder header = new StringBuilder(String.format("%-45s", "scenario"));
+		for(ProblemParserXML.Mode mode : modes)
+			header.append(String.format(" %12s", mode.name().toLowerCase() + " (ms)"));
+		System.out.println(header + "   same");
+		for(File scenario : scenarios){
+			String filename = scenario.getPath();
+			PlanningProblem reference = parse(ProblemParserXML.Mode.EVENT, filename);
+			boolean same = true;
+			StringBuilder line = new StringBuilder(String.format("%-45s", scenario.getName()));
+			for(ProblemParserXML.Mode mode : modes){
+				same &= sameProblem(reference, parse(mode, filename));
+				line.append(String.format(" %12.1f", time(mode, filename)));
+			}
+			System.out.println(line + "   " + same);
+		}
+	}
+
+}
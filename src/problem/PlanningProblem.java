@@ -2,7 +2,9 @@ package problem;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import params.Params;
 
@@ -21,6 +23,10 @@ public class PlanningProblem {
 	public List<Station> stations;
 	/** All users of the system */
 	public List<User> users;
+	/** Registry of satellites, stations and users by name (each of them has a dense index, its position in the corresponding list) */
+	final Map<String,Satellite> satelliteRegistry;
+	final Map<String,Station> stationRegistry;
+	final Map<String,User> userRegistry;
 	
 	// PLANNING DATA
 	
@@ -34,6 +40,27 @@ public class PlanningProblem {
 	public List<RecordedAcquisition> recordedAcquisitions;
 	/** All download windows of the problem */
 	public List<DownloadWindow> downloadWindows;
+	/** Number of modifications applied to the planning data (any data derived from the problem is outdated as soon as this number changes) */
+	public int version;
+
+	// DATA DERIVED FROM PLANNING DATA (rebuilt on demand when the version changes)
+
+	/** Acquisition windows of each satellite (index: satellite idx) */
+	List<List<AcquisitionWindow>> acquisitionWindowsBySatellite;
+	/** Recorded acquisitions of each satellite (index: satellite idx) */
+	List<List<RecordedAcquisition>> recordedAcquisitionsBySatellite;
+	/** Download windows of each satellite (index: satellite idx) */
+	List<List<DownloadWindow>> downloadWindowsBySatellite;
+	/** Version of the problem for which the per-satellite lists have been built */
+	int bySatelliteVersion = -1;
+	/** Columnar view of the acquisition windows (rebuilt when outdated) */
+	AcquisitionWindowStore acquisitionWindowStore;
+	/** Interval index over the acquisition windows of each satellite (rebuilt when outdated) */
+	AcquisitionWindowIndex acquisitionWindowIndex;
+	/** Index of the download windows per satellite and per station (rebuilt when outdated) */
+	DownloadWindowIndex downloadWindowIndex;
+	/** Graph of the feasible successions between acquisition windows (rebuilt when outdated) */
+	SuccessorGraph successorGraph;
 	
 	
 	/**
@@ -43,6 +70,9 @@ public class PlanningProblem {
 		satellites = new ArrayList<Satellite>();
 		stations = new ArrayList<Station>();
 		users = new ArrayList<User>();
+		satelliteRegistry = new HashMap<String,Satellite>();
+		stationRegistry = new HashMap<String,Station>();
+		userRegistry = new HashMap<String,User>();
 		candidateAcquisitions = new ArrayList<CandidateAcquisition>();
 		recordedAcquisitions = new ArrayList<RecordedAcquisition>();	
 		downloadWindows = new ArrayList<DownloadWindow>();
@@ -67,6 +97,7 @@ public class PlanningProblem {
 	public User addUser(String name, double quota){
 		User user = new User(users.size(),name,quota);
 		users.add(user);
+		userRegistry.put(name, user);
 		return user;
 	}
 
@@ -76,8 +107,9 @@ public class PlanningProblem {
 	 * @return the satellite created
 	 */
 	public Satellite addSatellite(String name){
-		Satellite satellite = new Satellite(name);
+		Satellite satellite = new Satellite(name, satellites.size());
 		satellites.add(satellite);
+		satelliteRegistry.put(name, satellite);
 		return satellite;
 	}
 
@@ -87,8 +119,9 @@ public class PlanningProblem {
 	 * @return the station created
 	 */
 	public Station addStation(String name){
-		Station station = new Station(name);
+		Station station = new Station(name, stations.size());
 		stations.add(station);
+		stationRegistry.put(name, station);
 		return station;
 	}
 
@@ -101,6 +134,7 @@ public class PlanningProblem {
 	 * @return the acquisition created
 	 */
 	public CandidateAcquisition addCandidateAcquisition(String name, User user, int priority){
+		version++;
 		CandidateAcquisition r = new CandidateAcquisition(name,user,priority, candidateAcquisitions.size());
 		candidateAcquisitions.add(r);
 		return r;
@@ -114,6 +148,7 @@ public class PlanningProblem {
 	 * @param volume
 	 */
 	public void addRecordedAcquisition(int id, String name, User user, int priority, Satellite satellite, double acquisitionTime, long volume){
+		version++;
 		recordedAcquisitions.add(new RecordedAcquisition(name,user,priority,recordedAcquisitions.size(),satellite,acquisitionTime,volume));
 	}
 
@@ -126,9 +161,43 @@ public class PlanningProblem {
 	 * @param end end time of the download window added
 	 */
 	public void addDownloadWindow(Satellite satellite, Station station, double start, double end){
+		version++;
 		downloadWindows.add(new DownloadWindow(satellite,station,start,end,downloadWindows.size()));		
 	}
 
+	/**
+	 * Add a candidate acquisition built outside of the problem (used by parsers which build acquisitions concurrently)
+	 * @param candidateAcquisition acquisition whose index is the number of candidate acquisitions already in the problem
+	 */
+	void addCandidateAcquisition(CandidateAcquisition candidateAcquisition){
+		if(candidateAcquisition.idx != candidateAcquisitions.size())
+			throw new IllegalArgumentException("Candidate acquisition " + candidateAcquisition.name + " added at index " + candidateAcquisitions.size() + " instead of " + candidateAcquisition.idx);
+		candidateAcquisitions.add(candidateAcquisition);
+		version++;
+	}
+
+	/**
+	 * Add a recorded acquisition built outside of the problem (used by parsers which build acquisitions concurrently)
+	 * @param recordedAcquisition acquisition whose index is the number of recorded acquisitions already in the problem
+	 */
+	void addRecordedAcquisition(RecordedAcquisition recordedAcquisition){
+		if(recordedAcquisition.idx != recordedAcquisitions.size())
+			throw new IllegalArgumentException("Recorded acquisition " + recordedAcquisition.name + " added at index " + recordedAcquisitions.size() + " instead of " + recordedAcquisition.idx);
+		recordedAcquisitions.add(recordedAcquisition);
+		version++;
+	}
+
+	/**
+	 * Add a download window built outside of the problem (used by parsers which build windows concurrently)
+	 * @param downloadWindow window whose index is the number of download windows already in the problem
+	 */
+	void addDownloadWindow(DownloadWindow downloadWindow){
+		if(downloadWindow.idx != downloadWindows.size())
+			throw new IllegalArgumentException(downloadWindow + " added at index " + downloadWindows.size() + " instead of " + downloadWindow.idx);
+		downloadWindows.add(downloadWindow);
+		version++;
+	}
+
 	/**
 	 * 
 	 * @param i
@@ -156,6 +225,241 @@ public class PlanningProblem {
 		return downloadWindows.get(i);
 	}
 
+	/**
+	 * 
+	 * @param name
+	 * @return the user whose name is given (null if there is no such user)
+	 */
+	public User getUser(String name){
+		return userRegistry.get(name);
+	}
+
+	/**
+	 * 
+	 * @param name
+	 * @return the satellite whose name is given (null if there is no such satellite)
+	 */
+	public Satellite getSatellite(String name){
+		return satelliteRegistry.get(name);
+	}
+
+	/**
+	 * 
+	 * @param name
+	 * @return the station whose name is given (null if there is no such station)
+	 */
+	public Station getStation(String name){
+		return stationRegistry.get(name);
+	}
+
+	/**
+	 * 
+	 * @param satellite
+	 * @return all acquisition windows of the satellite which are still in the problem (list shared, must not be modified)
+	 */
+	public List<AcquisitionWindow> getAcquisitionWindows(Satellite satellite){
+		buildBySatellite();
+		return acquisitionWindowsBySatellite.get(satellite.idx);
+	}
+
+	/**
+	 * 
+	 * @param satellite
+	 * @return all recorded acquisitions of the satellite which are still in the problem (list shared, must not be modified)
+	 */
+	public List<RecordedAcquisition> getRecordedAcquisitions(Satellite satellite){
+		buildBySatellite();
+		return recordedAcquisitionsBySatellite.get(satellite.idx);
+	}
+
+	/**
+	 * 
+	 * @param satellite
+	 * @return all download windows of the satellite which are still in the problem (list shared, must not be modified)
+	 */
+	public List<DownloadWindow> getDownloadWindows(Satellite satellite){
+		buildBySatellite();
+		return downloadWindowsBySatellite.get(satellite.idx);
+	}
+
+	/**
+	 * 
+	 * @return the columnar view of all acquisition windows which are still in the problem (shared, must not be modified)
+	 */
+	public synchronized AcquisitionWindowStore getAcquisitionWindowStore(){
+		if(acquisitionWindowStore == null || acquisitionWindowStore.version != version || acquisitionWindowStore.satelliteStart.length != satellites.size()+1)
+			acquisitionWindowStore = new AcquisitionWindowStore(this);
+		return acquisitionWindowStore;
+	}
+
+	/**
+	 * 
+	 * @return the interval index over the acquisition windows of each satellite (shared, must not be modified)
+	 */
+	public synchronized AcquisitionWindowIndex getAcquisitionWindowIndex(){
+		AcquisitionWindowStore store = getAcquisitionWindowStore();
+		if(acquisitionWindowIndex == null || acquisitionWindowIndex.store != store)
+			acquisitionWindowIndex = new AcquisitionWindowIndex(store);
+		return acquisitionWindowIndex;
+	}
+
+	/**
+	 * 
+	 * @return the graph of the feasible successions between acquisition windows (shared, must not be modified)
+	 */
+	public synchronized SuccessorGraph getSuccessorGraph(){
+		AcquisitionWindowStore store = getAcquisitionWindowStore();
+		if(successorGraph == null || successorGraph.store != store)
+			successorGraph = new SuccessorGraph(store);
+		return successorGraph;
+	}
+
+	/**
+	 * 
+	 * @return the index of the download windows per satellite and per (satellite, station) pair (shared, must not be modified)
+	 */
+	public synchronized DownloadWindowIndex getDownloadWindowIndex(){
+		if(downloadWindowIndex == null || downloadWindowIndex.version != version)
+			downloadWindowIndex = new DownloadWindowIndex(this);
+		return downloadWindowIndex;
+	}
+
+	/**
+	 * Build the per-satellite lists in a single pass over the planning data, if they are outdated
+	 */
+	synchronized void buildBySatellite(){
+		if(bySatelliteVersion == version && acquisitionWindowsBySatellite.size() == satellites.size())
+			return;
+		acquisitionWindowsBySatellite = new ArrayList<List<AcquisitionWindow>>();
+		recordedAcquisitionsBySatellite = new ArrayList<List<RecordedAcquisition>>();
+		downloadWindowsBySatellite = new ArrayList<List<DownloadWindow>>();
+		for(int i=0;i<satellites.size();i++){
+			acquisitionWindowsBySatellite.add(new ArrayList<AcquisitionWindow>());
+			recordedAcquisitionsBySatellite.add(new ArrayList<RecordedAcquisition>());
+			downloadWindowsBySatellite.add(new ArrayList<DownloadWindow>());
+		}
+		for(CandidateAcquisition a : candidateAcquisitions){
+			for(AcquisitionWindow w : a.acquisitionWindows){
+				if(!w.removed)
+					acquisitionWindowsBySatellite.get(w.satellite.idx).add(w);
+			}
+		}
+		for(RecordedAcquisition a : recordedAcquisitions){
+			if(!a.removed)
+				recordedAcquisitionsBySatellite.get(a.satellite.idx).add(a);
+		}
+		for(DownloadWindow w : downloadWindows){
+			if(!w.removed)
+				downloadWindowsBySatellite.get(w.satellite.idx).add(w);
+		}
+		bySatelliteVersion = version;
+	}
+
+	// MODIFICATIONS OF PLANNING DATA (indices of existing elements are never changed: removed elements are kept as tombstones)
+
+	/**
+	 * Remove a candidate acquisition, together with all its acquisition windows
+	 * @param i index of the candidate acquisition
+	 */
+	public void removeCandidateAcquisition(int i){
+		CandidateAcquisition a = candidateAcquisitions.get(i);
+		a.removed = true;
+		for(AcquisitionWindow w : a.acquisitionWindows)
+			w.removed = true;
+		version++;
+	}
+
+	/**
+	 * Replace a candidate acquisition by a new one with the same index and name, whose acquisition windows are copies of the previous ones
+	 * @param i index of the candidate acquisition
+	 * @param user new user of the acquisition
+	 * @param priority new priority of the acquisition
+	 * @return the new candidate acquisition
+	 */
+	public CandidateAcquisition replaceCandidateAcquisition(int i, User user, int priority){
+		CandidateAcquisition previous = candidateAcquisitions.get(i);
+		CandidateAcquisition a = new CandidateAcquisition(previous.name, user, priority, i);
+		a.removed = previous.removed;
+		for(AcquisitionWindow w : previous.acquisitionWindows){
+			a.addAcqOpportunity(w.satellite, w.earliestStart, w.latestStart, w.duration, w.zenithAngle, w.rollAngle, w.cloudProba, w.volume);
+			a.acquisitionWindows.get(w.idx).removed = w.removed;
+		}
+		candidateAcquisitions.set(i, a);
+		version++;
+		return a;
+	}
+
+	/**
+	 * Add an acquisition window to a candidate acquisition of the problem
+	 * @return the acquisition window created
+	 */
+	public AcquisitionWindow addAcquisitionWindow(CandidateAcquisition a, Satellite satellite, double earliestStart, double latestStart, double duration, double zenithAngle, double rollAngle, double cloudProba, long volume){
+		a.addAcqOpportunity(satellite, earliestStart, latestStart, duration, zenithAngle, rollAngle, cloudProba, volume);
+		version++;
+		return a.acquisitionWindows.get(a.acquisitionWindows.size()-1);
+	}
+
+	/**
+	 * Remove an acquisition window from a candidate acquisition
+	 * @param a candidate acquisition
+	 * @param i index of the window in the list of windows of a
+	 */
+	public void removeAcquisitionWindow(CandidateAcquisition a, int i){
+		a.acquisitionWindows.get(i).removed = true;
+		version++;
+	}
+
+	/**
+	 * Replace an acquisition window of a candidate acquisition by a new one with the same index
+	 * @return the acquisition window created
+	 */
+	public AcquisitionWindow replaceAcquisitionWindow(CandidateAcquisition a, int i, Satellite satellite, double earliestStart, double latestStart, double duration, double zenithAngle, double rollAngle, double cloudProba, long volume){
+		AcquisitionWindow w = new AcquisitionWindow(i, a, satellite, earliestStart, latestStart, duration, zenithAngle, rollAngle, cloudProba, volume);
+		a.acquisitionWindows.set(i, w);
+		version++;
+		return w;
+	}
+
+	/**
+	 * Remove a recorded acquisition (for instance because it has been downloaded)
+	 * @param i index of the recorded acquisition
+	 */
+	public void removeRecordedAcquisition(int i){
+		recordedAcquisitions.get(i).removed = true;
+		version++;
+	}
+
+	/**
+	 * Replace a recorded acquisition by a new one with the same index and name
+	 * @return the recorded acquisition created
+	 */
+	public RecordedAcquisition replaceRecordedAcquisition(int i, User user, int priority, Satellite satellite, double acquisitionTime, long volume){
+		RecordedAcquisition a = new RecordedAcquisition(recordedAcquisitions.get(i).name, user, priority, i, satellite, acquisitionTime, volume);
+		recordedAcquisitions.set(i, a);
+		version++;
+		return a;
+	}
+
+	/**
+	 * Remove (cancel) a download window
+	 * @param i index of the download window
+	 */
+	public void removeDownloadWindow(int i){
+		downloadWindows.get(i).removed = true;
+		version++;
+	}
+
+	/**
+	 * Replace a download window by a new one with the same index
+	 * @return the download window created
+	 */
+	public DownloadWindow replaceDownloadWindow(int i, Satellite satellite, Station station, double start, double end){
+		DownloadWindow w = new DownloadWindow(satellite, station, start, end, i);
+		downloadWindows.set(i, w);
+		version++;
+		return w;
+	}
+
 	/**
 	 * 
 	 * @param a1 
@@ -163,7 +467,17 @@ public class PlanningProblem {
 	 * @return an estimation of the minimum transition time between two acquisitions realized in given windows 
 	 */
 	public double getTransitionTime(AcquisitionWindow a1, AcquisitionWindow a2){
-		return Math.abs(a1.rollAngle - a2.rollAngle) / Params.meanRotationSpeed;		
+		return getTransitionTime(a1.rollAngle, a2.rollAngle);
+	}
+
+	/**
+	 * 
+	 * @param rollAngle1
+	 * @param rollAngle2
+	 * @return an estimation of the minimum transition time between two acquisitions realized with given roll angles
+	 */
+	public static double getTransitionTime(double rollAngle1, double rollAngle2){
+		return Math.abs(rollAngle1 - rollAngle2) / Params.meanRotationSpeed;
 	}
 	
 	public double getTransitionCost(AcquisitionWindow a1, AcquisitionWindow a2){
@@ -171,14 +485,13 @@ public class PlanningProblem {
 	}
 	
 	
+	/**
+	 * 
+	 * @return the maximum transition time between two acquisition windows of the problem (transition times only depend
+	 * on roll angles, so that this maximum is obtained between the windows with the lowest and highest roll angles)
+	 */
 	public double getMaxTransitionTime(){
-		double maxtime = 0;
-		for(int i = 0; i <  candidateAcquisitions.size(); i++ ) {
-			for(int j = 0; j <  candidateAcquisitions.size(); j++ ) {
-				                                                                                                                                                                              
-			}
-		}
-		return maxtime;	
+		return getAcquisitionWindowStore().maxTransitionTime;
 	}
 
 	@Override
@@ -1,15 +1,34 @@
 package problem;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
 
@@ -21,6 +40,19 @@ import javax.xml.stream.events.XMLEvent;
  */
 public class ProblemParserXML {
 
+	/** Strategies available for reading planning data files */
+	public enum Mode {
+		/** XMLEventReader based parsing (one event object per XML construct) */
+		EVENT,
+		/** XMLStreamReader based parsing (attributes read by index on the cursor, no event objects) */
+		CURSOR,
+		/** Cursor parsing of the sections of the file, and of chunks of candidate acquisitions, on several threads */
+		PARALLEL
+	}
+
+	/** Strategy used by read() for the planning data file */
+	final Mode mode;
+	/** Users, satellites and stations by name (registries of the problem being read) */
 	Map<String, User> users;
 	Map<String, Satellite> satellites;
 	Map<String, Station> stations;
@@ -28,20 +60,42 @@ public class ProblemParserXML {
 	double horizonEnd;
 	
 	public ProblemParserXML(){
-		users = new HashMap<String,User>();
-		satellites = new HashMap<String,Satellite>();
-		stations = new HashMap<String,Station>();	
+		this(Mode.EVENT);
+	}
+
+	/**
+	 * Create a parser reading planning data with the given strategy
+	 * @param mode
+	 */
+	public ProblemParserXML(Mode mode){
+		this.mode = mode;
+	}
+
+	/**
+	 * Use the registries of a problem for resolving the names of users, satellites and stations
+	 * @param pb
+	 */
+	void useRegistries(PlanningProblem pb){
+		users = pb.userRegistry;
+		satellites = pb.satelliteRegistry;
+		stations = pb.stationRegistry;
 	}
 	
-	public PlanningProblem read(String filenameSystemData, String filenamePlanningData) throws FileNotFoundException, XMLStreamException, FactoryConfigurationError{
+	public PlanningProblem read(String filenameSystemData, String filenamePlanningData) throws IOException, XMLStreamException, FactoryConfigurationError{
 		PlanningProblem pb = new PlanningProblem();
 
 		readSystemData(pb, filenameSystemData);
-		readPlanningData(pb, filenamePlanningData);
+		if(mode == Mode.PARALLEL)
+			readPlanningDataParallel(pb, filenamePlanningData);
+		else if(mode == Mode.CURSOR)
+			readPlanningDataCursor(pb, filenamePlanningData);
+		else
+			readPlanningData(pb, filenamePlanningData);
 		return pb;
 	}
 	
 	public void readSystemData(PlanningProblem pb, String filenameSystemData) throws XMLStreamException, FileNotFoundException, FactoryConfigurationError{
+		useRegistries(pb);
 		// Create an XML reader
 		XMLEventReader eventReader = XMLInputFactory.newInstance().createXMLEventReader(new FileInputStream(filenameSystemData));
 		QName nameAttibute = new QName("name");		
@@ -56,18 +110,15 @@ public class ProblemParserXML {
 				if(eventName.equals("user")) {
 					String name = sevent.getAttributeByName(nameAttibute).getValue();
 					double quota = Double.parseDouble(sevent.getAttributeByName(quotaAttibute).getValue());
-					User user = pb.addUser(name,quota);
-					users.put(name, user);
+					pb.addUser(name,quota);
 				}
 				else if(eventName.equals("satellite")) {
 					String name = sevent.getAttributeByName(nameAttibute).getValue();
-					Satellite satellite = pb.addSatellite(name);
-					satellites.put(name, satellite);
+					pb.addSatellite(name);
 				}
 				else if(eventName.equals("station")){
 					String name = sevent.getAttributeByName(nameAttibute).getValue();
-					Station station = pb.addStation(name);
-					stations.put(name, station);
+					pb.addStation(name);
 				}				
 			}
 		}
@@ -75,6 +126,7 @@ public class ProblemParserXML {
 	}
 
 	public void readPlanningData(PlanningProblem pb, String filenamePlanningData) throws XMLStreamException, FileNotFoundException, FactoryConfigurationError{
+		useRegistries(pb);
 		// Create an XML reader
 		XMLEventReader eventReader = XMLInputFactory.newInstance().createXMLEventReader(new FileInputStream(filenamePlanningData));
 		QName nameAttibute = new QName("name");
@@ -181,5 +233,555 @@ public class ProblemParserXML {
 		eventReader.close();
 	}
 
-}
 
+	/**
+	 * Read planning data with the StAX cursor API. Attributes are read by index on the
+	 * current element, without building StartElement/Attribute objects nor QName lookups,
+	 * and numbers are parsed directly from the attribute characters. The problem built is
+	 * the same as the one built by readPlanningData.
+	 * @param pb
+	 * @param filenamePlanningData
+	 * @throws XMLStreamException
+	 * @throws FileNotFoundException
+	 * @throws FactoryConfigurationError
+	 */
+	public void readPlanningDataCursor(PlanningProblem pb, String filenamePlanningData) throws XMLStreamException, FileNotFoundException, FactoryConfigurationError{
+		useRegistries(pb);
+		XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(new BufferedInputStream(new FileInputStream(filenamePlanningData), 1 << 16));
+		CandidateAcquisition candidateAcquisition = null;
+		while(reader.hasNext()){
+			if(reader.next() != XMLStreamConstants.START_ELEMENT)
+				continue;
+			String elementName = reader.getLocalName();
+			if(elementName.equals("acquisitionOpportunity")){
+				if(candidateAcquisition != null)
+					readAcquisitionOpportunity(reader, candidateAcquisition);
+			}
+			else if(elementName.equals("candidateAcquisition")){
+				candidateAcquisition = readCandidateAcquisition(reader, pb.candidateAcquisitions.size());
+				pb.addCandidateAcquisition(candidateAcquisition);
+			}
+			else if(elementName.equals("recordedAcquisition")){
+				pb.addRecordedAcquisition(readRecordedAcquisition(reader, pb.recordedAcquisitions.size()));
+			}
+			else if(elementName.equals("downloadWindow")){
+				DownloadWindow downloadWindow = readDownloadWindow(reader, pb.downloadWindows.size());
+				if(downloadWindow != null)
+					pb.addDownloadWindow(downloadWindow);
+			}
+			else if(elementName.equals("horizon")){
+				readHorizon(reader, pb);
+			}
+		}
+		reader.close();
+	}
+
+	void readHorizon(XMLStreamReader reader, PlanningProblem pb){
+		for(int i=0;i<reader.getAttributeCount();i++){
+			String attributeName = reader.getAttributeLocalName(i);
+			if(attributeName.equals("start"))
+				horizonStart = parseDouble(reader.getAttributeValue(i));
+			else if(attributeName.equals("end"))
+				horizonEnd = parseDouble(reader.getAttributeValue(i));
+		}
+		pb.setHorizon(horizonStart, horizonEnd);
+	}
+
+	CandidateAcquisition readCandidateAcquisition(XMLStreamReader reader, int idx){
+		String requestName = null;
+		int priority = 0;
+		User user = null;
+		for(int i=0;i<reader.getAttributeCount();i++){
+			String attributeName = reader.getAttributeLocalName(i);
+			if(attributeName.equals("name"))
+				requestName = reader.getAttributeValue(i);
+			else if(attributeName.equals("priority"))
+				priority = parseInt(reader.getAttributeValue(i));
+			else if(attributeName.equals("user"))
+				user = users.get(reader.getAttributeValue(i));
+		}
+		return new CandidateAcquisition(requestName, user, priority, idx);
+	}
+
+	void readAcquisitionOpportunity(XMLStreamReader reader, CandidateAcquisition candidateAcquisition){
+		Satellite satellite = null;
+		double earliestStart = 0, latestStart = 0, duration = 0, zenithAngle = 0, rollAngle = 0, cloudProba = 0;
+		long volume = 0;
+		for(int i=0;i<reader.getAttributeCount();i++){
+			String attributeName = reader.getAttributeLocalName(i);
+			switch(attributeName){
+			case "satellite": satellite = satellites.get(reader.getAttributeValue(i)); break;
+			case "earliestStartTime": earliestStart = parseDouble(reader.getAttributeValue(i)); break;
+			case "latestStartTime": latestStart = parseDouble(reader.getAttributeValue(i)); break;
+			case "duration": duration = parseDouble(reader.getAttributeValue(i)); break;
+			case "zenithAngle": zenithAngle = parseDouble(reader.getAttributeValue(i)); break;
+			case "rollAngle": rollAngle = parseDouble(reader.getAttributeValue(i)); break;
+			case "cloudProba": cloudProba = parseDouble(reader.getAttributeValue(i)); break;
+			case "volume": volume = parseLong(reader.getAttributeValue(i)); break;
+			default: break;
+			}
+		}
+		earliestStart = Math.max(earliestStart, horizonStart);
+		latestStart = Math.min(latestStart, horizonEnd);
+		if(earliestStart <= latestStart){
+			candidateAcquisition.addAcqOpportunity(satellite, earliestStart, latestStart, duration, zenithAngle, rollAngle, cloudProba, volume);
+		}
+	}
+
+	RecordedAcquisition readRecordedAcquisition(XMLStreamReader reader, int idx){
+		Satellite satellite = null;
+		User user = null;
+		int acquisitionId = 0, priority = 0;
+		double acquisitionTime = 0;
+		long volume = 0;
+		for(int i=0;i<reader.getAttributeCount();i++){
+			String attributeName = reader.getAttributeLocalName(i);
+			switch(attributeName){
+			case "satellite": satellite = satellites.get(reader.getAttributeValue(i)); break;
+			case "user": user = users.get(reader.getAttributeValue(i)); break;
+			case "id": acquisitionId = parseInt(reader.getAttributeValue(i)); break;
+			case "priority": priority = parseInt(reader.getAttributeValue(i)); break;
+			case "acquisitionTime": acquisitionTime = parseDouble(reader.getAttributeValue(i)); break;
+			case "volume": volume = parseLong(reader.getAttributeValue(i)); break;
+			default: break;
+			}
+		}
+		return new RecordedAcquisition("REC_"+acquisitionId,user,priority,idx,satellite,acquisitionTime,volume);
+	}
+
+	DownloadWindow readDownloadWindow(XMLStreamReader reader, int idx){
+		Satellite satellite = null;
+		Station station = null;
+		double startTime = 0, endTime = 0;
+		for(int i=0;i<reader.getAttributeCount();i++){
+			String attributeName = reader.getAttributeLocalName(i);
+			switch(attributeName){
+			case "satellite": satellite = satellites.get(reader.getAttributeValue(i)); break;
+			case "station": station = stations.get(reader.getAttributeValue(i)); break;
+			case "startTime": startTime = parseDouble(reader.getAttributeValue(i)); break;
+			case "endTime": endTime = parseDouble(reader.getAttributeValue(i)); break;
+			default: break;
+			}
+		}
+		startTime = Math.max(startTime, horizonStart);
+		endTime = Math.min(endTime, horizonEnd);
+		if(startTime > endTime)
+			return null;
+		return new DownloadWindow(satellite,station,startTime,endTime,idx);
+	}
+
+	/**
+	 * Read planning data using several threads. The file is memory-mapped and pre-scanned for the byte
+	 * offsets of its sections; the candidateAcquisitions section is cut into chunks of candidateAcquisition
+	 * elements, and chunks, recordedAcquisitions and downloadWindows are parsed concurrently with the
+	 * cursor API. Results are merged in file order, so that indices are the ones given by a sequential read.
+	 * The file is assumed to be encoded in UTF-8 (or ASCII).
+	 * @param pb
+	 * @param filenamePlanningData
+	 * @throws XMLStreamException
+	 * @throws IOException
+	 * @throws FactoryConfigurationError
+	 */
+	public void readPlanningDataParallel(PlanningProblem pb, String filenamePlanningData) throws XMLStreamException, IOException, FactoryConfigurationError{
+		useRegistries(pb);
+		final ByteBuffer data;
+		try(RandomAccessFile file = new RandomAccessFile(filenamePlanningData, "r"); FileChannel channel = file.getChannel()){
+			if(channel.size() > Integer.MAX_VALUE){ // not mappable in one buffer
+				readPlanningDataCursor(pb, filenamePlanningData);
+				return;
+			}
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		int size = data.limit();
+
+		// pre-scan: the candidate section is located first, the other (small) sections are searched outside of it
+		int candidatesStart = indexOf(data, CANDIDATES_OPEN, 0, size);
+		int candidatesEnd = candidatesStart < 0 ? -1 : lastIndexOf(data, CANDIDATES_CLOSE, candidatesStart, size);
+		int outsideStart = candidatesEnd < 0 ? 0 : candidatesEnd;
+		int[] horizon = findElement(data, HORIZON_OPEN, null, candidatesStart, outsideStart, size);
+		int[] recorded = findElement(data, RECORDED_OPEN, RECORDED_CLOSE, candidatesStart, outsideStart, size);
+		int[] downloads = findElement(data, DOWNLOADS_OPEN, DOWNLOADS_CLOSE, candidatesStart, outsideStart, size);
+
+		// the horizon must be known before clipping windows
+		if(horizon != null){
+			XMLStreamReader reader = createChunkReader(data, horizon[0], horizon[1]);
+			while(reader.hasNext()){
+				if(reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("horizon"))
+					readHorizon(reader, pb);
+			}
+			reader.close();
+		}
+
+		// chunks of candidate acquisitions, cut at candidateAcquisition start tags
+		List<Integer> bounds = new ArrayList<Integer>();
+		if(candidatesStart >= 0 && candidatesEnd >= 0){
+			int contentStart = indexOf(data, (byte) '>', candidatesStart, candidatesEnd) + 1;
+			int first = nextCandidateTag(data, contentStart, candidatesEnd);
+			if(first >= 0){
+				int nThreads = Runtime.getRuntime().availableProcessors();
+				int chunkSize = Math.max(MIN_CHUNK_SIZE, (candidatesEnd - first) / (4*nThreads) + 1);
+				bounds.add(first);
+				int bound = first;
+				while(true){
+					bound = nextCandidateTag(data, Math.min(bound + chunkSize, candidatesEnd), candidatesEnd);
+					if(bound < 0)
+						break;
+					bounds.add(bound);
+				}
+				bounds.add(candidatesEnd);
+			}
+		}
+		final int nChunks = Math.max(0, bounds.size() - 1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try{
+			// first wave: number of candidate acquisitions in each chunk, which gives the index of its first acquisition
+			List<Future<Integer>> counts = new ArrayList<Future<Integer>>();
+			for(int c=0;c<nChunks;c++){
+				final int from = bounds.get(c), to = bounds.get(c+1);
+				counts.add(executor.submit(new Callable<Integer>(){
+					@Override
+					public Integer call() {
+						int n = 0;
+						for(int position=nextCandidateTag(data, from, to);position>=0;position=nextCandidateTag(data, position+1, to))
+							n++;
+						return n;
+					}
+				}));
+			}
+			int[] firstIdx = new int[nChunks];
+			for(int c=1;c<nChunks;c++)
+				firstIdx[c] = firstIdx[c-1] + counts.get(c-1).get();
+
+			// second wave: all sections and chunks parsed concurrently
+			List<Future<List<CandidateAcquisition>>> chunks = new ArrayList<Future<List<CandidateAcquisition>>>();
+			for(int c=0;c<nChunks;c++){
+				final int from = bounds.get(c), to = bounds.get(c+1), idx = firstIdx[c];
+				chunks.add(executor.submit(new Callable<List<CandidateAcquisition>>(){
+					@Override
+					public List<CandidateAcquisition> call() throws XMLStreamException {
+						return readCandidateAcquisitions(data, from, to, idx);
+					}
+				}));
+			}
+			Future<List<RecordedAcquisition>> recordedAcquisitions = null;
+			if(recorded != null){
+				final int from = recorded[0], to = recorded[1];
+				recordedAcquisitions = executor.submit(new Callable<List<RecordedAcquisition>>(){
+					@Override
+					public List<RecordedAcquisition> call() throws XMLStreamException {
+						List<RecordedAcquisition> acquisitions = new ArrayList<RecordedAcquisition>();
+						XMLStreamReader reader = createChunkReader(data, from, to);
+						while(reader.hasNext()){
+							if(reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("recordedAcquisition"))
+								acquisitions.add(readRecordedAcquisition(reader, acquisitions.size()));
+						}
+						reader.close();
+						return acquisitions;
+					}
+				});
+			}
+			Future<List<DownloadWindow>> downloadWindows = null;
+			if(downloads != null){
+				final int from = downloads[0], to = downloads[1];
+				downloadWindows = executor.submit(new Callable<List<DownloadWindow>>(){
+					@Override
+					public List<DownloadWindow> call() throws XMLStreamException {
+						List<DownloadWindow> windows = new ArrayList<DownloadWindow>();
+						XMLStreamReader reader = createChunkReader(data, from, to);
+						while(reader.hasNext()){
+							if(reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("downloadWindow")){
+								DownloadWindow window = readDownloadWindow(reader, windows.size());
+								if(window != null)
+									windows.add(window);
+							}
+						}
+						reader.close();
+						return windows;
+					}
+				});
+			}
+
+			// deterministic merge, in file order
+			for(Future<List<CandidateAcquisition>> chunk : chunks){
+				for(CandidateAcquisition a : chunk.get())
+					pb.addCandidateAcquisition(a);
+			}
+			if(recordedAcquisitions != null){
+				for(RecordedAcquisition a : recordedAcquisitions.get())
+					pb.addRecordedAcquisition(a);
+			}
+			if(downloadWindows != null){
+				for(DownloadWindow w : downloadWindows.get())
+					pb.addDownloadWindow(w);
+			}
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new XMLStreamException("Interrupted while reading " + filenamePlanningData, e);
+		}
+		catch(ExecutionException e){
+			if(e.getCause() instanceof XMLStreamException)
+				throw (XMLStreamException) e.getCause();
+			throw new XMLStreamException("Error while reading " + filenamePlanningData, e.getCause());
+		}
+		finally{
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * 
+	 * @param data
+	 * @param from position of the first candidateAcquisition start tag of the chunk
+	 * @param to end of the chunk (excluded)
+	 * @param firstIdx index of the first candidate acquisition of the chunk
+	 * @return the candidate acquisitions of the chunk, with their acquisition windows
+	 * @throws XMLStreamException
+	 */
+	List<CandidateAcquisition> readCandidateAcquisitions(ByteBuffer data, int from, int to, int firstIdx) throws XMLStreamException{
+		List<CandidateAcquisition> acquisitions = new ArrayList<CandidateAcquisition>();
+		CandidateAcquisition candidateAcquisition = null;
+		XMLStreamReader reader = createChunkReader(data, from, to);
+		while(reader.hasNext()){
+			if(reader.next() != XMLStreamConstants.START_ELEMENT)
+				continue;
+			String elementName = reader.getLocalName();
+			if(elementName.equals("acquisitionOpportunity")){
+				if(candidateAcquisition != null)
+					readAcquisitionOpportunity(reader, candidateAcquisition);
+			}
+			else if(elementName.equals("candidateAcquisition")){
+				candidateAcquisition = readCandidateAcquisition(reader, firstIdx + acquisitions.size());
+				acquisitions.add(candidateAcquisition);
+			}
+		}
+		reader.close();
+		return acquisitions;
+	}
+
+	/**
+	 * 
+	 * @param data
+	 * @param from
+	 * @param to
+	 * @return a cursor reader over bytes [from,to) of data, wrapped into a single root element
+	 * @throws XMLStreamException
+	 */
+	static XMLStreamReader createChunkReader(ByteBuffer data, int from, int to) throws XMLStreamException{
+		ByteBuffer slice = data.duplicate();
+		slice.limit(to).position(from);
+		InputStream in = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+				new ByteArrayInputStream(CHUNK_OPEN), new ByteBufferInputStream(slice.slice()), new ByteArrayInputStream(CHUNK_CLOSE))));
+		return XMLInputFactory.newInstance().createXMLStreamReader(in, "UTF-8");
+	}
+
+	/**
+	 * 
+	 * @return the position of the first candidateAcquisition start tag in [from,to), -1 if none
+	 */
+	static int nextCandidateTag(ByteBuffer data, int from, int to){
+		int position = from;
+		while(true){
+			position = indexOf(data, CANDIDATE_OPEN, position, to);
+			if(position < 0)
+				return -1;
+			int next = position + CANDIDATE_OPEN.length;
+			if(next < to){
+				byte b = data.get(next);
+				if(b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\n' || b == '\r')
+					return position;
+			}
+			position = next; // candidateAcquisitions or another element sharing the prefix
+		}
+	}
+
+	/**
+	 * 
+	 * @return [start,end) of the element (or of the first start tag only if close is null) searched before 
+	 * excludedStart or after excludedEnd, null if the element is not found
+	 */
+	static int[] findElement(ByteBuffer data, byte[] open, byte[] close, int excludedStart, int excludedEnd, int size){
+		int start = excludedStart < 0 ? indexOf(data, open, 0, size) : indexOf(data, open, 0, excludedStart);
+		if(start < 0 && excludedStart >= 0)
+			start = indexOf(data, open, excludedEnd, size);
+		if(start < 0)
+			return null;
+		int tagEnd = indexOf(data, (byte) '>', start, size) + 1;
+		if(close == null || data.get(tagEnd - 2) == '/') // start tag only, or empty element
+			return new int[]{start, tagEnd};
+		int end = indexOf(data, close, tagEnd, size);
+		return end < 0 ? null : new int[]{start, end + close.length};
+	}
+
+	static int indexOf(ByteBuffer data, byte b, int from, int to){
+		for(int i=from;i<to;i++){
+			if(data.get(i) == b)
+				return i;
+		}
+		return -1;
+	}
+
+	static int indexOf(ByteBuffer data, byte[] pattern, int from, int to){
+		byte first = pattern[0];
+		int last = to - pattern.length;
+		search:
+		for(int i=from;i<=last;i++){
+			if(data.get(i) != first)
+				continue;
+			for(int j=1;j<pattern.length;j++){
+				if(data.get(i+j) != pattern[j])
+					continue search;
+			}
+			return i;
+		}
+		return -1;
+	}
+
+	static int lastIndexOf(ByteBuffer data, byte[] pattern, int from, int to){
+		search:
+		for(int i=to-pattern.length;i>=from;i--){
+			for(int j=0;j<pattern.length;j++){
+				if(data.get(i+j) != pattern[j])
+					continue search;
+			}
+			return i;
+		}
+		return -1;
+	}
+
+	/** Input stream reading the remaining bytes of a buffer */
+	static class ByteBufferInputStream extends InputStream {
+
+		final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer){
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if(!buffer.hasRemaining())
+				return -1;
+			len = Math.min(len, buffer.remaining());
+			buffer.get(b, off, len);
+			return len;
+		}
+	}
+
+	/** Minimum size (in bytes) of the chunks of candidate acquisitions parsed in parallel */
+	final static int MIN_CHUNK_SIZE = 1 << 20;
+	final static byte[] CHUNK_OPEN = "<chunk>".getBytes(StandardCharsets.US_ASCII);
+	final static byte[] CHUNK_CLOSE = "</chunk>".getBytes(StandardCharsets.US_ASCII);
+	final static byte[] HORIZON_OPEN = "<horizon".getBytes(StandardCharsets.US_ASCII);
+	final static byte[] CANDIDATES_OPEN = "<candidateAcquisitions".getBytes(StandardCharsets.US_ASCII);
+	final static byte[] CANDIDATES_CLOSE = "</candidateAcquisitions".getBytes(StandardCharsets.US_ASCII);
+	final static byte[] CANDIDATE_OPEN = "<candidateAcquisition".getBytes(StandardCharsets.US_ASCII);
+	final static byte[] RECORDED_OPEN = "<recordedAcquisitions".getBytes(StandardCharsets.US_ASCII);
+	final static byte[] RECORDED_CLOSE = "</recordedAcquisitions>".getBytes(StandardCharsets.US_ASCII);
+	final static byte[] DOWNLOADS_OPEN = "<downloadWindows".getBytes(StandardCharsets.US_ASCII);
+	final static byte[] DOWNLOADS_CLOSE = "</downloadWindows>".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Parse an integer value directly from its characters (no intermediate String nor boxing). Values out of the range
+	 * of long are rejected, as by Long.parseLong
+	 * @param s
+	 * @return the value parsed
+	 */
+	static long parseLong(CharSequence s){
+		int n = s.length();
+		int i = 0;
+		while(i < n && s.charAt(i) <= ' ') i++;
+		while(n > i && s.charAt(n-1) <= ' ') n--;
+		boolean negative = false;
+		if(i < n && (s.charAt(i) == '-' || s.charAt(i) == '+')){
+			negative = s.charAt(i) == '-';
+			i++;
+		}
+		if(i == n)
+			throw new NumberFormatException("Empty integer value: \"" + s + "\"");
+		// accumulated with the sign of the result, so that Long.MIN_VALUE is accepted
+		long value = 0;
+		try {
+			for(;i<n;i++){
+				int digit = s.charAt(i) - '0';
+				if(digit < 0 || digit > 9)
+					return Long.parseLong(s.toString().trim()); // other characters: rely on the JDK
+				value = Math.addExact(Math.multiplyExact(value, 10), negative ? -digit : digit);
+			}
+		} catch(ArithmeticException e){
+			throw new NumberFormatException("Integer value out of range: \"" + s + "\"");
+		}
+		return value;
+	}
+
+	/**
+	 * Parse an int value directly from its characters
+	 * @param s
+	 * @return the value parsed
+	 */
+	static int parseInt(CharSequence s){
+		long value = parseLong(s);
+		try {
+			return Math.toIntExact(value);
+		} catch(ArithmeticException e){
+			throw new NumberFormatException("Integer value out of range: \"" + s + "\"");
+		}
+	}
+
+	/**
+	 * Parse a floating point value directly from its characters. Plain decimals with at most
+	 * 15 significant digits and a power of ten exactly representable are converted with a single
+	 * correctly rounded operation; any other form is delegated to Double.parseDouble, so that the
+	 * value obtained is always the one that Double.parseDouble would return.
+	 * @param s
+	 * @return the value parsed
+	 */
+	static double parseDouble(CharSequence s){
+		int n = s.length();
+		int i = 0;
+		while(i < n && s.charAt(i) <= ' ') i++;
+		while(n > i && s.charAt(n-1) <= ' ') n--;
+		int start = i;
+		boolean negative = false;
+		if(i < n && (s.charAt(i) == '-' || s.charAt(i) == '+')){
+			negative = s.charAt(i) == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int nDigits = 0;
+		int nDecimals = 0;
+		boolean dot = false;
+		for(;i<n;i++){
+			char c = s.charAt(i);
+			if(c >= '0' && c <= '9'){
+				if(mantissa != 0 || c != '0')
+					nDigits++;
+				mantissa = 10*mantissa + (c - '0');
+				if(dot)
+					nDecimals++;
+			}
+			else if(c == '.' && !dot)
+				dot = true;
+			else
+				break;
+		}
+		if(i != n || nDigits > 15 || nDecimals >= POWERS_OF_TEN.length || i == start || (i == start + 1 && !(s.charAt(start) >= '0' && s.charAt(start) <= '9')))
+			return Double.parseDouble(s.subSequence(start, n).toString());
+		// mantissa < 10^15 < 2^53 and 10^nDecimals <= 10^22 are both exact: one rounding only
+		double value = nDecimals == 0 ? mantissa : mantissa / POWERS_OF_TEN[nDecimals];
+		return negative ? -value : value;
+	}
+
+	/** Powers of ten exactly representable as doubles */
+	static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+}
@@ -0,0 +1,260 @@
+package problem;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLStreamException;
+
+import params.Params;
+
+/**
+ * Compact binary snapshot of a parsed planning problem. A snapshot is keyed by a hash of
+ * the system and planning XML files it was built from, and is loaded through a memory map,
+ * which avoids a full XML pass when the same scenario is used again.
+ *
+ */
+public class ProblemSnapshot {
+
+	/** Magic number found at the beginning of each snapshot file */
+	final static int MAGIC = 0x50505342; // "PPSB"
+	/** Version of the snapshot format (snapshots of another version are rebuilt) */
+	final static int VERSION = 1;
+
+	/**
+	 * Read a planning problem, from its snapshot if an up-to-date one exists in Params.snapshotDirectory,
+	 * from the XML files otherwise (in which case the snapshot is (re)built). Dominated acquisition windows are then removed
+	 * if Params.pruneDominatedWindows is set (see DominancePruning).
+	 * @param filenameSystemData
+	 * @param filenamePlanningData
+	 * @return the planning problem
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 * @throws FactoryConfigurationError
+	 */
+	public static PlanningProblem read(String filenameSystemData, String filenamePlanningData) throws IOException, XMLStreamException, FactoryConfigurationError{
+		long key = hash(filenameSystemData, filenamePlanningData);
+		String snapshotFilename = getSnapshotFilename(filenamePlanningData, key);
+		PlanningProblem pb = load(snapshotFilename, key);
+		if(pb == null){
+			pb = new ProblemParserXML(ProblemParserXML.Mode.CURSOR).read(filenameSystemData, filenamePlanningData);
+			new File(Params.snapshotDirectory).mkdirs();
+			write(pb, key, snapshotFilename);
+		}
+		// the snapshot contains all windows, so that pruning does not depend on how the problem has been read
+		if(Params.pruneDominatedWindows)
+			System.out.println("Dominance pruning: " + DominancePruning.prune(pb) + " dominated acquisition windows removed");
+		return pb;
+	}
+
+	/**
+	 *
+	 * @param filenamePlanningData
+	 * @param key
+	 * @return the name of the snapshot file associated with a planning data file and a key
+	 */
+	public static String getSnapshotFilename(String filenamePlanningData, long key){
+		String name = new File(filenamePlanningData).getName();
+		if(name.endsWith(".xml"))
+			name = name.substring(0, name.length() - 4);
+		return Params.snapshotDirectory + File.separator + name + "_" + String.format("%016x", key) + ".snap";
+	}
+
+	/**
+	 *
+	 * @param filenameSystemData
+	 * @param filenamePlanningData
+	 * @return a 64-bit key built from the CRC32 of both files
+	 * @throws IOException
+	 */
+	public static long hash(String filenameSystemData, String filenamePlanningData) throws IOException{
+		return (crc(filenamePlanningData) << 32) | crc(filenameSystemData);
+	}
+
+	static long crc(String filename) throws IOException{
+		CRC32 crc = new CRC32();
+		try(RandomAccessFile file = new RandomAccessFile(filename, "r"); FileChannel channel = file.getChannel()){
+			long size = channel.size();
+			for(long position=0;position<size;position+=Integer.MAX_VALUE){
+				crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Integer.MAX_VALUE, size - position)));
+			}
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Write the snapshot of a planning problem
+	 * @param pb
+	 * @param key key of the XML data from which pb was read
+	 * @param filename
+	 * @throws IOException
+	 */
+	public static void write(PlanningProblem pb, long key, String filename) throws IOException{
+		// written aside then renamed, so that an interrupted write never leaves a truncated snapshot
+		File tmpFile = new File(filename + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(key);
+
+		// system data
+		out.writeInt(pb.users.size());
+		for(User user : pb.users){
+			writeString(out, user.name);
+			out.writeDouble(user.quota);
+		}
+		out.writeInt(pb.satellites.size());
+		for(Satellite satellite : pb.satellites)
+			writeString(out, satellite.name);
+		out.writeInt(pb.stations.size());
+		for(Station station : pb.stations)
+			writeString(out, station.name);
+
+		// planning data
+		out.writeDouble(pb.horizonStart);
+		out.writeDouble(pb.horizonEnd);
+		out.writeInt(pb.candidateAcquisitions.size());
+		for(CandidateAcquisition a : pb.candidateAcquisitions){
+			writeString(out, a.name);
+			out.writeInt(a.user.idx);
+			out.writeInt(a.priority);
+			out.writeInt(a.acquisitionWindows.size());
+			for(AcquisitionWindow w : a.acquisitionWindows){
+				out.writeInt(w.satellite.idx);
+				out.writeDouble(w.earliestStart);
+				out.writeDouble(w.latestStart);
+				out.writeDouble(w.duration);
+				out.writeDouble(w.zenithAngle);
+				out.writeDouble(w.rollAngle);
+				out.writeDouble(w.cloudProba);
+				out.writeLong(w.volume);
+			}
+		}
+		out.writeInt(pb.recordedAcquisitions.size());
+		for(RecordedAcquisition a : pb.recordedAcquisitions){
+			writeString(out, a.name);
+			out.writeInt(a.user.idx);
+			out.writeInt(a.priority);
+			out.writeInt(a.satellite.idx);
+			out.writeDouble(a.acquisitionTime);
+			out.writeLong(a.volume);
+		}
+		out.writeInt(pb.downloadWindows.size());
+		for(DownloadWindow w : pb.downloadWindows){
+			out.writeInt(w.satellite.idx);
+			out.writeInt(w.station.idx);
+			out.writeDouble(w.start);
+			out.writeDouble(w.end);
+		}
+		out.flush();
+		out.close();
+		File snapshotFile = new File(filename);
+		snapshotFile.delete();
+		if(!tmpFile.renameTo(snapshotFile))
+			throw new IOException("Cannot write snapshot " + filename);
+	}
+
+	/**
+	 * Load a planning problem from a snapshot file
+	 * @param filename
+	 * @param key expected key of the XML data
+	 * @return the planning problem, or null if the snapshot does not exist or does not match the key or the format version
+	 * @throws IOException
+	 */
+	public static PlanningProblem load(String filename, long key) throws IOException{
+		RandomAccessFile file;
+		try{
+			file = new RandomAccessFile(filename, "r");
+		}
+		catch(FileNotFoundException e){
+			return null;
+		}
+		try(FileChannel channel = file.getChannel()){
+			if(channel.size() < 16)
+				return null;
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(in.getInt() != MAGIC || in.getInt() != VERSION || in.getLong() != key)
+				return null;
+			PlanningProblem pb = new PlanningProblem();
+
+			// system data
+			int nUsers = in.getInt();
+			for(int i=0;i<nUsers;i++){
+				String name = readString(in);
+				pb.addUser(name, in.getDouble());
+			}
+			int nSatellites = in.getInt();
+			for(int i=0;i<nSatellites;i++)
+				pb.addSatellite(readString(in));
+			int nStations = in.getInt();
+			for(int i=0;i<nStations;i++)
+				pb.addStation(readString(in));
+
+			// planning data
+			double horizonStart = in.getDouble();
+			pb.setHorizon(horizonStart, in.getDouble());
+			int nCandidateAcquisitions = in.getInt();
+			for(int i=0;i<nCandidateAcquisitions;i++){
+				String name = readString(in);
+				User user = pb.users.get(in.getInt());
+				int priority = in.getInt();
+				CandidateAcquisition a = pb.addCandidateAcquisition(name, user, priority);
+				int nWindows = in.getInt();
+				for(int j=0;j<nWindows;j++){
+					Satellite satellite = pb.satellites.get(in.getInt());
+					double earliestStart = in.getDouble();
+					double latestStart = in.getDouble();
+					double duration = in.getDouble();
+					double zenithAngle = in.getDouble();
+					double rollAngle = in.getDouble();
+					double cloudProba = in.getDouble();
+					long volume = in.getLong();
+					a.addAcqOpportunity(satellite, earliestStart, latestStart, duration, zenithAngle, rollAngle, cloudProba, volume);
+				}
+			}
+			int nRecordedAcquisitions = in.getInt();
+			for(int i=0;i<nRecordedAcquisitions;i++){
+				String name = readString(in);
+				User user = pb.users.get(in.getInt());
+				int priority = in.getInt();
+				Satellite satellite = pb.satellites.get(in.getInt());
+				double acquisitionTime = in.getDouble();
+				long volume = in.getLong();
+				pb.addRecordedAcquisition(i, name, user, priority, satellite, acquisitionTime, volume);
+			}
+			int nDownloadWindows = in.getInt();
+			for(int i=0;i<nDownloadWindows;i++){
+				Satellite satellite = pb.satellites.get(in.getInt());
+				Station station = pb.stations.get(in.getInt());
+				double start = in.getDouble();
+				pb.addDownloadWindow(satellite, station, start, in.getDouble());
+			}
+			return pb;
+		}
+		finally{
+			file.close();
+		}
+	}
+
+	static void writeString(DataOutputStream out, String s) throws IOException{
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(MappedByteBuffer in){
+		byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
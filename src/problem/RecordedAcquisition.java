@@ -31,21 +31,6 @@ public class RecordedAcquisition extends Acquisition {
 		this.volume = volume;
 	}
 
-	@Override
-	public Satellite getSatellite() {
-		return satellite;
-	}
-
-	@Override
-	public double getAcquisitionTime() {
-		return acquisitionTime;
-	}
-
-	@Override
-	public long getVolume() {
-		return volume;
-	}
-	
 	@Override
 	public long getIdx() {
 		return idx;
@@ -9,15 +9,17 @@ public class Satellite {
 
 	/** Name of the satellite */
 	public final String name;
-	
+	/** Index of the satellite in the list of satellites of the problem (dense, from 0) */
 	public final int idx;
+	
 	/**
 	 * Create a satellite
 	 * @param name
+	 * @param idx
 	 */
-	public Satellite(String name){
+	public Satellite(String name, int idx){
 		this.name = name;
-		this.idx = Integer.parseInt(name.substring(name.length() - 1));
+		this.idx = idx;
 	}
 	
 	@Override
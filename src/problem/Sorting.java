@@ -0,0 +1,59 @@
+package problem;
+
+/**
+ * Sorting of elements designated by their index, according to primitive keys (no boxing
+ * and no virtual call on each comparison)
+ *
+ */
+public class Sorting {
+
+	/**
+	 * Sort an array of indices by increasing key (stable sort: indices with the same key keep their relative order)
+	 * @param order indices to sort
+	 * @param keys key of each index (keys[order[i]] is the key of order[i])
+	 */
+	public static void sortByKey(int[] order, double[] keys){
+		int n = order.length;
+		if(n < 2)
+			return;
+		int[] src = order;
+		int[] dst = new int[n];
+		// bottom-up merge sort
+		for(int width=1;width<n;width*=2){
+			for(int lo=0;lo<n;lo+=2*width){
+				int mid = Math.min(lo + width, n), hi = Math.min(lo + 2*width, n);
+				int i = lo, j = mid, k = lo;
+				while(i < mid && j < hi){
+					if(keys[src[j]] < keys[src[i]])
+						dst[k++] = src[j++];
+					else
+						dst[k++] = src[i++];
+				}
+				while(i < mid)
+					dst[k++] = src[i++];
+				while(j < hi)
+					dst[k++] = src[j++];
+			}
+			int[] tmp = src;
+			src = dst;
+			dst = tmp;
+		}
+		if(src != order)
+			System.arraycopy(src, 0, order, 0, n);
+	}
+
+	/**
+	 *
+	 * @param n
+	 * @param keys key of each index in 0..n-1
+	 * @return indices 0..n-1 sorted by increasing key (stable)
+	 */
+	public static int[] sortedByKey(int n, double[] keys){
+		int[] order = new int[n];
+		for(int i=0;i<n;i++)
+			order[i] = i;
+		sortByKey(order, keys);
+		return order;
+	}
+
+}
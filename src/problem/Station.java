@@ -9,13 +9,17 @@ public class Station {
 
 	/** Name of this station */
 	public final String name;
+	/** Index of the station in the list of stations of the problem (dense, from 0) */
+	public final int idx;
 	
 	/**
 	 * Create a ground station
 	 * @param name
+	 * @param idx
 	 */
-	public Station(String name){
+	public Station(String name, int idx){
 		this.name = name;
+		this.idx = idx;
 	}
 		
 	@Override
@@ -0,0 +1,116 @@
+package problem;
+
+import java.util.Arrays;
+
+/**
+ * Graph of the feasible successions between acquisition windows. There is an arc (a1,a2) when a2 can
+ * be the acquisition realized just after a1: both windows concern the same satellite, and
+ * earliestStart(a1) + duration(a1) + transitionTime(a1,a2) < latestStart(a2) (same condition as in the
+ * OPL acquisition models). Windows are designated by their position in the acquisition window store.
+ * Arcs are computed by a sweep over the windows of each satellite sorted by latest start time, so that
+ * only pairs whose latest start time is after the end of a1 are examined, and they are stored in
+ * compressed form (arcs leaving each window are contiguous), so that the size of the graph grows with
+ * the number of feasible pairs instead of the square of the number of windows.
+ *
+ */
+public class SuccessorGraph {
+
+	/** Acquisition windows of the graph */
+	public final AcquisitionWindowStore store;
+	/** Number of arcs */
+	public final int nArcs;
+	/** First arc leaving each window (index: window position), followed by nArcs */
+	public final int[] firstArc;
+	/** Origin of each arc */
+	public final int[] arcFrom;
+	/** Destination of each arc */
+	public final int[] arcTo;
+	/** Transition time associated with each arc */
+	public final double[] arcTransitionTime;
+	/** Position in inArcs of the first arc entering each window, followed by nArcs */
+	public final int[] firstInArc;
+	/** Arcs grouped by destination window */
+	public final int[] inArcs;
+
+	/**
+	 * Build the successor graph of a set of acquisition windows
+	 * @param store
+	 */
+	public SuccessorGraph(AcquisitionWindowStore store){
+		this.store = store;
+		int n = store.nWindows;
+		firstArc = new int[n+1];
+		int[] to = new int[Math.max(16, n)];
+		int nArcs = 0;
+		for(int s=0;s+1<store.satelliteStart.length;s++){
+			int from = store.satelliteStart[s], last = store.satelliteStart[s+1];
+			// windows of the satellite by increasing latest start time
+			int[] byLatestStart = new int[last-from];
+			for(int i=0;i<byLatestStart.length;i++)
+				byLatestStart[i] = from + i;
+			Sorting.sortByKey(byLatestStart, store.latestStart);
+			for(int a1=from;a1<last;a1++){
+				firstArc[a1] = nArcs;
+				double end = store.earliestStart[a1] + store.duration[a1];
+				// first window whose latest start time is strictly after the end of a1
+				int lo = 0, hi = byLatestStart.length;
+				while(lo < hi){
+					int mid = (lo + hi) >>> 1;
+					if(store.latestStart[byLatestStart[mid]] <= end)
+						lo = mid + 1;
+					else
+						hi = mid;
+				}
+				for(int k=lo;k<byLatestStart.length;k++){
+					int a2 = byLatestStart[k];
+					if(a2 != a1 && end + store.getTransitionTime(a1, a2) < store.latestStart[a2]){
+						if(nArcs == to.length)
+							to = Arrays.copyOf(to, 2*nArcs);
+						to[nArcs++] = a2;
+					}
+				}
+			}
+		}
+		firstArc[n] = nArcs;
+		this.nArcs = nArcs;
+		arcTo = Arrays.copyOf(to, nArcs);
+		arcFrom = new int[nArcs];
+		arcTransitionTime = new double[nArcs];
+		for(int a1=0;a1<n;a1++){
+			for(int k=firstArc[a1];k<firstArc[a1+1];k++){
+				arcFrom[k] = a1;
+				arcTransitionTime[k] = store.getTransitionTime(a1, arcTo[k]);
+			}
+		}
+
+		// arcs grouped by destination (counting sort)
+		firstInArc = new int[n+1];
+		for(int k=0;k<nArcs;k++)
+			firstInArc[arcTo[k]+1]++;
+		for(int a=0;a<n;a++)
+			firstInArc[a+1] += firstInArc[a];
+		inArcs = new int[nArcs];
+		int[] next = Arrays.copyOf(firstInArc, n);
+		for(int k=0;k<nArcs;k++)
+			inArcs[next[arcTo[k]]++] = k;
+	}
+
+	/**
+	 *
+	 * @param a window position
+	 * @return the number of windows which can follow window a
+	 */
+	public int getNumberOfSuccessors(int a){
+		return firstArc[a+1] - firstArc[a];
+	}
+
+	/**
+	 *
+	 * @param a window position
+	 * @return the number of windows which can precede window a
+	 */
+	public int getNumberOfPredecessors(int a){
+		return firstInArc[a+1] - firstInArc[a];
+	}
+
+}
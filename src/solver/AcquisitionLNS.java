@@ -0,0 +1,421 @@
+package solver;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLStreamException;
+
+import params.Params;
+import problem.AcquisitionWindowIndex;
+import problem.AcquisitionWindowStore;
+import problem.PlanningProblem;
+import problem.ProblemSnapshot;
+import problem.Sorting;
+
+/**
+ * Large neighbourhood search for acquisition planning. Starting from the greedy plan, each iteration
+ * destroys part of the current plan (a time slice of the sequence of one satellite, or some acquisitions
+ * of one user), then repairs it by inserting again the windows around the freed time ranges: exhaustively
+ * when there are few such windows, greedily (by randomly perturbed decreasing value) otherwise. The new
+ * plan is kept if it is not worse than the current one. The search stops after a wall-clock time budget,
+ * and each improving incumbent is reported (value curve, and plan file in the format of GoodSolutionAcqPlan.txt).
+ * Each iteration only works on a few acquisitions, so that its cost does not grow with the horizon length.
+ *
+ */
+public class AcquisitionLNS {
+
+	/** Maximum number of acquisitions removed by one destroy step */
+	final static int maxDestroySize = 20;
+	/** Maximum number of windows for which the repair step is exhaustive */
+	final static int maxExhaustiveRepairSize = 12;
+	/** Relative perturbation of the values used for ordering windows in greedy repair */
+	final static double repairNoise = 0.3;
+	/** Minimum time between two writings of the incumbent plan file (in milliseconds) */
+	final static long minWritePeriod = 1000;
+
+	/** Problem for which the plan is built */
+	public final PlanningProblem pb;
+	/** Acquisition windows of the problem */
+	final AcquisitionWindowStore store;
+	/** Interval index over the acquisition windows */
+	final AcquisitionWindowIndex index;
+	/** Current plan */
+	public final GreedyAcquisitionPlanner current;
+	/** Random generator (fixed seed for reproducible runs, for a given number of iterations) */
+	final Random random;
+
+	/** Sequences of the best plan found */
+	AcquisitionSequence[] bestSequences;
+	/** Value of the best plan found */
+	double bestValue;
+	/** Value of the current plan */
+	double currentValue;
+	/** Number of iterations done */
+	public long nIterations;
+
+	/** File in which the best plan is written each time it is improved (null if not written) */
+	String incumbentFilename;
+	/** File in which the value of each improving incumbent is written (null if not written) */
+	String curveFilename;
+
+	// buffers and undo log of the current iteration
+	/** Copy of the sequence of each satellite before the iteration (null if the sequence is not modified) */
+	final AcquisitionSequence[] savedSequences;
+	/** Candidate acquisitions whose selected window changed during the iteration, and their previous window */
+	int[] changedCandidates, changedWindows;
+	int nChanged;
+	/** Windows considered for repair */
+	int[] repairWindows;
+	int nRepairWindows;
+	/** Stamp of the last iteration in which each window was added to repairWindows */
+	final long[] repairStamp;
+	/** Buffer for interval queries */
+	final int[] queryBuffer;
+
+	/**
+	 * Create the search, starting from the greedy plan (the mass memory of the satellites is taken into account)
+	 * @param pb
+	 * @param seed seed of the random generator
+	 */
+	public AcquisitionLNS(PlanningProblem pb, long seed){
+		this(new GreedyAcquisitionPlanner(pb), seed);
+		current.setMemoryCapacity(Params.massMemoryCapacity);
+		current.plan();
+		currentValue = current.getValue();
+		saveBest();
+	}
+
+	/**
+	 * Create the search, starting from a given plan
+	 * @param initialPlan planner containing the initial plan (modified by the search)
+	 * @param seed seed of the random generator
+	 */
+	public AcquisitionLNS(GreedyAcquisitionPlanner initialPlan, long seed){
+		this.pb = initialPlan.pb;
+		this.store = initialPlan.store;
+		this.index = pb.getAcquisitionWindowIndex();
+		this.current = initialPlan;
+		this.random = new Random(seed);
+		savedSequences = new AcquisitionSequence[current.sequences.length];
+		changedCandidates = new int[64];
+		changedWindows = new int[64];
+		repairWindows = new int[64];
+		repairStamp = new long[store.nWindows];
+		queryBuffer = new int[store.nWindows];
+		currentValue = current.getValue();
+		saveBest();
+	}
+
+	/**
+	 * Write the best plan found in a file each time it is improved, and the value of each improving incumbent in another file
+	 * @param incumbentFilename plan file (format of GoodSolutionAcqPlan.txt), or null
+	 * @param curveFilename curve file (one line per improvement: time in seconds since the start of the search, value, number of acquisitions), or null
+	 */
+	public void setOutputFiles(String incumbentFilename, String curveFilename){
+		this.incumbentFilename = incumbentFilename;
+		this.curveFilename = curveFilename;
+	}
+
+	/**
+	 *
+	 * @return the value of the best plan found
+	 */
+	public double getBestValue(){
+		return bestValue;
+	}
+
+	/**
+	 *
+	 * @return the best plan found
+	 */
+	public SolutionPlan getBestPlan(){
+		GreedyAcquisitionPlanner best = new GreedyAcquisitionPlanner(pb, current.value);
+		for(int s=0;s<bestSequences.length;s++)
+			best.sequences[s] = bestSequences[s];
+		return best.getPlan();
+	}
+
+	void saveBest(){
+		bestSequences = new AcquisitionSequence[current.sequences.length];
+		for(int s=0;s<bestSequences.length;s++)
+			bestSequences[s] = new AcquisitionSequence(current.sequences[s]);
+		bestValue = currentValue;
+	}
+
+	/**
+	 * Run the search (until the time budget is spent, or until the thread is interrupted)
+	 * @param timeBudget wall-clock time budget (in seconds)
+	 * @return the value of the best plan found
+	 * @throws IOException
+	 */
+	public double run(double timeBudget) throws IOException{
+		long t0 = System.nanoTime();
+		long deadline = t0 + (long) (timeBudget * 1E9);
+		PrintWriter curve = null;
+		if(curveFilename != null){
+			curve = new PrintWriter(new BufferedWriter(new FileWriter(curveFilename, false)));
+			curve.write("0.0 " + bestValue + " " + current.getNumberOfAcquisitions() + "\n");
+		}
+		long lastWrite = 0;
+		boolean written = false;
+		// the search also stops when the thread running it is interrupted (e.g. cancelled in a portfolio)
+		while(System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()){
+			nIterations++;
+			double value = iterate();
+			if(value >= currentValue)
+				currentValue = value;
+			else
+				undo();
+			if(currentValue > bestValue + 1e-9){
+				saveBest();
+				double elapsed = (System.nanoTime() - t0) / 1E9;
+				if(curve != null)
+					curve.write(elapsed + " " + bestValue + " " + current.getNumberOfAcquisitions() + "\n");
+				written = false;
+				long now = System.currentTimeMillis();
+				if(incumbentFilename != null && now - lastWrite >= minWritePeriod){
+					getBestPlan().writeAcquisitionPlan(incumbentFilename);
+					lastWrite = now;
+					written = true;
+				}
+			}
+		}
+		if(incumbentFilename != null && !written)
+			getBestPlan().writeAcquisitionPlan(incumbentFilename);
+		if(curve != null){
+			curve.flush();
+			curve.close();
+		}
+		return bestValue;
+	}
+
+	/**
+	 * Destroy and repair part of the current plan
+	 * @return the value of the new current plan
+	 */
+	double iterate(){
+		Arrays.fill(savedSequences, null);
+		nChanged = 0;
+		nRepairWindows = 0;
+		double value = currentValue;
+		if(random.nextBoolean())
+			value -= destroyTimeSlice();
+		else
+			value -= destroyUser();
+		return value + repair();
+	}
+
+	/**
+	 * Remove a random sequence of consecutive acquisitions of a random satellite
+	 * @return the value removed
+	 */
+	double destroyTimeSlice(){
+		int s = random.nextInt(current.sequences.length);
+		AcquisitionSequence sequence = current.sequences[s];
+		if(sequence.size() == 0)
+			return 0;
+		int m = 1 + random.nextInt(Math.min(maxDestroySize, sequence.size()));
+		int k0 = random.nextInt(sequence.size() - m + 1);
+		double removed = 0;
+		for(int i=0;i<m;i++)
+			removed += removeAcquisition(s, k0);
+		return removed;
+	}
+
+	/**
+	 * Remove some acquisitions of a random user (on all satellites)
+	 * @return the value removed
+	 */
+	double destroyUser(){
+		int u = random.nextInt(pb.users.size());
+		// count the acquisitions of the user, then remove a random subset of at most maxDestroySize of them
+		int n = 0;
+		for(AcquisitionSequence sequence : current.sequences){
+			for(int k=0;k<sequence.size();k++){
+				if(store.user[sequence.getWindow(k)] == u)
+					n++;
+			}
+		}
+		if(n == 0)
+			return 0;
+		double p = Math.min(1, (1.0 + random.nextInt(maxDestroySize)) / n);
+		double removed = 0;
+		for(int s=0;s<current.sequences.length;s++){
+			for(int k=current.sequences[s].size()-1;k>=0;k--){
+				if(store.user[current.sequences[s].getWindow(k)] == u && random.nextDouble() < p)
+					removed += removeAcquisition(s, k);
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Remove an acquisition from the current plan (saving what is needed for undoing the iteration), and
+	 * add the windows around its time range to the windows to consider for repair
+	 * @param s satellite
+	 * @param k rank of the acquisition in the sequence of the satellite
+	 * @return the value of the acquisition removed
+	 */
+	double removeAcquisition(int s, int k){
+		AcquisitionSequence sequence = current.sequences[s];
+		if(savedSequences[s] == null)
+			savedSequences[s] = new AcquisitionSequence(sequence);
+		int w = sequence.getWindow(k);
+		double start = sequence.getStartTime(k);
+		logChange(store.candidate[w], w);
+		current.remove(s, k);
+		// windows which may use the time freed (the transition times of the neighbours may also change)
+		int n = index.getOverlapping(s, start - store.maxTransitionTime, start + store.duration[w] + store.maxTransitionTime, queryBuffer);
+		for(int i=0;i<n;i++)
+			addRepairWindow(queryBuffer[i]);
+		addRepairWindow(w);
+		return current.value[w];
+	}
+
+	void logChange(int candidate, int previousWindow){
+		if(nChanged == changedCandidates.length){
+			changedCandidates = Arrays.copyOf(changedCandidates, 2*nChanged);
+			changedWindows = Arrays.copyOf(changedWindows, 2*nChanged);
+		}
+		changedCandidates[nChanged] = candidate;
+		changedWindows[nChanged] = previousWindow;
+		nChanged++;
+	}
+
+	void addRepairWindow(int w){
+		if(repairStamp[w] == nIterations)
+			return;
+		repairStamp[w] = nIterations;
+		if(nRepairWindows == repairWindows.length)
+			repairWindows = Arrays.copyOf(repairWindows, 2*nRepairWindows);
+		repairWindows[nRepairWindows++] = w;
+	}
+
+	/**
+	 * Insert again windows around the time ranges freed
+	 * @return the value added
+	 */
+	double repair(){
+		// windows whose candidate acquisition is planned cannot be inserted
+		int n = 0;
+		for(int i=0;i<nRepairWindows;i++){
+			int w = repairWindows[i];
+			if(current.selectedWindow[store.candidate[w]] == -1 && current.value[w] > 0)
+				repairWindows[n++] = w;
+		}
+		double[] keys = new double[n];
+		for(int i=0;i<n;i++)
+			keys[i] = -current.value[repairWindows[i]] * (1 + repairNoise * random.nextDouble());
+		int[] order = Sorting.sortedByKey(n, keys);
+		int[] windows = new int[n];
+		for(int i=0;i<n;i++)
+			windows[i] = repairWindows[order[i]];
+		if(n <= maxExhaustiveRepairSize)
+			return repairExhaustive(windows);
+		double added = 0;
+		for(int w : windows){
+			if(insert(w))
+				added += current.value[w];
+		}
+		return added;
+	}
+
+	/**
+	 * Insert a window in the current plan, if possible
+	 * @param w
+	 * @return true if the window has been inserted
+	 */
+	boolean insert(int w){
+		int s = store.satellite[w];
+		AcquisitionSequence sequence = current.sequences[s];
+		if(current.selectedWindow[store.candidate[w]] != -1 || sequence.getInsertionRank(w) == -1)
+			return false;
+		if(savedSequences[s] == null)
+			savedSequences[s] = new AcquisitionSequence(sequence);
+		// through the planner, so that the memory constraint is checked and the memory timeline updated
+		if(!current.tryInsert(w))
+			return false;
+		logChange(store.candidate[w], -1);
+		return true;
+	}
+
+	/**
+	 * Find the subset of windows whose insertion (in the given order) adds the highest value, by branch and bound
+	 * @param windows windows by decreasing value
+	 * @return the value added
+	 */
+	double repairExhaustive(int[] windows){
+		int n = windows.length;
+		double[] remaining = new double[n+1];
+		for(int i=n-1;i>=0;i--)
+			remaining[i] = remaining[i+1] + current.value[windows[i]];
+		boolean[] selected = new boolean[n];
+		boolean[] bestSelected = new boolean[n];
+		double[] best = {-1};
+		search(windows, 0, 0, remaining, selected, bestSelected, best);
+		// insert the best subset found
+		double added = 0;
+		for(int i=0;i<n;i++){
+			if(bestSelected[i] && insert(windows[i]))
+				added += current.value[windows[i]];
+		}
+		return added;
+	}
+
+	void search(int[] windows, int i, double value, double[] remaining, boolean[] selected, boolean[] bestSelected, double[] best){
+		if(value > best[0]){
+			best[0] = value;
+			System.arraycopy(selected, 0, bestSelected, 0, selected.length);
+		}
+		if(i == windows.length || value + remaining[i] <= best[0])
+			return;
+		int w = windows[i];
+		int s = store.satellite[w];
+		AcquisitionSequence sequence = current.sequences[s];
+		int c = store.candidate[w];
+		if(current.selectedWindow[c] == -1 && current.tryInsert(w)){
+			selected[i] = true;
+			search(windows, i+1, value + current.value[w], remaining, selected, bestSelected, best);
+			selected[i] = false;
+			current.remove(s, sequence.indexOf(w));
+		}
+		search(windows, i+1, value, remaining, selected, bestSelected, best);
+	}
+
+	/**
+	 * Restore the plan as it was before the current iteration
+	 */
+	void undo(){
+		for(int s=0;s<savedSequences.length;s++){
+			if(savedSequences[s] != null)
+				current.sequences[s] = savedSequences[s];
+		}
+		// changes are undone in reverse order, and so are their effects on the memory timelines (copying the timelines
+		// would cost a time proportional to the horizon at each iteration)
+		for(int i=nChanged-1;i>=0;i--){
+			int c = changedCandidates[i];
+			if(current.selectedWindow[c] != -1)
+				current.updateMemory(current.selectedWindow[c], -1);
+			if(changedWindows[i] != -1)
+				current.updateMemory(changedWindows[i], 1);
+			current.selectedWindow[c] = changedWindows[i];
+		}
+	}
+
+	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException{
+		PlanningProblem pb = ProblemSnapshot.read(Params.systemDataFile,Params.planningDataFile);
+		pb.printStatistics();
+		AcquisitionLNS lns = new AcquisitionLNS(pb, Params.searchSeed);
+		System.out.println("Initial (greedy) value: " + lns.getBestValue());
+		lns.setOutputFiles("output/LNSSolutionAcqPlan.txt", "output/LNSCurve.txt");
+		lns.run(Params.searchTimeBudget);
+		System.out.println("LNS value: " + lns.getBestValue() + " after " + lns.nIterations + " iterations");
+		Bounds.report("AcquisitionLNS", lns.getBestValue(), new Bounds(pb).getAcquisitionBound());
+	}
+
+}
@@ -0,0 +1,376 @@
+package solver;
+
+import java.util.Arrays;
+
+import problem.AcquisitionWindowStore;
+
+/**
+ * Sequence of acquisitions realized by one satellite. Acquisitions are designated by the position of their
+ * window in the acquisition window store, are kept by increasing start time, and each acquisition starts as
+ * early as possible given its window and the acquisition which precedes it (left-shifted sequence).
+ * Since transition times satisfy the triangle inequality, removing an acquisition from a feasible
+ * sequence always leaves a feasible sequence.
+ * <p>
+ * The sequence also keeps the latest start time of each acquisition such that all acquisitions which
+ * follow it can still be realized in their windows (backward propagation of the latest start times).
+ * With the earliest start times (forward propagation), checking whether a window can be inserted at a
+ * given rank takes constant time, and looking for the ranks where a window can be inserted takes
+ * logarithmic time plus the number of ranks examined. Both arrays are updated incrementally, only as
+ * far as the times change.
+ * <p>
+ * The first acquisitions of the sequence can be frozen (acquisitions already executed or committed when
+ * replanning): windows are then only inserted after them, and not before a given release time.
+ *
+ */
+public class AcquisitionSequence {
+
+	/** Acquisition windows of the problem */
+	final AcquisitionWindowStore store;
+	/** Maximum transition time between two windows */
+	final double maxTransitionTime;
+	/** Windows of the sequence (positions in the store), in order of realization */
+	int[] windows;
+	/** Start time of each acquisition of the sequence (earliest start time given the acquisitions which precede it) */
+	double[] start;
+	/** Latest start time of each acquisition of the sequence given the acquisitions which follow it */
+	double[] latest;
+	/** Number of acquisitions in the sequence */
+	int size;
+	/** Number of acquisitions at the beginning of the sequence which cannot be moved nor removed (already executed or committed) */
+	int nFrozen;
+	/** Time before which the acquisitions which follow the frozen ones cannot start */
+	double releaseTime = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Create an empty sequence
+	 * @param store acquisition windows of the problem
+	 */
+	public AcquisitionSequence(AcquisitionWindowStore store){
+		this.store = store;
+		this.maxTransitionTime = store.maxTransitionTime;
+		windows = new int[16];
+		start = new double[16];
+		latest = new double[16];
+	}
+
+	/**
+	 * Create a copy of a sequence
+	 * @param sequence
+	 */
+	public AcquisitionSequence(AcquisitionSequence sequence){
+		this.store = sequence.store;
+		this.maxTransitionTime = sequence.maxTransitionTime;
+		windows = Arrays.copyOf(sequence.windows, sequence.windows.length);
+		start = Arrays.copyOf(sequence.start, sequence.start.length);
+		latest = Arrays.copyOf(sequence.latest, sequence.latest.length);
+		size = sequence.size;
+		nFrozen = sequence.nFrozen;
+		releaseTime = sequence.releaseTime;
+	}
+
+	/**
+	 *
+	 * @return the number of acquisitions in the sequence
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 *
+	 * @param k
+	 * @return the window of the k-th acquisition of the sequence
+	 */
+	public int getWindow(int k){
+		return windows[k];
+	}
+
+	/**
+	 *
+	 * @param k
+	 * @return the start time of the k-th acquisition of the sequence
+	 */
+	public double getStartTime(int k){
+		return start[k];
+	}
+
+	/**
+	 * Freeze the first acquisitions of the sequence: no window can be inserted before them, they cannot be removed,
+	 * and the acquisitions which follow them cannot start before a release time
+	 * @param n number of acquisitions frozen
+	 * @param releaseTime time before which the acquisitions which are not frozen cannot start
+	 * (must not be later than the start time of the acquisition of rank n)
+	 */
+	public void freeze(int n, double releaseTime){
+		nFrozen = n;
+		this.releaseTime = releaseTime;
+	}
+
+	/**
+	 * Freeze the first acquisitions of the sequence (see freeze), and move each of the acquisitions which follow them to its
+	 * earliest start time given the acquisitions which precede it and the release time (their start times may have been
+	 * delayed, for instance by the release times used when the sequence was built)
+	 * @param n number of acquisitions frozen, which keep their start times
+	 * @param releaseTime time before which the acquisitions which are not frozen cannot start
+	 */
+	public void freezeAndShift(int n, double releaseTime){
+		freeze(n, releaseTime);
+		for(int j=n;j<size;j++)
+			start[j] = getEarliestStartTime(j);
+	}
+
+	/**
+	 *
+	 * @return the number of acquisitions frozen at the beginning of the sequence
+	 */
+	public int getNumberOfFrozen(){
+		return nFrozen;
+	}
+
+	/**
+	 *
+	 * @param w window
+	 * @return the rank of window w in the sequence (-1 if w is not in the sequence)
+	 */
+	public int indexOf(int w){
+		for(int k=0;k<size;k++){
+			if(windows[k] == w)
+				return k;
+		}
+		return -1;
+	}
+
+	/**
+	 *
+	 * @param t
+	 * @return the number of acquisitions of the sequence starting at or before t
+	 */
+	public int countStartingBefore(double t){
+		int lo = 0, hi = size;
+		while(lo < hi){
+			int mid = (lo + hi) >>> 1;
+			if(start[mid] <= t)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 *
+	 * @param k
+	 * @return the latest start time of the k-th acquisition of the sequence such that the acquisitions which follow it remain feasible
+	 */
+	public double getLatestStartTime(int k){
+		return latest[k];
+	}
+
+	/**
+	 *
+	 * @param w window
+	 * @param k rank at which w would be inserted
+	 * @return the earliest start time of window w if it is inserted at rank k, or -1 if this insertion is not feasible
+	 */
+	double getInsertionStartTime(int w, int k){
+		double s = store.earliestStart[w];
+		if(k > 0){
+			int prev = windows[k-1];
+			s = Math.max(s, start[k-1] + store.duration[prev] + store.getTransitionTime(prev, w));
+		}
+		if(k == nFrozen)
+			s = Math.max(s, releaseTime);
+		if(s > store.latestStart[w])
+			return -1;
+		// the acquisition which follows w must still start before its latest start time
+		if(k < size && s + store.duration[w] + store.getTransitionTime(w, windows[k]) > latest[k])
+			return -1;
+		return s;
+	}
+
+	/**
+	 *
+	 * @param w window
+	 * @param k rank
+	 * @return true if window w can be inserted at rank k (between the acquisitions of ranks k-1 and k)
+	 */
+	public boolean canInsert(int w, int k){
+		return k >= nFrozen && getInsertionStartTime(w, k) >= 0;
+	}
+
+	/**
+	 *
+	 * @param k rank
+	 * @return true if the k-th acquisition can be removed (always the case if it is not frozen, transition times satisfying the triangle inequality)
+	 */
+	public boolean canRemove(int k){
+		return k >= nFrozen && k < size;
+	}
+
+	/**
+	 *
+	 * @param w window
+	 * @return the rank at which window w can be inserted in the sequence (the one giving the earliest start time for w),
+	 * or -1 if w cannot be inserted
+	 */
+	public int getInsertionRank(int w){
+		// w cannot be realized before an acquisition starting after its latest start time
+		int k = countStartingBefore(store.latestStart[w]);
+		int best = -1;
+		double bestStart = Double.POSITIVE_INFINITY;
+		for(;k>=nFrozen;k--){
+			double s = getInsertionStartTime(w, k);
+			if(s >= 0 && s <= bestStart){
+				best = k;
+				bestStart = s;
+			}
+			// acquisitions ending long enough before the earliest start time of w are kept before w
+			if(k > 0 && start[k-1] + store.duration[windows[k-1]] + maxTransitionTime <= store.earliestStart[w])
+				break;
+		}
+		return best;
+	}
+
+	/**
+	 * Insert a window in the sequence, at a rank where the insertion is feasible
+	 * @param w window
+	 * @param k rank (as returned by getInsertionRank)
+	 */
+	public void insert(int w, int k){
+		double s = getInsertionStartTime(w, k);
+		if(size == windows.length){
+			windows = Arrays.copyOf(windows, 2*size);
+			start = Arrays.copyOf(start, 2*size);
+			latest = Arrays.copyOf(latest, 2*size);
+		}
+		System.arraycopy(windows, k, windows, k+1, size-k);
+		System.arraycopy(start, k, start, k+1, size-k);
+		System.arraycopy(latest, k, latest, k+1, size-k);
+		windows[k] = w;
+		start[k] = s;
+		size++;
+		shiftFrom(k+1);
+		latest[k] = computeLatestStartTime(k);
+		shiftBackFrom(k-1);
+	}
+
+	/**
+	 * Try to insert a window in the sequence
+	 * @param w window
+	 * @return true if w has been inserted
+	 */
+	public boolean tryInsert(int w){
+		int k = getInsertionRank(w);
+		if(k == -1)
+			return false;
+		insert(w, k);
+		return true;
+	}
+
+	/**
+	 * Remove the k-th acquisition of the sequence (the acquisitions which follow it are left-shifted again)
+	 * @param k
+	 */
+	public void remove(int k){
+		System.arraycopy(windows, k+1, windows, k, size-k-1);
+		System.arraycopy(start, k+1, start, k, size-k-1);
+		System.arraycopy(latest, k+1, latest, k, size-k-1);
+		size--;
+		for(int j=k;j<size;j++){
+			double sj = getEarliestStartTime(j);
+			if(sj == start[j])
+				break;
+			start[j] = sj;
+		}
+		for(int j=k-1;j>=0;j--){
+			double lj = computeLatestStartTime(j);
+			if(lj == latest[j])
+				break;
+			latest[j] = lj;
+		}
+	}
+
+	/**
+	 * Remove all acquisitions from the sequence
+	 */
+	public void clear(){
+		size = 0;
+		nFrozen = 0;
+		releaseTime = Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 *
+	 * @param j
+	 * @return the earliest start time of the j-th acquisition given the start time of the (j-1)-th acquisition
+	 */
+	double getEarliestStartTime(int j){
+		int w = windows[j];
+		double s = store.earliestStart[w];
+		if(j > 0){
+			int prev = windows[j-1];
+			s = Math.max(s, start[j-1] + store.duration[prev] + store.getTransitionTime(prev, w));
+		}
+		if(j == nFrozen)
+			s = Math.max(s, releaseTime);
+		return s;
+	}
+
+	/**
+	 * Update the start times of acquisitions from rank j, after a modification of the acquisition at rank j-1
+	 * @param j
+	 */
+	void shiftFrom(int j){
+		for(;j<size;j++){
+			double sj = getEarliestStartTime(j);
+			if(sj <= start[j])
+				break;
+			start[j] = sj;
+		}
+	}
+
+	/**
+	 *
+	 * @param j
+	 * @return the latest start time of the j-th acquisition given the latest start time of the (j+1)-th acquisition
+	 */
+	double computeLatestStartTime(int j){
+		int w = windows[j];
+		if(j == size-1)
+			return store.latestStart[w];
+		int next = windows[j+1];
+		return Math.min(store.latestStart[w], latest[j+1] - store.getTransitionTime(w, next) - store.duration[w]);
+	}
+
+	/**
+	 * Update the latest start times of acquisitions from rank j down to rank 0, after a modification of the acquisition at rank j+1
+	 * @param j
+	 */
+	void shiftBackFrom(int j){
+		for(;j>=0;j--){
+			double lj = computeLatestStartTime(j);
+			if(lj >= latest[j])
+				break;
+			latest[j] = lj;
+		}
+	}
+
+	/**
+	 *
+	 * @return true if the sequence respects all acquisition windows and transition times
+	 */
+	public boolean isFeasible(){
+		for(int j=0;j<size;j++){
+			int w = windows[j];
+			if(start[j] < store.earliestStart[w] || start[j] > store.latestStart[w])
+				return false;
+			if(j > 0){
+				int prev = windows[j-1];
+				if(start[j-1] + store.duration[prev] + store.getTransitionTime(prev, w) > start[j] + 1e-9)
+					return false;
+			}
+		}
+		return true;
+	}
+
+}
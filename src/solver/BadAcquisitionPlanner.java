@@ -4,18 +4,17 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.List;
 
 import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLStreamException;
 
 import params.Params;
-import problem.AcquisitionWindow;
-import problem.CandidateAcquisition;
+import problem.AcquisitionWindowStore;
+import problem.DominancePruning;
 import problem.PlanningProblem;
 import problem.ProblemParserXML;
 import problem.Satellite;
+import problem.SuccessorGraph;
 
 /**
  * Acquisition planner which solves the acquisition problem for each satellite separately,
@@ -39,81 +38,147 @@ public class BadAcquisitionPlanner {
 		// generate OPL data (only for the satellite selected)
 		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(datFilename, false)));
 
-		// get all acquisition windows involved in the problem
-		List<AcquisitionWindow> acquisitionWindows = new ArrayList<AcquisitionWindow>();
-		for(CandidateAcquisition a : pb.candidateAcquisitions){
-			for(AcquisitionWindow w : a.acquisitionWindows){
-				if(w.satellite == satellite){
-					acquisitionWindows.add(w);
-				}
-			}
-		}			
+		// get all acquisition windows involved in the problem (positions first..last-1 of the columnar view)
+		AcquisitionWindowStore acquisitionWindows = pb.getAcquisitionWindowStore();
+		int first = acquisitionWindows.satelliteStart[satellite.idx];
+		int last = acquisitionWindows.satelliteStart[satellite.idx+1];
+
+		writeAcquisitionWindows(writer, acquisitionWindows, first, last);
 
+		// write the transition times between acquisitions in acquisition windows
+		writer.write("\nTransitionTimes = [");
+		for(int i=first;i<last;i++){
+			if(i != first) writer.write(",");
+			writer.write("\n\t[");
+			for(int j=first;j<last;j++){
+				if(j != first) writer.write(",");
+				writer.write(""+acquisitionWindows.getTransitionTime(i, j));
+			}	
+			writer.write("]");
+		}
+		writer.write("\n];");
+
+		// write the name of the file in which the result will be written
+		writer.write("\nOutputFile = \"" + solutionFilename + "\";");
+
+		// close the writer
+		writer.flush();
+		writer.close();		
+	}
+
+	/**
+	 * Write the data shared by the dense and sparse models: number of windows and attributes of each acquisition window
+	 * @param writer
+	 * @param acquisitionWindows acquisition windows of the problem
+	 * @param first position of the first window of the satellite
+	 * @param last position following the last window of the satellite
+	 */
+	static void writeAcquisitionWindows(PrintWriter writer, AcquisitionWindowStore acquisitionWindows, int first, int last){
 		// write the number of acquisition windows
-		int nAcquisitionWindows = acquisitionWindows.size();
+		int nAcquisitionWindows = last - first;
 		writer.write("NacquisitionWindows = " + nAcquisitionWindows + ";");
 
 		// write the index of each acquisition
 		writer.write("\nCandidateAcquisitionIdx = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).candidateAcquisition.idx);
-			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).candidateAcquisition.idx);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+acquisitionWindows.candidate[first]);
+			for(int i=first+1;i<last;i++){
+				writer.write(","+acquisitionWindows.candidate[i]);
 			}
 		}
 		writer.write("];");
 
 		// write the index of each acquisition window
 		writer.write("\nAcquisitionWindowIdx = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).idx);
-			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).idx);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+acquisitionWindows.windowIdx[first]);
+			for(int i=first+1;i<last;i++){
+				writer.write(","+acquisitionWindows.windowIdx[i]);
 			}
 		}
 		writer.write("];");
 
 		// write the earliest acquisition start time associated with each acquisition window
 		writer.write("\nEarliestStartTime = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).earliestStart);
-			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).earliestStart);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+acquisitionWindows.earliestStart[first]);
+			for(int i=first+1;i<last;i++){
+				writer.write(","+acquisitionWindows.earliestStart[i]);
 			}
 		}
 		writer.write("];");
 
 		// write the latest acquisition start time associated with each acquisition window
 		writer.write("\nLatestStartTime = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).latestStart);
-			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).latestStart);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+acquisitionWindows.latestStart[first]);
+			for(int i=first+1;i<last;i++){
+				writer.write(","+acquisitionWindows.latestStart[i]);
 			}
 		}
 		writer.write("];");
 
 		// write the duration of acquisitions in each acquisition window
 		writer.write("\nDuration = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).duration);
-			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).duration);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+acquisitionWindows.duration[first]);
+			for(int i=first+1;i<last;i++){
+				writer.write(","+acquisitionWindows.duration[i]);
 			}
 		}
 		writer.write("];");
+	}
 
-		// write the transition times between acquisitions in acquisition windows
-		writer.write("\nTransitionTimes = [");
-		for(int i=0;i<nAcquisitionWindows;i++){
-			AcquisitionWindow a1 = acquisitionWindows.get(i);
-			if(i != 0) writer.write(",");
-			writer.write("\n\t[");
-			for(int j=0;j<nAcquisitionWindows;j++){
-				if(j != 0) writer.write(",");
-				writer.write(""+pb.getTransitionTime(a1, acquisitionWindows.get(j)));
-			}	
-			writer.write("]");
+	/**
+	 * Write a .dat file for the sparse acquisition model of a satellite (acqPlanningSparse.mod): only the feasible
+	 * successions between acquisition windows are written, as the sets of successors and predecessors of each window
+	 * @param pb planning problem
+	 * @param satellite satellite for which the acquisition plan must be built
+	 * @param datFilename name of the .dat file generated
+	 * @param solutionFilename name of the file in which CPLEX solution will be written
+	 * @throws IOException
+	 */
+	public static void writeSparseDatFile(PlanningProblem pb, Satellite satellite, 
+			String datFilename, String solutionFilename) throws IOException{
+		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(datFilename, false)));
+		AcquisitionWindowStore acquisitionWindows = pb.getAcquisitionWindowStore();
+		int first = acquisitionWindows.satelliteStart[satellite.idx];
+		int last = acquisitionWindows.satelliteStart[satellite.idx+1];
+		writeAcquisitionWindows(writer, acquisitionWindows, first, last);
+		SuccessorGraph graph = pb.getSuccessorGraph();
+
+		// write the roll angle of each window and the rotation speed, from which the model computes the transition time of each arc
+		writer.write("\nRollangle = [");
+		for(int a=first;a<last;a++){
+			if(a != first) writer.write(",");
+			writer.write(""+acquisitionWindows.rollAngle[a]);
+		}
+		writer.write("];");
+		writer.write("\nMeanRotationSpeed = " + Params.meanRotationSpeed + ";");
+
+		// write the successors of each window: window at position i has OPL index i-first+1, the dummy window has index 0
+		writer.write("\nSuccessors = [\n\t{0");
+		for(int a=first;a<last;a++)
+			writer.write("," + (a-first+1));
+		writer.write("}");
+		for(int a=first;a<last;a++){
+			writer.write(",\n\t{");
+			for(int k=graph.firstArc[a];k<graph.firstArc[a+1];k++)
+				writer.write((graph.arcTo[k]-first+1) + ",");
+			writer.write("0}");
+		}
+		writer.write("\n];");
+
+		// write the predecessors of each window
+		writer.write("\nPredecessors = [\n\t{0");
+		for(int a=first;a<last;a++)
+			writer.write("," + (a-first+1));
+		writer.write("}");
+		for(int a=first;a<last;a++){
+			writer.write(",\n\t{0");
+			for(int k=graph.firstInArc[a];k<graph.firstInArc[a+1];k++)
+				writer.write("," + (graph.arcFrom[graph.inArcs[k]]-first+1));
+			writer.write("}");
 		}
 		writer.write("\n];");
 
@@ -122,17 +187,20 @@ public class BadAcquisitionPlanner {
 
 		// close the writer
 		writer.flush();
-		writer.close();		
+		writer.close();
 	}
 
 	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException{
 		ProblemParserXML parser = new ProblemParserXML(); 
 		PlanningProblem pb = parser.read(Params.systemDataFile,Params.planningDataFile);
+		if(Params.pruneDominatedWindows)
+			System.out.println("Dominance pruning: " + DominancePruning.prune(pb) + " dominated acquisition windows removed");
 		pb.printStatistics();
 		for(Satellite satellite : pb.satellites){
 			String datFilename = "output/acqPlanning_"+satellite.name+".dat";
 			String solutionFilename = "solutionAcqPlan_"+satellite.name+".txt";
 			writeDatFile(pb, satellite, datFilename, solutionFilename);
+			writeSparseDatFile(pb, satellite, "output/acqPlanningSparse_"+satellite.name+".dat", solutionFilename);
 		}
 	}
 
@@ -5,9 +5,6 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.text.ParseException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 import javax.xml.stream.FactoryConfigurationError;
@@ -16,7 +13,7 @@ import javax.xml.stream.XMLStreamException;
 import params.Params;
 import problem.Acquisition;
 import problem.CandidateAcquisition;
-import problem.DownloadWindow;
+import problem.DownloadWindowIndex;
 import problem.PlanningProblem;
 import problem.RecordedAcquisition;
 import problem.ProblemParserXML;
@@ -35,79 +32,43 @@ public class BadDownloadPlanner {
 	public static void planDownloads(SolutionPlan plan, String solutionFilename) throws IOException{
 
 		PlanningProblem pb = plan.pb;
-		List<CandidateAcquisition> acqPlan = plan.plannedAcquisitions;
-
 		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(solutionFilename, false)));
 
 		boolean firstLine = true;
 
+		// get all recorded and planned acquisitions, for all satellites at once
+		List<List<Acquisition>> candidateDownloadsBySatellite = plan.getCandidateDownloadsBySatellite();
+		DownloadWindowIndex downloadWindowIndex = pb.getDownloadWindowIndex();
+
 		// plan downloads for each satellite independently (possible due to the configuration of the constellation)
 		for(Satellite satellite : pb.satellites){
-			// get all recorded acquisitions associated with this satellite
-			List<Acquisition> candidateDownloads = new ArrayList<Acquisition>();
-			for(RecordedAcquisition dl : pb.recordedAcquisitions){
-				if(dl.satellite == satellite)
-					candidateDownloads.add(dl);
-			}
-			// get all planned acquisitions associated with this satellite
-			for(CandidateAcquisition a : acqPlan){
-				if(a.selectedAcquisitionWindow.satellite == satellite)
-					candidateDownloads.add(a);
-			}
-			// sort acquisitions by increasing start time
-			Collections.sort(candidateDownloads, new Comparator<Acquisition>(){
-				@Override
-				public int compare(Acquisition a0, Acquisition a1) {
-					double start0 = a0.getAcquisitionTime(); 
-					double start1 = a1.getAcquisitionTime();
-					if(start0 < start1)
-						return -1;
-					if(start0 > start1)
-						return 1;
-					return 0;
-				}
-
-			});
-
-			// sort download windows by increasing start time
-			List<DownloadWindow> downloadWindows = new ArrayList<DownloadWindow>();
-			for(DownloadWindow w : pb.downloadWindows){
-				if(w.satellite == satellite)
-					downloadWindows.add(w);
-			}
-			Collections.sort(downloadWindows, new Comparator<DownloadWindow>(){
-				@Override
-				public int compare(DownloadWindow a0, DownloadWindow a1) {
-					double start0 = a0.start; 
-					double start1 = a1.start;
-					if(start0 < start1)
-						return -1;
-					if(start0 > start1)
-						return 1;
-					return 0;
-				}
-			});			
-			if(downloadWindows.isEmpty())
+			List<Acquisition> candidateDownloads = candidateDownloadsBySatellite.get(satellite.idx);
+			// acquisitions are already sorted by increasing start time, download windows are taken sorted by increasing start time from the index
+			DownloadWindowIndex.Windows downloadWindows = downloadWindowIndex.getWindows(satellite);
+			int nDownloadWindows = downloadWindows.size();
+			if(nDownloadWindows == 0)
 				continue;
 
 			// chronological traversal of all download windows combined with a chronological traversal of acquisitions which are candidate for being downloaded
 			int currentDownloadWindowIdx = 0;
-			DownloadWindow currentWindow = downloadWindows.get(currentDownloadWindowIdx);
-			double currentTime = currentWindow.start;
+			double currentTime = downloadWindows.start[0];
 			for(Acquisition a : candidateDownloads){
-				currentTime = Math.max(currentTime, a.getAcquisitionTime());
-				double dlDuration = a.getVolume() / Params.downlinkRate;
-				while(currentTime + dlDuration > currentWindow.end){					
+				currentTime = Math.max(currentTime, plan.getAcquisitionTime(a));
+				double dlDuration = plan.getVolume(a) / Params.downlinkRate;
+				// skip at once all windows which end before the download could end
+				int firstUsefulWindowIdx = downloadWindows.firstEndingAfter(currentTime + dlDuration);
+				if(firstUsefulWindowIdx > currentDownloadWindowIdx){
+					currentDownloadWindowIdx = firstUsefulWindowIdx;
+					if(currentDownloadWindowIdx < nDownloadWindows)
+						currentTime = Math.max(currentTime, downloadWindows.start[currentDownloadWindowIdx]);
+				}
+				while(currentDownloadWindowIdx < nDownloadWindows && currentTime + dlDuration > downloadWindows.end[currentDownloadWindowIdx]){
 					currentDownloadWindowIdx++;
-					if(currentDownloadWindowIdx < downloadWindows.size()){
-						currentWindow = downloadWindows.get(currentDownloadWindowIdx);
-						currentTime = Math.max(currentTime, currentWindow.start);
-					}
-					else
-						break;
+					if(currentDownloadWindowIdx < nDownloadWindows)
+						currentTime = Math.max(currentTime, downloadWindows.start[currentDownloadWindowIdx]);
 				}
 				
-				if(currentDownloadWindowIdx >= downloadWindows.size())
+				if(currentDownloadWindowIdx >= nDownloadWindows)
 					break;
 
 				if(firstLine){
@@ -116,9 +77,9 @@ public class BadDownloadPlanner {
 				else 
 					writer.write("\n");
 				if(a instanceof RecordedAcquisition)
-					writer.write("REC " + ((RecordedAcquisition) a).idx + " " + currentWindow.idx + " " + currentTime + " " + (currentTime+dlDuration));
+					writer.write("REC " + ((RecordedAcquisition) a).idx + " " + downloadWindows.idx[currentDownloadWindowIdx] + " " + currentTime + " " + (currentTime+dlDuration));
 				else // case CandidateAcquisition
-					writer.write("CAND " + ((CandidateAcquisition) a).idx + " " + currentWindow.idx + " " + currentTime + " " + (currentTime+dlDuration));
+					writer.write("CAND " + ((CandidateAcquisition) a).idx + " " + downloadWindows.idx[currentDownloadWindowIdx] + " " + currentTime + " " + (currentTime+dlDuration));
 				currentTime += dlDuration;
 			}
 		}
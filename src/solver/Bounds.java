@@ -0,0 +1,285 @@
+package solver;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLStreamException;
+
+import params.Params;
+import problem.AcquisitionWindowStore;
+import problem.CandidateAcquisition;
+import problem.DownloadWindowIndex;
+import problem.PlanningProblem;
+import problem.ProblemSnapshot;
+import problem.RecordedAcquisition;
+import problem.Satellite;
+import problem.Sorting;
+
+/**
+ * Upper bounds on the objectives of the planners, for measuring the gap of the plans found (for instance for choosing
+ * the time limit of CPLEX or the time budget of the searches). Bounds on the acquisition objective (sum of the costs
+ * of the windows selected):
+ * <ul>
+ * <li>candidate bound: sum over the candidate acquisitions of the cost of their best window;</li>
+ * <li>sequence bound: sum over the satellites of the value of the best sequence of windows (longest path, a candidate
+ * acquisition being possibly selected several times);</li>
+ * <li>Lagrangian bound: relaxation of the constraint "at most one window per candidate acquisition", solved by
+ * subgradient optimization with a longest path per satellite (see LagrangianAcquisitionPlanner). Multipliers start from
+ * the cost of the best window of each candidate acquisition, for which the Lagrangian function is the candidate bound
+ * (no window has a positive reduced value), so that the Lagrangian bound is never worse than the candidate bound.</li>
+ * </ul>
+ * Bounds on the download objectives are capacity bounds: each satellite can download at most Params.downlinkRate
+ * times the total length of its download windows, and the best value for this volume is the one of the fractional
+ * knapsack over the acquisitions which can be downloaded by the satellite.
+ * <p>
+ * The gap is computed as by CPLEX: (bound - incumbent) / incumbent. The acquisition gap is a gap on the sum of the costs:
+ * it is not the gap of the OPL models, whose objective (jnew in GoodAcqPlanning.mod) divides this sum by the number of
+ * windows and subtracts a penalty on the transition times.
+ *
+ */
+public class Bounds {
+
+	/** Number of subgradient iterations for the Lagrangian bound */
+	final static int lagrangianIterations = 50;
+
+	/** Problem for which bounds are computed */
+	public final PlanningProblem pb;
+	/** Acquisition windows of the problem */
+	final AcquisitionWindowStore store;
+	/** Lagrangian bound (computed once) */
+	double lagrangianBound = -1;
+
+	/**
+	 * Create the bounds of a problem
+	 * @param pb
+	 */
+	public Bounds(PlanningProblem pb){
+		this.pb = pb;
+		this.store = pb.getAcquisitionWindowStore();
+	}
+
+	/**
+	 *
+	 * @return the sum over the candidate acquisitions of the cost of their best window
+	 */
+	public double getCandidateBound(){
+		double[] best = new double[pb.candidateAcquisitions.size()];
+		for(int i=0;i<store.nWindows;i++)
+			best[store.candidate[i]] = Math.max(best[store.candidate[i]], store.cost[i]);
+		double bound = 0;
+		for(double v : best)
+			bound += v;
+		return bound;
+	}
+
+	/**
+	 *
+	 * @return the sum over the satellites of the value of the best sequence of windows, a candidate acquisition being possibly selected several times
+	 */
+	public double getSequenceBound(){
+		LagrangianAcquisitionPlanner planner = new LagrangianAcquisitionPlanner(pb);
+		AcquisitionSequence sequence = new AcquisitionSequence(store);
+		double bound = 0;
+		for(Satellite satellite : pb.satellites)
+			bound += planner.solve(satellite.idx, store.cost, sequence);
+		return bound;
+	}
+
+	/**
+	 *
+	 * @return the Lagrangian bound of the acquisition objective (relaxation of the constraint "at most one window per candidate acquisition")
+	 */
+	public double getLagrangianBound(){
+		if(lagrangianBound < 0){
+			LagrangianAcquisitionPlanner planner = new LagrangianAcquisitionPlanner(pb);
+			for(int i=0;i<store.nWindows;i++)
+				planner.multiplier[store.candidate[i]] = Math.max(planner.multiplier[store.candidate[i]], store.cost[i]);
+			planner.solve(lagrangianIterations);
+			lagrangianBound = planner.upperBound;
+		}
+		return lagrangianBound;
+	}
+
+	/**
+	 *
+	 * @return the best bound of the acquisition objective (sum of the costs of the windows selected)
+	 */
+	public double getAcquisitionBound(){
+		return Math.min(getCandidateBound(), getLagrangianBound());
+	}
+
+	/**
+	 *
+	 * @return a bound of the sum of the DownloadCost of the acquisitions downloaded (recorded acquisitions included)
+	 */
+	public double getDownloadBound(){
+		return getCapacityBound(false, null);
+	}
+
+	/**
+	 *
+	 * @param plan acquisition plan
+	 * @return a bound of the sum of the DownloadCost of the acquisitions downloaded, for the acquisitions of a plan (recorded acquisitions included)
+	 */
+	public double getDownloadBound(SolutionPlan plan){
+		return getCapacityBound(false, plan);
+	}
+
+	/**
+	 *
+	 * @return a bound of the sum of the costs of the candidate acquisitions downloaded (value delivered, see JointPlanner)
+	 */
+	public double getDeliveredBound(){
+		return Math.min(getAcquisitionBound(), getCapacityBound(true, null));
+	}
+
+	/**
+	 * Compute the capacity bound of a download objective. For each satellite, the items of the fractional knapsack are the
+	 * acquisitions which can be downloaded by the satellite. An acquisition with several windows on the satellite is
+	 * represented by one item dominating all its windows (best value, and best value per bit).
+	 * @param delivered true for the sum of the costs of the candidate acquisitions downloaded, false for the sum of the DownloadCost
+	 * @param plan acquisition plan whose acquisitions are the only candidate acquisitions which can be downloaded (null for all candidate acquisitions)
+	 * @return the bound
+	 */
+	double getCapacityBound(boolean delivered, SolutionPlan plan){
+		DownloadWindowIndex downloadWindowIndex = pb.getDownloadWindowIndex();
+		int nCandidates = pb.candidateAcquisitions.size();
+		double[] bestValue = new double[nCandidates];
+		double[] bestRatio = new double[nCandidates];
+		int[] lastSatellite = new int[nCandidates];
+		double bound = 0;
+		for(Satellite satellite : pb.satellites){
+			DownloadWindowIndex.Windows windows = downloadWindowIndex.getWindows(satellite);
+			int nWindows = windows.size();
+			if(nWindows == 0)
+				continue;
+			// download time of the satellite (union of its download windows)
+			double time = 0, end = Double.NEGATIVE_INFINITY;
+			for(int k=0;k<nWindows;k++){
+				time += Math.max(0, windows.end[k] - Math.max(windows.start[k], end));
+				end = Math.max(end, windows.end[k]);
+			}
+			double capacity = time * Params.downlinkRate;
+
+			// items (value, volume) of the acquisitions which can be downloaded before the end of the last window
+			List<Double> values = new ArrayList<Double>();
+			List<Double> volumes = new ArrayList<Double>();
+			if(!delivered){
+				for(RecordedAcquisition a : pb.getRecordedAcquisitions(satellite)){
+					if(a.acquisitionTime < end && a.volume > 0){
+						values.add(a.DownloadCost);
+						volumes.add((double) a.volume);
+					}
+				}
+			}
+			List<Integer> candidates = new ArrayList<Integer>();
+			for(int i=store.satelliteStart[satellite.idx];i<store.satelliteStart[satellite.idx+1];i++){
+				int c = store.candidate[i];
+				if(store.earliestStart[i] + store.duration[i] >= end || store.volume[i] <= 0)
+					continue;
+				if(plan != null && (!plan.isPlanned(pb.getCandidateAcquisition(c))
+						|| store.getPosition(plan.getSelectedAcquisitionWindow(pb.getCandidateAcquisition(c))) != i))
+					continue;
+				double v = delivered ? store.cost[i] : pb.getCandidateAcquisition(c).DownloadCost;
+				if(lastSatellite[c] != satellite.idx + 1){
+					lastSatellite[c] = satellite.idx + 1;
+					bestValue[c] = 0;
+					bestRatio[c] = 0;
+					candidates.add(c);
+				}
+				bestValue[c] = Math.max(bestValue[c], v);
+				bestRatio[c] = Math.max(bestRatio[c], v / store.volume[i]);
+			}
+			for(int c : candidates){
+				if(bestValue[c] > 0){
+					values.add(bestValue[c]);
+					volumes.add(bestValue[c] / bestRatio[c]);
+				}
+			}
+
+			// fractional knapsack
+			int n = values.size();
+			double[] keys = new double[n];
+			for(int i=0;i<n;i++)
+				keys[i] = -values.get(i) / volumes.get(i);
+			for(int i : Sorting.sortedByKey(n, keys)){
+				if(capacity <= 0)
+					break;
+				double fraction = Math.min(1, capacity / volumes.get(i));
+				bound += fraction * values.get(i);
+				capacity -= volumes.get(i);
+			}
+		}
+		return bound;
+	}
+
+	/**
+	 *
+	 * @param incumbent value of the best plan found
+	 * @param bound upper bound
+	 * @return the relative gap between the incumbent and the bound (as computed by CPLEX)
+	 */
+	public static double getGap(double incumbent, double bound){
+		return (bound - incumbent) / (1e-10 + Math.abs(incumbent));
+	}
+
+	/**
+	 * Print the incumbent, bound and gap of a planner run, and add them to the report file (one line per run:
+	 * planner, incumbent, bound, gap)
+	 * @param name name of the planner run
+	 * @param incumbent value of the plan found
+	 * @param bound upper bound
+	 * @throws IOException
+	 */
+	public static void report(String name, double incumbent, double bound) throws IOException{
+		double gap = getGap(incumbent, bound);
+		System.out.println(name + ": incumbent " + incumbent + ", bound " + bound + ", gap " + String.format("%.2f", 100 * gap) + "%");
+		new File(Params.gapReportFile).getAbsoluteFile().getParentFile().mkdirs();
+		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(Params.gapReportFile, true)));
+		writer.write(name + " " + incumbent + " " + bound + " " + gap + "\n");
+		writer.flush();
+		writer.close();
+	}
+
+	/**
+	 *
+	 * @param plan
+	 * @return the value of the acquisitions of a plan (sum of the costs of the windows selected)
+	 */
+	public static double getAcquisitionValue(SolutionPlan plan){
+		double v = 0;
+		for(CandidateAcquisition a : plan.plannedAcquisitions)
+			v += plan.getSelectedAcquisitionWindow(a).Cost;
+		return v;
+	}
+
+	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException{
+		PlanningProblem pb = ProblemSnapshot.read(Params.systemDataFile,Params.planningDataFile);
+		pb.printStatistics();
+		Bounds bounds = new Bounds(pb);
+		long t0 = System.currentTimeMillis();
+		System.out.println("Candidate bound: " + bounds.getCandidateBound());
+		System.out.println("Sequence bound: " + bounds.getSequenceBound());
+		System.out.println("Lagrangian bound: " + bounds.getLagrangianBound());
+		System.out.println("Download bound: " + bounds.getDownloadBound());
+		System.out.println("Delivered value bound: " + bounds.getDeliveredBound() + " (" + (System.currentTimeMillis() - t0) + " ms)");
+
+		// gap of the plans computed by CPLEX (on the sum of the costs, not on the objective jnew of the model)
+		if(new File("output/GoodSolutionAcqPlan.txt").exists()){
+			SolutionPlan plan = new SolutionPlan(pb);
+			plan.readAcquisitionPlan("output/GoodSolutionAcqPlan.txt");
+			report("GoodAcqPlanning (sum of Cost, not jnew)", getAcquisitionValue(plan), bounds.getAcquisitionBound());
+			if(new File("output/downloadPlan.txt").exists()){
+				plan.readDownloadPlan("output/downloadPlan.txt");
+				report("downloadPlan", FlowDownloadPlanner.getDownloadValue(plan), bounds.getDownloadBound());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,304 @@
+package solver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLStreamException;
+
+import params.Params;
+import problem.AcquisitionWindowStore;
+import problem.PlanningProblem;
+import problem.ProblemSnapshot;
+import problem.Sorting;
+
+/**
+ * Decomposition of the acquisition problem into independent sub-problems. The windows of a satellite, by increasing
+ * earliest start time, form time clusters separated by idle gaps: when the earliest start time of a window is after
+ * the latest end of all windows before it plus the maximum transition time, the start times of the acquisitions after the
+ * gap do not depend on the acquisitions before it. Two clusters are linked when they contain windows of the same
+ * candidate acquisition (at most one of them can be selected), and the components of the graph of the clusters and
+ * of these links (computed with a union-find) are independent sub-problems.
+ * <p>
+ * Each component is solved by the greedy insertion of GreedyAcquisitionPlanner restricted to its windows, as a ForkJoin
+ * task (largest components first), and the plans of the components are merged. Each component can also be written as a
+ * .dat file of the sparse OPL model; the solution files of all components can then be read one after the other
+ * with SolutionPlan.readAcquisitionPlan.
+ * <p>
+ * In the scenarios provided, most candidate acquisitions have windows in several clusters, so that all clusters are linked
+ * into a single component. The decomposition can then be relaxed by ignoring the links (linkCandidates false): each
+ * cluster is a component, and a candidate acquisition planned in several components is kept on the window of highest
+ * value when merging (as in ParallelPlanner), the time freed being filled again by a sequential greedy insertion of the
+ * windows overlapping it. The mass memory, which links all the components of a satellite, is checked when merging.
+ *
+ */
+public class ClusterDecomposition {
+
+	/** Problem decomposed */
+	public final PlanningProblem pb;
+	/** Acquisition windows of the problem */
+	final AcquisitionWindowStore store;
+	/** Value of each window (index: position in the store) */
+	final double[] value;
+	/** True if clusters containing windows of the same candidate acquisition are in the same component */
+	public final boolean linkCandidates;
+	/** Number of time clusters (all satellites) */
+	public final int nClusters;
+	/** Number of components */
+	public final int nComponents;
+	/** Component of each window (index: position in the store), components being numbered by their first window */
+	public final int[] component;
+	/** Windows of the components, by component then increasing position */
+	final int[] windows;
+	/** Position in windows of the first window of each component, followed by the number of windows */
+	final int[] firstWindow;
+
+	/**
+	 * Acquisition sub-problem of one component
+	 */
+	class ComponentTask extends RecursiveTask<AcquisitionSequence[]> {
+		private static final long serialVersionUID = 1L;
+		/** Planner in which the plans of the components are merged (only read by the task) */
+		final GreedyAcquisitionPlanner merged;
+		final int c;
+		/** Windows of the component, by decreasing value */
+		final int[] order;
+
+		ComponentTask(GreedyAcquisitionPlanner merged, int c, int[] order){
+			this.merged = merged;
+			this.c = c;
+			this.order = order;
+		}
+
+		@Override
+		protected AcquisitionSequence[] compute(){
+			return merged.planSubset(getWindows(c), order);
+		}
+	}
+
+	/**
+	 * Decompose a problem whose acquisition objective is the sum of the costs of the windows selected
+	 * @param pb
+	 * @param linkCandidates true for linking the clusters containing windows of the same candidate acquisition (exact decomposition)
+	 */
+	public ClusterDecomposition(PlanningProblem pb, boolean linkCandidates){
+		this(pb, pb.getAcquisitionWindowStore().cost, linkCandidates);
+	}
+
+	/**
+	 * Decompose a problem
+	 * @param pb
+	 * @param value value of each window (index: position in the acquisition window store)
+	 * @param linkCandidates true for linking the clusters containing windows of the same candidate acquisition (exact decomposition)
+	 */
+	public ClusterDecomposition(PlanningProblem pb, double[] value, boolean linkCandidates){
+		this.pb = pb;
+		this.store = pb.getAcquisitionWindowStore();
+		this.value = value;
+		this.linkCandidates = linkCandidates;
+		int n = store.nWindows;
+		int[] parent = new int[n];
+		for(int i=0;i<n;i++)
+			parent[i] = i;
+
+		// time clusters of each satellite
+		int nClusters = 0;
+		for(int s=0;s+1<store.satelliteStart.length;s++){
+			double end = Double.NEGATIVE_INFINITY;
+			for(int i=store.satelliteStart[s];i<store.satelliteStart[s+1];i++){
+				if(store.earliestStart[i] > end + store.maxTransitionTime)
+					nClusters++;
+				else
+					union(parent, i-1, i);
+				end = Math.max(end, store.latestStart[i] + store.duration[i]);
+			}
+		}
+		this.nClusters = nClusters;
+
+		// links between the windows of the same candidate acquisition
+		if(linkCandidates){
+			int[] first = new int[pb.candidateAcquisitions.size()];
+			Arrays.fill(first, -1);
+			for(int i=0;i<n;i++){
+				int c = store.candidate[i];
+				if(first[c] == -1)
+					first[c] = i;
+				else
+					union(parent, first[c], i);
+			}
+		}
+
+		// components numbered by their first window, and windows grouped by component
+		component = new int[n];
+		int[] number = new int[n];
+		Arrays.fill(number, -1);
+		int nComponents = 0;
+		for(int i=0;i<n;i++){
+			int r = find(parent, i);
+			if(number[r] == -1)
+				number[r] = nComponents++;
+			component[i] = number[r];
+		}
+		this.nComponents = nComponents;
+		firstWindow = new int[nComponents+1];
+		for(int i=0;i<n;i++)
+			firstWindow[component[i]+1]++;
+		for(int c=0;c<nComponents;c++)
+			firstWindow[c+1] += firstWindow[c];
+		windows = new int[n];
+		int[] next = Arrays.copyOf(firstWindow, nComponents);
+		for(int i=0;i<n;i++)
+			windows[next[component[i]]++] = i;
+	}
+
+	/**
+	 *
+	 * @param parent
+	 * @param i
+	 * @return the root of the tree containing i (with path halving)
+	 */
+	static int find(int[] parent, int i){
+		while(parent[i] != i){
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	/**
+	 * Merge the trees containing i and j
+	 * @param parent
+	 * @param i
+	 * @param j
+	 */
+	static void union(int[] parent, int i, int j){
+		int ri = find(parent, i), rj = find(parent, j);
+		if(ri != rj)
+			parent[Math.max(ri, rj)] = Math.min(ri, rj);
+	}
+
+	/**
+	 *
+	 * @param c
+	 * @return the windows of component c (positions in the store, by increasing position)
+	 */
+	public int[] getWindows(int c){
+		return Arrays.copyOfRange(windows, firstWindow[c], firstWindow[c+1]);
+	}
+
+	/**
+	 *
+	 * @param c
+	 * @return the number of windows of component c
+	 */
+	public int getNumberOfWindows(int c){
+		return firstWindow[c+1] - firstWindow[c];
+	}
+
+	/**
+	 *
+	 * @return the number of windows of the largest component
+	 */
+	public int getLargestComponentSize(){
+		int max = 0;
+		for(int c=0;c<nComponents;c++)
+			max = Math.max(max, getNumberOfWindows(c));
+		return max;
+	}
+
+	/**
+	 * Solve the components in parallel and merge their plans
+	 * @param pool pool executing the tasks
+	 * @return the merged acquisition plan
+	 */
+	public GreedyAcquisitionPlanner plan(ForkJoinPool pool){
+		GreedyAcquisitionPlanner merged = new GreedyAcquisitionPlanner(pb, value);
+		merged.setMemoryCapacity(Params.massMemoryCapacity);
+		// the value order is computed once, and split by component
+		int[] nWindows = new int[nComponents];
+		int[][] componentOrder = new int[nComponents][];
+		for(int c=0;c<nComponents;c++)
+			componentOrder[c] = new int[getNumberOfWindows(c)];
+		for(int w : GreedyAcquisitionPlanner.getValueOrder(value)){
+			int c = component[w];
+			componentOrder[c][nWindows[c]++] = w;
+		}
+		List<ComponentTask> tasks = new ArrayList<ComponentTask>();
+		for(int c=0;c<nComponents;c++)
+			tasks.add(new ComponentTask(merged, c, componentOrder[c]));
+		// largest components first, so that the total time is close to the time of the largest one
+		double[] keys = new double[nComponents];
+		for(int c=0;c<nComponents;c++)
+			keys[c] = -getNumberOfWindows(c);
+		for(int c : Sorting.sortedByKey(nComponents, keys))
+			pool.execute(tasks.get(c));
+		List<AcquisitionSequence[]> results = new ArrayList<AcquisitionSequence[]>();
+		for(ComponentTask task : tasks)
+			results.add(task.join());
+		merge(merged, results);
+		return merged;
+	}
+
+	/**
+	 * Merge the plans of the components into a plan, then fill the time freed by the windows dropped (candidate acquisitions
+	 * kept in another component, or mass memory exceeded)
+	 * @param merged empty plan in which the plans are merged
+	 * @param results sequences of each component (by component)
+	 */
+	void merge(GreedyAcquisitionPlanner merged, List<AcquisitionSequence[]> results){
+		// components do not interact, so that the start times of the windows of a component do not depend on the windows of the other components
+		List<AcquisitionSequence> sequences = new ArrayList<AcquisitionSequence>();
+		for(AcquisitionSequence[] componentSequences : results)
+			sequences.addAll(Arrays.asList(componentSequences));
+		int[] dropped = merged.mergeSequences(sequences);
+		merged.insertAround(dropped);
+	}
+
+	/**
+	 * Write one .dat file per component
+	 * @param datPrefix prefix of the .dat files (followed by the component number and .dat)
+	 * @param solutionPrefix prefix of the files in which CPLEX solutions will be written (followed by the component number and .txt)
+	 * @param sparse true for the sparse model (GoodAcqPlanningSparse.mod), false for the dense one (GoodAcqPlanning.mod)
+	 * @throws IOException
+	 */
+	public void writeDatFiles(String datPrefix, String solutionPrefix, boolean sparse) throws IOException{
+		for(int c=0;c<nComponents;c++){
+			if(sparse)
+				GoodAcquisitionPlanner.writeSparseDatFile(pb, getWindows(c), datPrefix + c + ".dat", solutionPrefix + c + ".txt");
+			else
+				GoodAcquisitionPlanner.writeDatFile(pb, getWindows(c), datPrefix + c + ".dat", solutionPrefix + c + ".txt");
+		}
+	}
+
+	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException{
+		PlanningProblem pb = ProblemSnapshot.read(Params.systemDataFile,Params.planningDataFile);
+		pb.printStatistics();
+		ForkJoinPool pool = new ForkJoinPool();
+		Bounds bounds = new Bounds(pb);
+
+		// exact decomposition: one .dat file per component
+		long t0 = System.currentTimeMillis();
+		ClusterDecomposition decomposition = new ClusterDecomposition(pb, true);
+		GreedyAcquisitionPlanner planner = decomposition.plan(pool);
+		System.out.println("Decomposition: " + decomposition.nClusters + " clusters, " + decomposition.nComponents + " components (largest: "
+				+ decomposition.getLargestComponentSize() + " windows), value " + planner.getValue() + " (" + (System.currentTimeMillis() - t0) + " ms)");
+		decomposition.writeDatFiles("output/GoodAcqPlanningSparse_", "GoodSolutionAcqPlan_", true);
+		planner.getPlan().writeAcquisitionPlan("output/DecompositionSolutionAcqPlan.txt");
+		Bounds.report("ClusterDecomposition", planner.getValue(), bounds.getAcquisitionBound());
+
+		// relaxed decomposition: one component per cluster
+		t0 = System.currentTimeMillis();
+		decomposition = new ClusterDecomposition(pb, false);
+		planner = decomposition.plan(pool);
+		pool.shutdown();
+		System.out.println("Relaxed decomposition: " + decomposition.nComponents + " components (largest: " + decomposition.getLargestComponentSize()
+				+ " windows), value " + planner.getValue() + " (" + (System.currentTimeMillis() - t0) + " ms, " + pool.getParallelism() + " threads)");
+		planner.getPlan().writeAcquisitionPlan("output/RelaxedDecompositionSolutionAcqPlan.txt");
+		Bounds.report("ClusterDecomposition (relaxed)", planner.getValue(), bounds.getAcquisitionBound());
+	}
+
+}
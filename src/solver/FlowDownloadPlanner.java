@@ -0,0 +1,208 @@
+package solver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLStreamException;
+
+import params.Params;
+import problem.Acquisition;
+import problem.DownloadWindowIndex;
+import problem.PlanningProblem;
+import problem.ProblemSnapshot;
+import problem.Satellite;
+import problem.Sorting;
+
+/**
+ * Download planner based on a minimum cost flow. For each satellite, the download windows are cut at the
+ * acquisition times (release times of the downloads) into time segments, and the flow network is:
+ * <ul>
+ * <li>source -> acquisition a: capacity = download duration of a, cost per second = -DownloadCost(a) / duration(a);</li>
+ * <li>acquisition a -> first segment starting after the acquisition time of a;</li>
+ * <li>segment -> next segment (download time not used in a segment can be used later);</li>
+ * <li>segment -> sink: capacity = length of the segment (that is, capacity of the window = (end - start) * Params.downlinkRate bits).</li>
+ * </ul>
+ * The minimum cost flow is the best assignment of download time if downloads could be interrupted. Acquisitions
+ * fully downloaded in this relaxation are then placed first (by increasing acquisition time, each one in the first
+ * window where it fits entirely), then the other acquisitions are placed if possible, by decreasing DownloadCost.
+ * Download windows of the same satellite are assumed not to overlap (as in the scenarios provided). When memory timelines
+ * are given, a download is placed only if its data fits in mass memory from the end of the acquisition until the end of
+ * the download (see MemoryTimeline).
+ *
+ */
+public class FlowDownloadPlanner {
+
+	/**
+	 * Plan the downloads of all satellites
+	 * @param plan plan containing the acquisitions realized, in which downloads are added
+	 * @return the plan
+	 */
+	public static SolutionPlan planDownloads(SolutionPlan plan){
+		return planDownloads(plan, null);
+	}
+
+	/**
+	 * Plan the downloads of all satellites, a download being placed only if its data fits in mass memory
+	 * from the end of the acquisition until the end of the download
+	 * @param plan plan containing the acquisitions realized, in which downloads are added
+	 * @param memory empty memory timeline of each satellite, filled with the downloads planned (null if memory is not taken into account)
+	 * @return the plan
+	 */
+	public static SolutionPlan planDownloads(SolutionPlan plan, MemoryTimeline[] memory){
+		List<List<Acquisition>> candidateDownloadsBySatellite = plan.getCandidateDownloadsBySatellite();
+		for(Satellite satellite : plan.pb.satellites)
+			planDownloads(plan, satellite, candidateDownloadsBySatellite.get(satellite.idx), (memory == null) ? null : memory[satellite.idx]);
+		return plan;
+	}
+
+	/**
+	 * Plan the downloads of one satellite
+	 * @param plan plan containing the acquisitions realized, in which downloads are added
+	 * @param satellite
+	 * @param candidateDownloads acquisitions of the satellite which are candidate for being downloaded, by increasing acquisition time
+	 */
+	public static void planDownloads(SolutionPlan plan, Satellite satellite, List<Acquisition> candidateDownloads){
+		planDownloads(plan, satellite, candidateDownloads, null);
+	}
+
+	/**
+	 * Plan the downloads of one satellite
+	 * @param plan plan containing the acquisitions realized, in which downloads are added
+	 * @param satellite
+	 * @param candidateDownloads acquisitions of the satellite which are candidate for being downloaded, by increasing acquisition time
+	 * @param memory memory timeline of the satellite, filled with the downloads planned (null if memory is not taken into account)
+	 */
+	public static void planDownloads(SolutionPlan plan, Satellite satellite, List<Acquisition> candidateDownloads, MemoryTimeline memory){
+		PlanningProblem pb = plan.pb;
+		DownloadWindowIndex.Windows windows = pb.getDownloadWindowIndex().getWindows(satellite);
+		int nWindows = windows.size();
+		int n = candidateDownloads.size();
+		if(nWindows == 0 || n == 0)
+			return;
+		double[] release = new double[n];
+		double[] duration = new double[n];
+		for(int i=0;i<n;i++){
+			Acquisition a = candidateDownloads.get(i);
+			release[i] = plan.getAcquisitionTime(a);
+			duration[i] = plan.getVolume(a) / Params.downlinkRate;
+		}
+
+		// time segments: windows cut at the release times which fall inside them (release times are sorted)
+		double[] segmentStart = new double[nWindows + n];
+		double[] segmentEnd = new double[nWindows + n];
+		int nSegments = 0;
+		int i = 0;
+		for(int k=0;k<nWindows;k++){
+			double t = windows.start[k];
+			while(i < n && release[i] <= t)
+				i++;
+			for(;i<n && release[i] < windows.end[k];i++){
+				if(release[i] > t){
+					segmentStart[nSegments] = t;
+					segmentEnd[nSegments++] = release[i];
+					t = release[i];
+				}
+			}
+			segmentStart[nSegments] = t;
+			segmentEnd[nSegments++] = windows.end[k];
+		}
+
+		// flow network: source 0, sink 1, acquisitions 2..n+1, segments n+2..n+nSegments+1
+		int source = 0, sink = 1;
+		MinCostFlow flow = new MinCostFlow(n + nSegments + 2);
+		int[] acquisitionArc = new int[n];
+		int segment = 0;
+		for(i=0;i<n;i++){
+			while(segment < nSegments && segmentStart[segment] < release[i])
+				segment++;
+			if(segment == nSegments || duration[i] <= 0){
+				acquisitionArc[i] = -1;
+				continue;
+			}
+			Acquisition a = candidateDownloads.get(i);
+			acquisitionArc[i] = flow.addArc(source, 2 + i, duration[i], -a.DownloadCost / duration[i]);
+			flow.addArc(2 + i, 2 + n + segment, duration[i], 0);
+		}
+		for(int s=0;s<nSegments;s++){
+			flow.addArc(2 + n + s, sink, segmentEnd[s] - segmentStart[s], 0);
+			if(s + 1 < nSegments)
+				flow.addArc(2 + n + s, 2 + n + s + 1, Double.POSITIVE_INFINITY, 0);
+		}
+		flow.solve(source, sink, Double.POSITIVE_INFINITY, true);
+
+		// sequencing: acquisitions fully assigned first, by increasing acquisition time, then the others by decreasing DownloadCost
+		double[] used = Arrays.copyOf(windows.start, nWindows);
+		List<Integer> others = new ArrayList<Integer>();
+		for(i=0;i<n;i++){
+			if(acquisitionArc[i] != -1 && flow.getFlow(acquisitionArc[i]) >= duration[i] - MinCostFlow.epsilon)
+				place(plan, candidateDownloads.get(i), release[i], duration[i], windows, used, memory);
+			else
+				others.add(i);
+		}
+		double[] keys = new double[others.size()];
+		for(int k=0;k<keys.length;k++)
+			keys[k] = -candidateDownloads.get(others.get(k)).DownloadCost;
+		for(int k : Sorting.sortedByKey(keys.length, keys)){
+			int j = others.get(k);
+			place(plan, candidateDownloads.get(j), release[j], duration[j], windows, used, memory);
+		}
+	}
+
+	/**
+	 * Place a download in the first window where it fits entirely after the downloads already placed in this window
+	 * @param plan
+	 * @param a
+	 * @param release acquisition time of a
+	 * @param duration download duration of a
+	 * @param windows download windows of the satellite
+	 * @param used time until which each window is used
+	 * @param memory memory timeline of the satellite, filled with the download placed (null if memory is not taken into account)
+	 * @return true if the download has been placed
+	 */
+	static boolean place(SolutionPlan plan, Acquisition a, double release, double duration, DownloadWindowIndex.Windows windows, double[] used,
+			MemoryTimeline memory){
+		for(int k=windows.firstEndingAfter(release + duration);k<windows.size();k++){
+			double t = Math.max(release, used[k]);
+			if(t + duration <= windows.end[k]){
+				// the earliest download is the best one for memory
+				if(memory != null && !memory.canAdd(release, t + duration, plan.getVolume(a)))
+					return false;
+				if(memory != null)
+					memory.add(release, t + duration, plan.getVolume(a));
+				plan.setDownload(a, plan.pb.getDownloadWindow(windows.idx[k]), t, t + duration);
+				used[k] = t + duration;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 *
+	 * @param plan
+	 * @return the sum of the DownloadCost of the acquisitions downloaded
+	 */
+	public static double getDownloadValue(SolutionPlan plan){
+		double v = 0;
+		for(Acquisition a : plan.plannedDownload)
+			v += a.DownloadCost;
+		return v;
+	}
+
+	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException{
+		PlanningProblem pb = ProblemSnapshot.read(Params.systemDataFile,Params.planningDataFile);
+		pb.printStatistics();
+		SolutionPlan plan = new SolutionPlan(pb);
+		plan.readAcquisitionPlan("output/GoodSolutionAcqPlan.txt");
+		long t0 = System.currentTimeMillis();
+		planDownloads(plan);
+		System.out.println("Flow download plan: " + plan.plannedDownload.size() + " downloads, value " + getDownloadValue(plan)
+				+ " (" + (System.currentTimeMillis() - t0) + " ms)");
+		plan.writeDownloadPlan("output/downloadPlan_flow.txt");
+		Bounds.report("FlowDownloadPlanner", getDownloadValue(plan), new Bounds(pb).getDownloadBound(plan));
+	}
+
+}
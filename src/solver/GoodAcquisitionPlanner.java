@@ -5,17 +5,20 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLStreamException;
 
 import params.Params;
-import problem.AcquisitionWindow;
+import problem.AcquisitionWindowStore;
 import problem.CandidateAcquisition;
 import problem.PlanningProblem;
-import problem.ProblemParserXML;
+import problem.ProblemSnapshot;
+import problem.SuccessorGraph;
 import problem.Satellite;
+import problem.Sorting;
 
 /**
  * Acquisition planner which solves the acquisition problem for each satellite separately,
@@ -36,232 +39,502 @@ public class GoodAcquisitionPlanner {
 	 */
 	public static void writeDatFile(PlanningProblem pb, 
 			String datFilename, String solutionFilename) throws IOException{
+		writeDatFile(pb, getAllWindows(pb), getAllSatellites(pb), datFilename, solutionFilename);
+	}
+
+	/**
+	 * Write a .dat file which represents the acquisition planning problem restricted to a subset of the acquisition windows
+	 * (for instance a component of ClusterDecomposition). Only the satellites having windows in the subset are written.
+	 * @param pb planning problem
+	 * @param windows positions in the acquisition window store of the windows written, by increasing position
+	 * @param datFilename name of the .dat file generated
+	 * @param solutionFilename name of the file in which CPLEX solution will be written
+	 * @throws IOException
+	 */
+	public static void writeDatFile(PlanningProblem pb, int[] windows,
+			String datFilename, String solutionFilename) throws IOException{
+		writeDatFile(pb, windows, getSatellites(pb, windows), datFilename, solutionFilename);
+	}
+
+	/**
+	 * Write the .dat file of a subset of the acquisition windows
+	 * @param pb planning problem
+	 * @param windows positions in the acquisition window store of the windows written, by increasing position
+	 * @param satellites idx of the satellites written, by increasing idx (satellites without window included)
+	 * @param datFilename
+	 * @param solutionFilename
+	 * @throws IOException
+	 */
+	static void writeDatFile(PlanningProblem pb, int[] windows, int[] satellites,
+			String datFilename, String solutionFilename) throws IOException{
 		// generate OPL data (only for the satellite selected)
 		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(datFilename, false)));
 
-		// get all acquisition windows involved in the problem
-		List<AcquisitionWindow> acquisitionWindows = new ArrayList<AcquisitionWindow>();
-		for(CandidateAcquisition a : pb.candidateAcquisitions){
-			for(AcquisitionWindow w : a.acquisitionWindows){
-				acquisitionWindows.add(w);							// Adding every ACQ window
-			}
-		}			
+		// get all acquisition windows involved in the problem (columnar view, windows of each satellite by increasing start time)
+		AcquisitionWindowStore acquisitionWindows = pb.getAcquisitionWindowStore();
+
+		writeAcquisitionWindows(writer, pb, acquisitionWindows, windows, satellites);
+		int nAcquisitionWindows = windows.length;
+
+		// write the transition times between acquisitions in acquisition windows
+		writer.write("\nTransitionTimes = [");
+		for(int i=0;i<nAcquisitionWindows;i++){
+			if(i != 0) writer.write(",");
+			writer.write("\n\t[");
+			for(int j=0;j<nAcquisitionWindows;j++){
+				if(j != 0) writer.write(",");
+				writer.write(""+acquisitionWindows.getTransitionTime(windows[i], windows[j]));
+			}	
+			writer.write("]");
+		}
+		writer.write("\n];");
+
+
+
+		// write the quota of the user
+		//				writer.write("\nQuotas = [");
+		//				for(int i=0;i<nUsers;i++){
+		//					AcquisitionWindow a1 = acquisitionWindows.get(i);
+		//					if(i != 0) writer.write(",");
+		//					writer.write("\n\t[");
+		//					for(int j=0;j<nAcquisitionWindows;j++){
+		//						if(j != 0) writer.write(",");
+		//						writer.write(""+pb.getTransitionTime(a1, acquisitionWindows.get(j)));
+		//					}	
+		//					writer.write("]");
+		//				}
+		//				writer.write("\n];");
 
+
+
+		// write the quota of the user
+		//				writer.write("\nQuotas = [");
+		//				for(int i=0;i<nUsers;i++){
+		//					AcquisitionWindow a1 = acquisitionWindows.get(i);
+		//					if(i != 0) writer.write(",");
+		//					writer.write("\n\t[");
+		//					for(int j=0;j<nAcquisitionWindows;j++){
+		//						if(j != 0) writer.write(",");
+		//						writer.write(""+pb.getTransitionTime(a1, acquisitionWindows.get(j)));
+		//					}	
+		//					writer.write("]");
+		//				}
+		//				writer.write("\n];");
+
+		// write the name of the file in which the result will be written
+		writer.write("\nOutputFile = \"" + solutionFilename + "\";");
+
+		// close the writer
+		writer.flush();
+		writer.close();		
+	}
+
+	/**
+	 * Write the data shared by the dense and sparse models: numbers of windows, candidates and satellites, and attributes of each acquisition window
+	 * @param writer
+	 * @param pb planning problem
+	 * @param acquisitionWindows acquisition windows of the problem
+	 * @param windows positions of the windows written, by increasing position (window windows[i] is window i+1 of the .dat file)
+	 * @param satellites idx of the satellites written (satellite satellites[k] is satellite k+1 of the .dat file)
+	 */
+	static void writeAcquisitionWindows(PrintWriter writer, PlanningProblem pb, AcquisitionWindowStore acquisitionWindows, int[] windows, int[] satellites){
 		// write the number of acquisition windows
-		int nAcquisitionWindows = acquisitionWindows.size();
+		int nAcquisitionWindows = windows.length;
 		writer.write("NacquisitionWindows = " + nAcquisitionWindows + ";");
 		
 		// write the total number of candidate acquisitions
 				int nCandidateAcquisitions = pb.candidateAcquisitions.size();
 				writer.write("\nNcandidates = " + nCandidateAcquisitions + ";");
 		
-		// write the number of satellites in the problem
-//				int nSatellites = pb.satellites.size();
-//				writer.write("Nsatellites = " + nSatellites + ";");
+		// write the number of satellites in the problem (one dummy acquisition window per satellite)
+		int nSatellites = satellites.length;
+		writer.write("\nNsatellites = " + nSatellites + ";");
 
 		// write the index of each acquisition
 		writer.write("\nCandidateAcquisitionIdx = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).candidateAcquisition.idx);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+acquisitionWindows.candidate[windows[0]]);
 			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).candidateAcquisition.idx);
+				writer.write(","+acquisitionWindows.candidate[windows[i]]);
 			}
 		}
 		writer.write("];");
 
 //		// write the Idx of the candidate acquisition associated to each acquisition window
 //		writer.write("\nAcqWindCandAcqIdx = [");
-//		if(!acquisitionWindows.isEmpty()){
-//			writer.write(""+acquisitionWindows.get(0).candidateAcquisition.idx);
+//		if(nAcquisitionWindows > 0){
+//			writer.write(""+acquisitionWindows.candidate[0]);
 //			for(int i=1;i<nAcquisitionWindows;i++){
-//				writer.write(","+acquisitionWindows.get(i).candidateAcquisition.idx);
+//				writer.write(","+acquisitionWindows.candidate[i]);
 //			}
 //		}
 //		writer.write("];");
 		
 		// write the cost of each acquisition
 		writer.write("\nCostFunc = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).Cost);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+acquisitionWindows.cost[windows[0]]);
 			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).Cost);
+				writer.write(","+acquisitionWindows.cost[windows[i]]);
 			}
 		}
 		writer.write("];");
 		
 		// write the priority of each acquisition
 		writer.write("\nCandidateAcquisitionPri = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).candidateAcquisition.priority);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+acquisitionWindows.priority[windows[0]]);
 			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).candidateAcquisition.priority);
+				writer.write(","+acquisitionWindows.priority[windows[i]]);
 			}
 		}
 		writer.write("];");
 
 		// write the index of each acquisition window
 		writer.write("\nAcquisitionWindowIdx = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).idx);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+acquisitionWindows.windowIdx[windows[0]]);
 			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).idx);
+				writer.write(","+acquisitionWindows.windowIdx[windows[i]]);
 			}
 		}
 		writer.write("];");
 		
-		// write the satellite index linked with each acquisition window
-				writer.write("\nSatelliteIdx = [");
-				if(!acquisitionWindows.isEmpty()){
-					writer.write(""+1);			// Dummy satellite 1
-					writer.write(","+2);		// Dummy satellite 2
-					writer.write(","+acquisitionWindows.get(0).satellite.idx);
-					for(int i=1;i<nAcquisitionWindows;i++){
-						writer.write(","+acquisitionWindows.get(i).satellite.idx);
-					}
-				}
-				writer.write("];");
+		// write the satellite index (from 1) linked with each acquisition window, starting with the dummy windows of all satellites
+		writer.write("\nSatelliteIdx = [");
+		for(int i=0;i<nSatellites;i++){
+			if(i != 0) writer.write(",");
+			writer.write(""+(i+1));
+		}
+		int[] satelliteNumber = getSatelliteNumbers(pb, satellites);
+		for(int i=0;i<nAcquisitionWindows;i++){
+			writer.write(","+(satelliteNumber[acquisitionWindows.satellite[windows[i]]]+1));
+		}
+		writer.write("];");
 
 		// write the earliest acquisition start time associated with each acquisition window
 		writer.write("\nEarliestStartTime = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).earliestStart);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+acquisitionWindows.earliestStart[windows[0]]);
 			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).earliestStart);
+				writer.write(","+acquisitionWindows.earliestStart[windows[i]]);
 			}
 		}
 		writer.write("];");
 
 		// write the latest acquisition start time associated with each acquisition window
 		writer.write("\nLatestStartTime = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).latestStart);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+acquisitionWindows.latestStart[windows[0]]);
 			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).latestStart);
+				writer.write(","+acquisitionWindows.latestStart[windows[i]]);
 			}
 		}
 		writer.write("];");
 
 		// write the duration of acquisitions in each acquisition window
 		writer.write("\nDuration = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).duration);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+acquisitionWindows.duration[windows[0]]);
 			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).duration);
+				writer.write(","+acquisitionWindows.duration[windows[i]]);
 			}
 		}
 		writer.write("];");
 
 		// write the cloud probability of acquisitions in each acquisition window
 		writer.write("\ncloudProba = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).cloudProba);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+acquisitionWindows.cloudProba[windows[0]]);
 			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).cloudProba);
+				writer.write(","+acquisitionWindows.cloudProba[windows[i]]);
 			}
 		}
 		writer.write("];");
 
 		// write the zenith-angle of acquisitions in each acquisition window
 		writer.write("\nZenangle = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).zenithAngle);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+acquisitionWindows.zenithAngle[windows[0]]);
 			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).zenithAngle);
+				writer.write(","+acquisitionWindows.zenithAngle[windows[i]]);
 			}
 		}
 		writer.write("];");
 		
 		// write the roll angle of acquisitions in each acquisition window
 		writer.write("\nRollangle = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).rollAngle);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+acquisitionWindows.rollAngle[windows[0]]);
 			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).rollAngle);
+				writer.write(","+acquisitionWindows.rollAngle[windows[i]]);
 			}
 		}
 		writer.write("];");
 		
 		// write the volume of acquisitions in each acquisition window
 		writer.write("\nVolume = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).volume);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+acquisitionWindows.volume[windows[0]]);
 			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).volume);
+				writer.write(","+acquisitionWindows.volume[windows[i]]);
 			}
 		}
 		writer.write("];");
 		
 		// write the quota of the user of acquisitions in each acquisition window
 		writer.write("\nCandidateAcquisitionQuota = [");
-		if(!acquisitionWindows.isEmpty()){
-			writer.write(""+acquisitionWindows.get(0).candidateAcquisition.user.quota);
+		if(nAcquisitionWindows > 0){
+			writer.write(""+pb.users.get(acquisitionWindows.user[windows[0]]).quota);
 			for(int i=1;i<nAcquisitionWindows;i++){
-				writer.write(","+acquisitionWindows.get(i).candidateAcquisition.user.quota);
+				writer.write(","+pb.users.get(acquisitionWindows.user[windows[i]]).quota);
 			}
 		}
 		writer.write("];");
-		
-		// write the transition times between acquisitions in acquisition windows
-		writer.write("\nTransitionTimes = [");
-		for(int i=0;i<nAcquisitionWindows;i++){
-			AcquisitionWindow a1 = acquisitionWindows.get(i);
-			if(i != 0) writer.write(",");
-			writer.write("\n\t[");
-			for(int j=0;j<nAcquisitionWindows;j++){
-				if(j != 0) writer.write(",");
-				writer.write(""+pb.getTransitionTime(a1, acquisitionWindows.get(j)));
-			}	
-			writer.write("]");
-		}
-		writer.write("\n];");
+	}
 
+	/**
+	 * Write a .dat file for the sparse acquisition model (GoodAcqPlanningSparse.mod): instead of the full matrix of
+	 * transition times, only the feasible successions between acquisition windows are written, as the sets of
+	 * successors and predecessors of each window (dummy windows included)
+	 * @param pb planning problem
+	 * @param datFilename name of the .dat file generated
+	 * @param solutionFilename name of the file in which CPLEX solution will be written
+	 * @throws IOException
+	 */
+	public static void writeSparseDatFile(PlanningProblem pb, 
+			String datFilename, String solutionFilename) throws IOException{
+		writeSparseDatFile(pb, getAllWindows(pb), getAllSatellites(pb), datFilename, solutionFilename);
+	}
 
+	/**
+	 * Write a .dat file for the sparse acquisition model restricted to a subset of the acquisition windows (for instance a
+	 * component of ClusterDecomposition): only the successions between windows of the subset are written, and only the
+	 * satellites having windows in the subset.
+	 * @param pb planning problem
+	 * @param windows positions in the acquisition window store of the windows written, by increasing position
+	 * @param datFilename name of the .dat file generated
+	 * @param solutionFilename name of the file in which CPLEX solution will be written
+	 * @throws IOException
+	 */
+	public static void writeSparseDatFile(PlanningProblem pb, int[] windows,
+			String datFilename, String solutionFilename) throws IOException{
+		writeSparseDatFile(pb, windows, getSatellites(pb, windows), datFilename, solutionFilename);
+	}
 
-		// write the quota of the user
-		//				writer.write("\nQuotas = [");
-		//				for(int i=0;i<nUsers;i++){
-		//					AcquisitionWindow a1 = acquisitionWindows.get(i);
-		//					if(i != 0) writer.write(",");
-		//					writer.write("\n\t[");
-		//					for(int j=0;j<nAcquisitionWindows;j++){
-		//						if(j != 0) writer.write(",");
-		//						writer.write(""+pb.getTransitionTime(a1, acquisitionWindows.get(j)));
-		//					}	
-		//					writer.write("]");
-		//				}
-		//				writer.write("\n];");
+	/**
+	 * Write the sparse .dat file of a subset of the acquisition windows
+	 * @param pb planning problem
+	 * @param windows positions in the acquisition window store of the windows written, by increasing position
+	 * @param satellites idx of the satellites written, by increasing idx (satellites without window included)
+	 * @param datFilename
+	 * @param solutionFilename
+	 * @throws IOException
+	 */
+	static void writeSparseDatFile(PlanningProblem pb, int[] windows, int[] satellites,
+			String datFilename, String solutionFilename) throws IOException{
+		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(datFilename, false)));
+		AcquisitionWindowStore acquisitionWindows = pb.getAcquisitionWindowStore();
+		writeAcquisitionWindows(writer, pb, acquisitionWindows, windows, satellites);
+		SuccessorGraph graph = pb.getSuccessorGraph();
+		int nSatellites = satellites.length;
+		int[] satelliteNumber = getSatelliteNumbers(pb, satellites);
+		// OPL index of each window of the store (0 for the windows which are not written)
+		int[] number = new int[acquisitionWindows.nWindows];
+		for(int i=0;i<windows.length;i++)
+			number[windows[i]] = i+1;
 
+		// write the rotation speed, from which the model computes the transition time of each arc
+		writer.write("\nMeanRotationSpeed = " + Params.meanRotationSpeed + ";");
 
+		// write the successors of each window: window windows[i] has OPL index i+1, dummy window of satellite k has OPL index k+1-nSatellites
+		writer.write("\nSuccessors = [");
+		for(int s=0;s<nSatellites;s++){
+			int dummy = s+1-nSatellites;
+			if(s != 0) writer.write(",");
+			writer.write("\n\t{" + dummy);
+			for(int i=0;i<windows.length;i++){
+				if(acquisitionWindows.satellite[windows[i]] == satellites[s])
+					writer.write("," + (i+1));
+			}
+			writer.write("}");
+		}
+		for(int a : windows){
+			writer.write(",\n\t{");
+			for(int k=graph.firstArc[a];k<graph.firstArc[a+1];k++){
+				if(number[graph.arcTo[k]] != 0)
+					writer.write(number[graph.arcTo[k]] + ",");
+			}
+			writer.write((satelliteNumber[acquisitionWindows.satellite[a]]+1-nSatellites) + "}");
+		}
+		writer.write("\n];");
 
-		// write the quota of the user
-		//				writer.write("\nQuotas = [");
-		//				for(int i=0;i<nUsers;i++){
-		//					AcquisitionWindow a1 = acquisitionWindows.get(i);
-		//					if(i != 0) writer.write(",");
-		//					writer.write("\n\t[");
-		//					for(int j=0;j<nAcquisitionWindows;j++){
-		//						if(j != 0) writer.write(",");
-		//						writer.write(""+pb.getTransitionTime(a1, acquisitionWindows.get(j)));
-		//					}	
-		//					writer.write("]");
-		//				}
-		//				writer.write("\n];");
+		// write the predecessors of each window
+		writer.write("\nPredecessors = [");
+		for(int s=0;s<nSatellites;s++){
+			int dummy = s+1-nSatellites;
+			if(s != 0) writer.write(",");
+			writer.write("\n\t{" + dummy);
+			for(int i=0;i<windows.length;i++){
+				if(acquisitionWindows.satellite[windows[i]] == satellites[s])
+					writer.write("," + (i+1));
+			}
+			writer.write("}");
+		}
+		for(int a : windows){
+			writer.write(",\n\t{" + (satelliteNumber[acquisitionWindows.satellite[a]]+1-nSatellites));
+			for(int k=graph.firstInArc[a];k<graph.firstInArc[a+1];k++){
+				int from = graph.arcFrom[graph.inArcs[k]];
+				if(number[from] != 0)
+					writer.write("," + number[from]);
+			}
+			writer.write("}");
+		}
+		writer.write("\n];");
 
 		// write the name of the file in which the result will be written
 		writer.write("\nOutputFile = \"" + solutionFilename + "\";");
 
 		// close the writer
 		writer.flush();
-		writer.close();		
+		writer.close();
+	}
+
+	/**
+	 *
+	 * @param pb
+	 * @return the positions of all acquisition windows of the problem
+	 */
+	static int[] getAllWindows(PlanningProblem pb){
+		int[] windows = new int[pb.getAcquisitionWindowStore().nWindows];
+		for(int i=0;i<windows.length;i++)
+			windows[i] = i;
+		return windows;
+	}
+
+	/**
+	 *
+	 * @param pb
+	 * @return the idx of all satellites of the problem
+	 */
+	static int[] getAllSatellites(PlanningProblem pb){
+		int[] satellites = new int[pb.satellites.size()];
+		for(int s=0;s<satellites.length;s++)
+			satellites[s] = s;
+		return satellites;
+	}
+
+	/**
+	 *
+	 * @param pb
+	 * @param windows positions of acquisition windows, by increasing position
+	 * @return the idx of the satellites of these windows, by increasing idx
+	 */
+	static int[] getSatellites(PlanningProblem pb, int[] windows){
+		AcquisitionWindowStore acquisitionWindows = pb.getAcquisitionWindowStore();
+		int[] satellites = new int[pb.satellites.size()];
+		int n = 0;
+		for(int w : windows){
+			if(n == 0 || satellites[n-1] != acquisitionWindows.satellite[w])
+				satellites[n++] = acquisitionWindows.satellite[w];
+		}
+		return Arrays.copyOf(satellites, n);
+	}
+
+	/**
+	 *
+	 * @param pb
+	 * @param satellites idx of the satellites written in a .dat file
+	 * @return the number (from 0) of each satellite in the .dat file (index: satellite idx, -1 if the satellite is not written)
+	 */
+	static int[] getSatelliteNumbers(PlanningProblem pb, int[] satellites){
+		int[] number = new int[pb.satellites.size()];
+		Arrays.fill(number, -1);
+		for(int k=0;k<satellites.length;k++)
+			number[satellites[k]] = k;
+		return number;
+	}
+
+	/**
+	 * Write a MIP start file (CPLEX .mst format) for the acquisition models from an acquisition plan, for instance a plan
+	 * repaired by WarmStart. Window i of the store is window i+1 of the .dat file (see writeAcquisitionWindows), and variables
+	 * are named as OPL names them: selectAcq(i) for all windows, startTime(i) for the windows selected and, for the dense model,
+	 * next(i)(j) for the successive windows of each satellite (dummy windows included). In the sparse model, next is indexed by
+	 * tuples and is not written: CPLEX completes partial MIP starts. The file can be loaded with cplex.readMIPStarts in a flow
+	 * control script, before solving the model.
+	 * @param plan acquisition plan (acquisitions whose window is not in the problem are ignored)
+	 * @param mstFilename name of the .mst file generated
+	 * @param sparse true for the sparse model (GoodAcqPlanningSparse.mod), false for the dense one (GoodAcqPlanning.mod)
+	 * @throws IOException
+	 */
+	public static void writeMipStartFile(SolutionPlan plan, String mstFilename, boolean sparse) throws IOException{
+		PlanningProblem pb = plan.pb;
+		AcquisitionWindowStore acquisitionWindows = pb.getAcquisitionWindowStore();
+		int nSatellites = pb.satellites.size();
+		int nAcquisitionWindows = acquisitionWindows.nWindows;
+
+		// windows selected, in chronological order
+		int n = plan.plannedAcquisitions.size();
+		double[] startTimes = new double[n];
+		for(int i=0;i<n;i++)
+			startTimes[i] = plan.getAcquisitionStartTime(plan.plannedAcquisitions.get(i));
+		boolean[] selected = new boolean[nAcquisitionWindows];
+		double[] startTime = new double[nAcquisitionWindows];
+		List<List<Integer>> sequences = new ArrayList<List<Integer>>();
+		for(int s=0;s<nSatellites;s++)
+			sequences.add(new ArrayList<Integer>());
+		for(int i : Sorting.sortedByKey(n, startTimes)){
+			CandidateAcquisition a = plan.plannedAcquisitions.get(i);
+			int w = acquisitionWindows.getPosition(plan.getSelectedAcquisitionWindow(a));
+			if(w == -1)
+				continue;
+			selected[w] = true;
+			startTime[w] = startTimes[i];
+			sequences.get(acquisitionWindows.satellite[w]).add(w+1);
+		}
+
+		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(mstFilename, false)));
+		writer.write("<?xml version = \"1.0\" standalone=\"yes\"?>");
+		writer.write("\n<CPLEXSolutions version=\"1.2\">");
+		writer.write("\n <CPLEXSolution version=\"1.2\">");
+		writer.write("\n  <header problemName=\"" + (sparse ? "GoodAcqPlanningSparse" : "GoodAcqPlanning") + "\" solutionName=\"warmStart\" solutionIndex=\"-1\"/>");
+		writer.write("\n  <variables>");
+		for(int d=1-nSatellites;d<=0;d++)
+			writer.write("\n   <variable name=\"selectAcq(" + d + ")\" value=\"1\"/>");
+		for(int i=0;i<nAcquisitionWindows;i++)
+			writer.write("\n   <variable name=\"selectAcq(" + (i+1) + ")\" value=\"" + (selected[i] ? 1 : 0) + "\"/>");
+		for(int i=0;i<nAcquisitionWindows;i++){
+			if(selected[i])
+				writer.write("\n   <variable name=\"startTime(" + (i+1) + ")\" value=\"" + startTime[i] + "\"/>");
+		}
+		if(!sparse){
+			for(int s=0;s<nSatellites;s++){
+				List<Integer> sequence = sequences.get(s);
+				if(sequence.isEmpty())
+					continue;
+				int dummy = s+1-nSatellites;
+				int previous = dummy;
+				for(int w : sequence){
+					writer.write("\n   <variable name=\"next(" + previous + ")(" + w + ")\" value=\"1\"/>");
+					previous = w;
+				}
+				writer.write("\n   <variable name=\"next(" + previous + ")(" + dummy + ")\" value=\"1\"/>");
+			}
+		}
+		writer.write("\n  </variables>");
+		writer.write("\n </CPLEXSolution>");
+		writer.write("\n</CPLEXSolutions>\n");
+		writer.flush();
+		writer.close();
 	}
 
 	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException{
-		ProblemParserXML parser = new ProblemParserXML(); 
-		PlanningProblem pb = parser.read(Params.systemDataFile,Params.planningDataFile);
+		PlanningProblem pb = ProblemSnapshot.read(Params.systemDataFile,Params.planningDataFile);
 		pb.printStatistics();
 		String datFilename = "output/GoodAcqPlanning.dat";
 		String solutionFilename = "GoodSolutionAcqPlan.txt";
 		writeDatFile(pb, datFilename, solutionFilename);
+		writeSparseDatFile(pb, "output/GoodAcqPlanningSparse.dat", solutionFilename);
 	}
 
 }
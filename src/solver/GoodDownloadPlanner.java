@@ -5,9 +5,6 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.text.ParseException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 import javax.xml.stream.FactoryConfigurationError;
@@ -17,10 +14,9 @@ import params.Params;
 import problem.Acquisition;
 import problem.AcquisitionWindow;
 import problem.CandidateAcquisition;
-import problem.DownloadWindow;
+import problem.DownloadWindowIndex;
 import problem.PlanningProblem;
-import problem.RecordedAcquisition;
-import problem.ProblemParserXML;
+import problem.ProblemSnapshot;
 import problem.Satellite;
 
 /**
@@ -34,90 +30,28 @@ public class GoodDownloadPlanner {
 	
 	public static void writeDatFile(SolutionPlan plan, Satellite satellite, 
 			String datFilename, String solutionFilename) throws IOException{
+		writeDatFile(plan, satellite, plan.getCandidateDownloadsBySatellite().get(satellite.idx), datFilename, solutionFilename);
+	}
+
+	/**
+	 * Write the .dat file of the download problem of a satellite
+	 * @param plan plan containing the acquisitions realized
+	 * @param satellite
+	 * @param candidateDownloads acquisitions of the satellite which are candidate for being downloaded, by increasing acquisition time
+	 * @param datFilename
+	 * @param solutionFilename
+	 * @throws IOException
+	 */
+	static void writeDatFile(SolutionPlan plan, Satellite satellite, List<Acquisition> candidateDownloads,
+			String datFilename, String solutionFilename) throws IOException{
 		
 		// Preparing data for the .DAT file
 		PlanningProblem pb = plan.pb;
-		List<CandidateAcquisition> acqPlan = plan.plannedAcquisitions;
 
 		
-		boolean firstLine = true;
-
-		// plan downloads for each satellite independently (possible due to the configuration of the constellation)
-			int NumberofRecorded = 0;
-			// get all recorded acquisitions associated with this satellite
-			List<Acquisition> candidateDownloads = new ArrayList<Acquisition>();
-			for(RecordedAcquisition dl : pb.recordedAcquisitions){
-				if(dl.satellite == satellite) {
-					candidateDownloads.add(dl);
-					NumberofRecorded = NumberofRecorded + 1;
-				}
-					
-			}
-			// get all planned acquisitions associated with this satellite
-			for(CandidateAcquisition a : acqPlan){
-				if(a.selectedAcquisitionWindow.satellite == satellite)
-					candidateDownloads.add(a);
-			}
-			// sort acquisitions by increasing start time
-			Collections.sort(candidateDownloads, new Comparator<Acquisition>(){
-				@Override
-				public int compare(Acquisition a0, Acquisition a1) {
-					double start0 = a0.getAcquisitionTime(); 
-					double start1 = a1.getAcquisitionTime();
-					if(start0 < start1)
-						return -1;
-					if(start0 > start1)
-						return 1;
-					return 0;
-				}
-
-			});
-
-			// sort download windows by increasing start time
-			List<DownloadWindow> downloadWindows = new ArrayList<DownloadWindow>();
-			for(DownloadWindow w : pb.downloadWindows){
-				if(w.satellite == satellite)
-					downloadWindows.add(w);
-			}
-			Collections.sort(downloadWindows, new Comparator<DownloadWindow>(){
-				@Override
-				public int compare(DownloadWindow a0, DownloadWindow a1) {
-					double start0 = a0.start; 
-					double start1 = a1.start;
-					if(start0 < start1)
-						return -1;
-					if(start0 > start1)
-						return 1;
-					return 0;
-				}
-			});			
-
-			// chronological traversal of all download windows combined with a chronological traversal of acquisitions which are candidate for being downloaded
-			int currentDownloadWindowIdx = 0;
-			DownloadWindow currentWindow = downloadWindows.get(currentDownloadWindowIdx);
-			double currentTime = currentWindow.start;
-			for(Acquisition a : candidateDownloads){
-				currentTime = Math.max(currentTime, a.getAcquisitionTime());
-				double dlDuration = a.getVolume() / Params.downlinkRate;
-				while(currentTime + dlDuration > currentWindow.end){					
-					currentDownloadWindowIdx++;
-					if(currentDownloadWindowIdx < downloadWindows.size()){
-						currentWindow = downloadWindows.get(currentDownloadWindowIdx);
-						currentTime = Math.max(currentTime, currentWindow.start);
-					}
-					else
-						break;
-				}
-				
-				if(currentDownloadWindowIdx >= downloadWindows.size())
-					break;
-
-				if(firstLine){
-					firstLine = false;
-				}
-				currentTime += dlDuration;
-			}
-		
+		int NumberofRecorded = pb.getRecordedAcquisitions(satellite).size();
+		// acquisitions are already sorted by increasing start time, download windows are taken sorted by increasing start time from the index
+		DownloadWindowIndex.Windows downloadWindows = pb.getDownloadWindowIndex().getWindows(satellite);
 
 		// generate OPL data (only for the satellite selected)
 		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(datFilename, false)));
@@ -147,10 +81,10 @@ public class GoodDownloadPlanner {
 
 		// write the index of each download window
 		writer.write("\nDownloadWindowIdx = [");
-		if(!downloadWindows.isEmpty()){
-			writer.write(""+downloadWindows.get(0).idx);
+		if(nDownloadWindows > 0){
+			writer.write(""+downloadWindows.idx[0]);
 			for(int i=1;i<nDownloadWindows;i++){
-				writer.write(","+downloadWindows.get(i).idx);
+				writer.write(","+downloadWindows.idx[i]);
 			}
 		}
 		writer.write("];");
@@ -178,29 +112,29 @@ public class GoodDownloadPlanner {
 		// write the ending time of the acquisition of each candidate download
 		writer.write("\nEarliestStartTime = [");
 		if(!candidateDownloads.isEmpty()){
-			writer.write(""+candidateDownloads.get(0).getAcquisitionTime());
+			writer.write(""+plan.getAcquisitionTime(candidateDownloads.get(0)));
 			for(int i=1;i<nCandidateDownloads;i++){
-				writer.write(","+candidateDownloads.get(i).getAcquisitionTime());
+				writer.write(","+plan.getAcquisitionTime(candidateDownloads.get(i)));
 			}
 		}
 		writer.write("];");
 
 		// write the start time of each download window
 		writer.write("\nWindowEndTime = [");
-		if(!downloadWindows.isEmpty()){
-			writer.write(""+downloadWindows.get(0).end);
+		if(nDownloadWindows > 0){
+			writer.write(""+downloadWindows.end[0]);
 			for(int i=1;i<nDownloadWindows;i++){
-				writer.write(","+downloadWindows.get(i).end);
+				writer.write(","+downloadWindows.end[i]);
 			}
 		}
 		writer.write("];");
 
 		// write the end time of each download window
 		writer.write("\nWindowStartTime = [");
-		if(!downloadWindows.isEmpty()){
-			writer.write(""+downloadWindows.get(0).start);
+		if(nDownloadWindows > 0){
+			writer.write(""+downloadWindows.start[0]);
 			for(int i=1;i<nDownloadWindows;i++){
-				writer.write(","+downloadWindows.get(i).start);
+				writer.write(","+downloadWindows.start[i]);
 			}
 		}
 		writer.write("];");
@@ -208,9 +142,9 @@ public class GoodDownloadPlanner {
 		// write the DownloadTime of each acquisition
 		writer.write("\nDuration = [");
 		if(!candidateDownloads.isEmpty()){
-			writer.write(""+candidateDownloads.get(0).getVolume() / Params.downlinkRate);
+			writer.write(""+plan.getVolume(candidateDownloads.get(0)) / Params.downlinkRate);
 			for(int i=1;i<nCandidateDownloads;i++){
-				writer.write(","+candidateDownloads.get(i).getVolume() / Params.downlinkRate);
+				writer.write(","+plan.getVolume(candidateDownloads.get(i)) / Params.downlinkRate);
 			}
 		}
 		writer.write("];");
@@ -224,15 +158,15 @@ public class GoodDownloadPlanner {
 	}
 	
 	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException{
-		ProblemParserXML parser = new ProblemParserXML(); 
-		PlanningProblem pb = parser.read(Params.systemDataFile,Params.planningDataFile);
+		PlanningProblem pb = ProblemSnapshot.read(Params.systemDataFile,Params.planningDataFile);
 		SolutionPlan plan = new SolutionPlan(pb);
 		plan.readAcquisitionPlan("output/GoodSolutionAcqPlan.txt");
 		pb.printStatistics();
+		List<List<Acquisition>> candidateDownloadsBySatellite = plan.getCandidateDownloadsBySatellite();
 		for(Satellite satellite : pb.satellites){
 			String datFilename = "output/DLPlanning_"+satellite.name+".dat";
 			String solutionFilename = "solutionDLPlan_"+satellite.name+".txt";
-			writeDatFile(plan, satellite, datFilename, solutionFilename);
+			writeDatFile(plan, satellite, candidateDownloadsBySatellite.get(satellite.idx), datFilename, solutionFilename);
 		}
 	}
 	
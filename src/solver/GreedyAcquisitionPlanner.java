@@ -0,0 +1,380 @@
+package solver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLStreamException;
+
+import params.Params;
+import problem.AcquisitionWindow;
+import problem.AcquisitionWindowIndex;
+import problem.AcquisitionWindowStore;
+import problem.CandidateAcquisition;
+import problem.PlanningProblem;
+import problem.ProblemSnapshot;
+import problem.RecordedAcquisition;
+import problem.Satellite;
+import problem.Sorting;
+
+/**
+ * Acquisition planner which builds the acquisition plan directly in Java (no OPL/CPLEX model), by
+ * inserting acquisition windows one by one in the sequence of their satellite, by decreasing value
+ * (by default, AcquisitionWindow.Cost; GoodAcqPlanning.mod maximizes a different objective, jnew, in which the sum of
+ * the costs is divided by NacquisitionWindows and a penalty on the transition times is subtracted). A window is
+ * inserted if its candidate acquisition is not planned yet and if the sequence remains feasible
+ * (acquisition windows and transition times respected). Optionally, the mass memory of each satellite is also
+ * taken into account (see setMemoryCapacity).
+ *
+ */
+public class GreedyAcquisitionPlanner {
+
+	/** Problem for which the plan is built */
+	public final PlanningProblem pb;
+	/** Acquisition windows of the problem */
+	public final AcquisitionWindowStore store;
+	/** Value of each window (index: position in the store) */
+	public final double[] value;
+	/** Sequence of acquisitions of each satellite (index: satellite idx) */
+	public final AcquisitionSequence[] sequences;
+	/** Window selected for each candidate acquisition (index: candidate idx, -1 if the acquisition is not planned) */
+	public final int[] selectedWindow;
+	/** Memory timeline of each satellite (null if memory is not taken into account) */
+	MemoryTimeline[] memory;
+	/** Time range during which the data of each window is stored in memory (index: position in the store) */
+	double[] memoryStart, memoryEnd;
+
+	/**
+	 * Create a planner with an empty plan, whose objective is the sum of the costs of the windows selected
+	 * @param pb
+	 */
+	public GreedyAcquisitionPlanner(PlanningProblem pb){
+		this(pb, pb.getAcquisitionWindowStore().cost);
+	}
+
+	/**
+	 * Create a planner with an empty plan
+	 * @param pb
+	 * @param value value of each window (index: position in the acquisition window store)
+	 */
+	public GreedyAcquisitionPlanner(PlanningProblem pb, double[] value){
+		this.pb = pb;
+		this.store = pb.getAcquisitionWindowStore();
+		this.value = value;
+		sequences = new AcquisitionSequence[pb.satellites.size()];
+		for(int s=0;s<sequences.length;s++)
+			sequences[s] = new AcquisitionSequence(store);
+		selectedWindow = new int[pb.candidateAcquisitions.size()];
+		Arrays.fill(selectedWindow, -1);
+	}
+
+	/**
+	 * Take the mass memory of the satellites into account: a window is inserted only if its data fits in memory
+	 * from the earliest end of the window until the estimated download of the data (see MemoryTimeline.getEstimatedReleaseTime).
+	 * Acquisitions already recorded occupy the memory from the start of the horizon. Must be called before inserting windows.
+	 * @param capacity capacity of the mass memory of each satellite (in bits)
+	 */
+	public void setMemoryCapacity(double capacity){
+		memory = new MemoryTimeline[sequences.length];
+		for(Satellite satellite : pb.satellites){
+			memory[satellite.idx] = new MemoryTimeline(pb, capacity);
+			for(RecordedAcquisition a : pb.getRecordedAcquisitions(satellite)){
+				double t = Math.max(pb.horizonStart, a.acquisitionTime);
+				memory[satellite.idx].add(t, MemoryTimeline.getEstimatedReleaseTime(pb, satellite, t, a.volume / Params.downlinkRate), a.volume);
+			}
+		}
+		memoryStart = new double[store.nWindows];
+		memoryEnd = new double[store.nWindows];
+		for(int w=0;w<store.nWindows;w++){
+			memoryStart[w] = store.earliestStart[w] + store.duration[w];
+			memoryEnd[w] = MemoryTimeline.getEstimatedReleaseTime(pb, pb.satellites.get(store.satellite[w]),
+					store.latestStart[w] + store.duration[w], store.volume[w] / Params.downlinkRate);
+		}
+	}
+
+	/**
+	 *
+	 * @param value value of each window
+	 * @return all windows by decreasing value (windows with the same value are kept in store order)
+	 */
+	public static int[] getValueOrder(double[] value){
+		double[] keys = new double[value.length];
+		for(int i=0;i<value.length;i++)
+			keys[i] = -value[i];
+		return Sorting.sortedByKey(value.length, keys);
+	}
+
+	/**
+	 * Try to insert a window in the plan
+	 * @param w window (position in the store)
+	 * @return true if the window has been inserted
+	 */
+	public boolean tryInsert(int w){
+		if(selectedWindow[store.candidate[w]] != -1 || value[w] <= 0)
+			return false;
+		if(!fitsInMemory(w) || !sequences[store.satellite[w]].tryInsert(w))
+			return false;
+		updateMemory(w, 1);
+		selectedWindow[store.candidate[w]] = w;
+		return true;
+	}
+
+	/**
+	 *
+	 * @param w window (position in the store)
+	 * @return true if the data of the window fits in the memory of its satellite (always true if memory is not taken into account)
+	 */
+	boolean fitsInMemory(int w){
+		return memory == null || memory[store.satellite[w]].canAdd(memoryStart[w], memoryEnd[w], store.volume[w]);
+	}
+
+	/**
+	 * Add the data of a window to the memory timeline of its satellite, or remove it (nothing is done if memory is not taken into account)
+	 * @param w window (position in the store)
+	 * @param sign 1 for adding the data, -1 for removing it
+	 */
+	void updateMemory(int w, int sign){
+		if(memory != null)
+			memory[store.satellite[w]].add(memoryStart[w], memoryEnd[w], sign * store.volume[w]);
+	}
+
+	/**
+	 * Remove the k-th acquisition of the sequence of satellite s
+	 * @param s
+	 * @param k
+	 */
+	public void remove(int s, int k){
+		int w = sequences[s].getWindow(k);
+		sequences[s].remove(k);
+		updateMemory(w, -1);
+		selectedWindow[store.candidate[w]] = -1;
+	}
+
+	/**
+	 * Try to insert windows in the plan, in a given order
+	 * @param order windows (positions in the store)
+	 * @return the number of windows inserted
+	 */
+	public int insertAll(int[] order){
+		int nInserted = 0;
+		for(int w : order){
+			if(tryInsert(w))
+				nInserted++;
+		}
+		return nInserted;
+	}
+
+	/**
+	 * Try to insert the acquisitions of a plan (for instance a plan computed before a modification of the problem),
+	 * by increasing start time. Acquisitions whose window is no longer in the problem are ignored.
+	 * @param plan
+	 * @return the number of acquisitions inserted
+	 */
+	public int insertPlan(SolutionPlan plan){
+		int n = plan.plannedAcquisitions.size();
+		double[] startTimes = new double[n];
+		for(int i=0;i<n;i++)
+			startTimes[i] = plan.getAcquisitionStartTime(plan.plannedAcquisitions.get(i));
+		int nInserted = 0;
+		for(int i : Sorting.sortedByKey(n, startTimes)){
+			CandidateAcquisition a = plan.plannedAcquisitions.get(i);
+			int w = store.getPosition(a.idx, plan.getSelectedAcquisitionWindow(a).idx);
+			if(w != -1 && tryInsert(w))
+				nInserted++;
+		}
+		return nInserted;
+	}
+
+	/**
+	 * Insert a subset of the windows greedily into empty sequences, without modifying the plan, so that sub-problems
+	 * (satellites, clusters...) can be solved in parallel: the arrays used have the size of the subset only, and the
+	 * mass memory is not taken into account (it is checked when the sequences are merged, see mergeSequences)
+	 * @param windows windows of the subset (positions in the store), by increasing position
+	 * @param order windows of the subset in the order of insertion
+	 * @return the sequence of each satellite (empty for the satellites without window in the subset)
+	 */
+	public AcquisitionSequence[] planSubset(int[] windows, int[] order){
+		AcquisitionSequence[] subSequences = new AcquisitionSequence[sequences.length];
+		for(int s=0;s<subSequences.length;s++)
+			subSequences[s] = new AcquisitionSequence(store);
+		// windows of the subset whose candidate acquisition is planned (index: rank in windows)
+		boolean[] planned = new boolean[windows.length];
+		for(int w : order){
+			if(planned[Arrays.binarySearch(windows, w)] || value[w] <= 0 || !subSequences[store.satellite[w]].tryInsert(w))
+				continue;
+			CandidateAcquisition a = pb.getCandidateAcquisition(store.candidate[w]);
+			for(AcquisitionWindow window : a.acquisitionWindows){
+				int i = Arrays.binarySearch(windows, store.getPosition(a.idx, window.idx));
+				if(i >= 0)
+					planned[i] = true;
+			}
+		}
+		return subSequences;
+	}
+
+	/**
+	 * Build the plan from sequences which may select several windows of the same candidate acquisition (for instance the
+	 * sequences of sub-problems solved separately): each candidate acquisition keeps its window of highest value (in the
+	 * first sequence in case of equality), and the windows kept are appended to the sequence of their satellite by
+	 * increasing start time. The sequences must not interact, except through candidate acquisitions and mass memory (as the
+	 * sequences of different satellites, or of different clusters of ClusterDecomposition), so that the windows kept are still
+	 * feasible, except for memory: windows whose data does not fit in memory are not planned. The plan must be empty.
+	 * @param subSequences sequences to merge (not modified)
+	 * @return the windows of the sequences which are not planned (candidate acquisition kept on another window, or memory exceeded)
+	 */
+	public int[] mergeSequences(List<AcquisitionSequence> subSequences){
+		int[] kept = new int[selectedWindow.length];
+		Arrays.fill(kept, -1);
+		for(AcquisitionSequence sequence : subSequences){
+			for(int k=0;k<sequence.size();k++){
+				int w = sequence.getWindow(k);
+				int c = store.candidate[w];
+				if(kept[c] == -1 || value[w] > value[kept[c]])
+					kept[c] = w;
+			}
+		}
+		// windows kept on each satellite, by increasing start time
+		List<List<Integer>> windows = new ArrayList<List<Integer>>();
+		List<List<Double>> startTimes = new ArrayList<List<Double>>();
+		for(int s=0;s<sequences.length;s++){
+			windows.add(new ArrayList<Integer>());
+			startTimes.add(new ArrayList<Double>());
+		}
+		List<Integer> dropped = new ArrayList<Integer>();
+		for(AcquisitionSequence sequence : subSequences){
+			for(int k=0;k<sequence.size();k++){
+				int w = sequence.getWindow(k);
+				if(kept[store.candidate[w]] == w){
+					windows.get(store.satellite[w]).add(w);
+					startTimes.get(store.satellite[w]).add(sequence.getStartTime(k));
+				}
+				else
+					dropped.add(w);
+			}
+		}
+		for(int s=0;s<sequences.length;s++){
+			int n = windows.get(s).size();
+			double[] keys = new double[n];
+			for(int i=0;i<n;i++)
+				keys[i] = startTimes.get(s).get(i);
+			AcquisitionSequence sequence = sequences[s];
+			for(int i : Sorting.sortedByKey(n, keys)){
+				int w = windows.get(s).get(i);
+				int c = store.candidate[w];
+				// repetitions of the window kept are ignored
+				if(selectedWindow[c] == w)
+					continue;
+				if(fitsInMemory(w) && sequence.canInsert(w, sequence.size())){
+					sequence.insert(w, sequence.size());
+					updateMemory(w, 1);
+					selectedWindow[c] = w;
+				}
+				else
+					dropped.add(w);
+			}
+		}
+		int[] result = new int[dropped.size()];
+		for(int i=0;i<result.length;i++)
+			result[i] = dropped.get(i);
+		return result;
+	}
+
+	/**
+	 * Try to insert, by decreasing value, the windows of the candidate acquisitions not planned which overlap the time
+	 * range of some windows extended by the maximum transition time (for instance windows removed from the plan, whose
+	 * time may now be used), instead of trying all windows again
+	 * @param freed windows (positions in the store)
+	 * @return the number of windows inserted
+	 */
+	public int insertAround(int[] freed){
+		AcquisitionWindowIndex index = pb.getAcquisitionWindowIndex();
+		int maxWindows = 0;
+		for(int s=0;s<sequences.length;s++)
+			maxWindows = Math.max(maxWindows, store.getNumberOfWindows(s));
+		int[] buffer = new int[maxWindows];
+		boolean[] considered = new boolean[store.nWindows];
+		List<Integer> windows = new ArrayList<Integer>();
+		for(int w : freed){
+			int n = index.getOverlapping(store.satellite[w], store.earliestStart[w] - store.maxTransitionTime,
+					store.latestStart[w] + store.duration[w] + store.maxTransitionTime, buffer);
+			for(int i=0;i<n;i++){
+				int w2 = buffer[i];
+				if(!considered[w2] && selectedWindow[store.candidate[w2]] == -1){
+					considered[w2] = true;
+					windows.add(w2);
+				}
+			}
+		}
+		double[] keys = new double[windows.size()];
+		for(int i=0;i<keys.length;i++)
+			keys[i] = -value[windows.get(i)];
+		int[] order = Sorting.sortedByKey(keys.length, keys);
+		for(int i=0;i<order.length;i++)
+			order[i] = windows.get(order[i]);
+		return insertAll(order);
+	}
+
+	/**
+	 * Build the plan by inserting all windows by decreasing value
+	 */
+	public void plan(){
+		insertAll(getValueOrder(value));
+	}
+
+	/**
+	 *
+	 * @return the value of the plan (sum of the values of the windows selected)
+	 */
+	public double getValue(){
+		double v = 0;
+		for(AcquisitionSequence sequence : sequences){
+			for(int k=0;k<sequence.size();k++)
+				v += value[sequence.getWindow(k)];
+		}
+		return v;
+	}
+
+	/**
+	 *
+	 * @return the number of acquisitions planned
+	 */
+	public int getNumberOfAcquisitions(){
+		int n = 0;
+		for(AcquisitionSequence sequence : sequences)
+			n += sequence.size();
+		return n;
+	}
+
+	/**
+	 *
+	 * @return the solution plan corresponding to the current sequences (acquisitions of each satellite in chronological order)
+	 */
+	public SolutionPlan getPlan(){
+		SolutionPlan plan = new SolutionPlan(pb);
+		for(AcquisitionSequence sequence : sequences){
+			for(int k=0;k<sequence.size();k++){
+				int w = sequence.getWindow(k);
+				CandidateAcquisition a = pb.getCandidateAcquisition(store.candidate[w]);
+				double start = sequence.getStartTime(k);
+				plan.setAcquisition(a, a.getAcquisitionWindow(store.windowIdx[w]), start, start + store.duration[w]);
+			}
+		}
+		return plan;
+	}
+
+	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException{
+		PlanningProblem pb = ProblemSnapshot.read(Params.systemDataFile,Params.planningDataFile);
+		pb.printStatistics();
+		long t0 = System.currentTimeMillis();
+		GreedyAcquisitionPlanner planner = new GreedyAcquisitionPlanner(pb);
+		planner.setMemoryCapacity(Params.massMemoryCapacity);
+		planner.plan();
+		System.out.println("Greedy acquisition plan: " + planner.getNumberOfAcquisitions() + " acquisitions, value " + planner.getValue()
+				+ " (" + (System.currentTimeMillis() - t0) + " ms)");
+		planner.getPlan().writeAcquisitionPlan("output/GreedySolutionAcqPlan.txt");
+		Bounds.report("GreedyAcquisitionPlanner", planner.getValue(), new Bounds(pb).getAcquisitionBound());
+	}
+
+}
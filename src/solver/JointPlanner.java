@@ -0,0 +1,160 @@
+package solver;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLStreamException;
+
+import params.Params;
+import problem.AcquisitionWindowStore;
+import problem.CandidateAcquisition;
+import problem.DownloadWindowIndex;
+import problem.PlanningProblem;
+import problem.ProblemSnapshot;
+import problem.Satellite;
+
+/**
+ * Planner alternating acquisition planning and download planning, so that acquisition slots are spent on
+ * acquisitions which can reach the ground. The acquisitions of a satellite are grouped by download region: the
+ * region of an acquisition window is the first download window of its satellite which ends after the earliest end of the
+ * acquisition window (the earliest download which the acquisition can reach). After each download
+ * planning, the value of the windows of each region used for acquisition planning is multiplied by a factor which
+ * decreases with the fraction of the acquisitions planned in this region (from their end time in the plan) which have
+ * not been downloaded (and increases back
+ * when all of them have been downloaded). Windows which cannot end before the end of the last download window of their
+ * satellite get no value.
+ * The loop stops when the value delivered (sum of the costs of the acquisitions downloaded) no longer improves.
+ * Acquisitions and downloads are both planned within the mass memory of the satellites (Params.massMemoryCapacity).
+ *
+ */
+public class JointPlanner {
+
+	/** Problem for which the plan is built */
+	public final PlanningProblem pb;
+	/** Acquisition windows of the problem */
+	final AcquisitionWindowStore store;
+	/** Download region of each acquisition window (index: position in the store) */
+	final int[] region;
+	/** Factor applied to the value of the windows of each region (indices: satellite idx, region) */
+	final double[][] factor;
+	/** Best plan found */
+	SolutionPlan best;
+	/** Value delivered by the best plan */
+	public double bestValue = -1;
+	/** Number of iterations done */
+	public int nIterations;
+
+	/**
+	 * Create the planner
+	 * @param pb
+	 */
+	public JointPlanner(PlanningProblem pb){
+		this.pb = pb;
+		this.store = pb.getAcquisitionWindowStore();
+		DownloadWindowIndex downloadWindowIndex = pb.getDownloadWindowIndex();
+		factor = new double[pb.satellites.size()][];
+		for(Satellite satellite : pb.satellites){
+			factor[satellite.idx] = new double[downloadWindowIndex.getWindows(satellite).size() + 1];
+			Arrays.fill(factor[satellite.idx], 1);
+			// no download possible after the last window
+			factor[satellite.idx][factor[satellite.idx].length-1] = 0;
+		}
+		region = new int[store.nWindows];
+		for(int i=0;i<store.nWindows;i++){
+			DownloadWindowIndex.Windows windows = downloadWindowIndex.getWindows(pb.satellites.get(store.satellite[i]));
+			// an acquisition done as early as possible can be downloaded in this region
+			region[i] = windows.firstEndingAfter(store.earliestStart[i] + store.duration[i]);
+		}
+	}
+
+	/**
+	 *
+	 * @param plan plan with acquisitions and downloads
+	 * @return the sum of the costs of the candidate acquisitions downloaded
+	 */
+	public static double getDeliveredValue(SolutionPlan plan){
+		double v = 0;
+		for(CandidateAcquisition a : plan.plannedAcquisitions){
+			if(plan.getDownloadWindow(a) != null)
+				v += plan.getSelectedAcquisitionWindow(a).Cost;
+		}
+		return v;
+	}
+
+	/**
+	 * Run the loop
+	 * @param maxIterations maximum number of iterations
+	 * @return the best plan found
+	 */
+	public SolutionPlan plan(int maxIterations){
+		double[] value = new double[store.nWindows];
+		for(nIterations=0;nIterations<maxIterations;nIterations++){
+			for(int i=0;i<store.nWindows;i++)
+				value[i] = store.cost[i] * factor[store.satellite[i]][region[i]];
+			GreedyAcquisitionPlanner planner = new GreedyAcquisitionPlanner(pb, value);
+			planner.setMemoryCapacity(Params.massMemoryCapacity);
+			planner.plan();
+			MemoryTimeline[] memory = new MemoryTimeline[pb.satellites.size()];
+			for(int s=0;s<memory.length;s++)
+				memory[s] = new MemoryTimeline(pb, Params.massMemoryCapacity);
+			SolutionPlan plan = FlowDownloadPlanner.planDownloads(planner.getPlan(), memory);
+			double v = getDeliveredValue(plan);
+			if(v <= bestValue)
+				break;
+			best = plan;
+			bestValue = v;
+			updateFactors(plan);
+		}
+		return best;
+	}
+
+	/**
+	 * Update the factor of each region from the fraction of its acquisitions which have not been downloaded
+	 * @param plan
+	 */
+	void updateFactors(SolutionPlan plan){
+		int nSatellites = factor.length;
+		int[][] planned = new int[nSatellites][];
+		int[][] lost = new int[nSatellites][];
+		for(int s=0;s<nSatellites;s++){
+			planned[s] = new int[factor[s].length];
+			lost[s] = new int[factor[s].length];
+		}
+		DownloadWindowIndex downloadWindowIndex = pb.getDownloadWindowIndex();
+		for(CandidateAcquisition a : plan.plannedAcquisitions){
+			int w = store.getPosition(plan.getSelectedAcquisitionWindow(a));
+			int s = store.satellite[w];
+			// the acquisition is charged to the region in which it is actually planned
+			int r = downloadWindowIndex.getWindows(pb.satellites.get(s)).firstEndingAfter(plan.getAcquisitionEndTime(a));
+			planned[s][r]++;
+			if(plan.getDownloadWindow(a) == null)
+				lost[s][r]++;
+		}
+		for(int s=0;s<nSatellites;s++){
+			for(int r=0;r<factor[s].length-1;r++){
+				if(planned[s][r] == 0)
+					continue;
+				double f = (double) lost[s][r] / planned[s][r];
+				if(f > 0)
+					factor[s][r] *= 1 - 0.5 * f;
+				else
+					factor[s][r] = Math.min(1, 1.25 * factor[s][r]);
+			}
+		}
+	}
+
+	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException{
+		PlanningProblem pb = ProblemSnapshot.read(Params.systemDataFile,Params.planningDataFile);
+		pb.printStatistics();
+		long t0 = System.currentTimeMillis();
+		JointPlanner planner = new JointPlanner(pb);
+		SolutionPlan plan = planner.plan(20);
+		System.out.println("Joint plan: " + plan.plannedAcquisitions.size() + " acquisitions, " + plan.plannedDownload.size() + " downloads, value delivered "
+				+ planner.bestValue + " after " + planner.nIterations + " iterations (" + (System.currentTimeMillis() - t0) + " ms)");
+		plan.writeAcquisitionPlan("output/JointSolutionAcqPlan.txt");
+		plan.writeDownloadPlan("output/downloadPlan_joint.txt");
+		Bounds.report("JointPlanner", planner.bestValue, new Bounds(pb).getDeliveredBound());
+	}
+
+}
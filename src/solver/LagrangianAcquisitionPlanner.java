@@ -0,0 +1,306 @@
+package solver;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLStreamException;
+
+import params.Params;
+import problem.AcquisitionWindowIndex;
+import problem.AcquisitionWindowStore;
+import problem.PlanningProblem;
+import problem.ProblemSnapshot;
+
+/**
+ * Acquisition planner based on an exact dynamic programming algorithm for the sequence of one satellite,
+ * and on a Lagrangian relaxation of the constraint "at most one window per candidate acquisition".
+ * <p>
+ * For one satellite, without this constraint, the problem is a weighted interval scheduling problem with
+ * flexible start times and sequence-dependent transition times. It is solved exactly by a label-setting
+ * algorithm: a label is a partial sequence ending with a given window, described by the (earliest) start
+ * time of this window and the value of the sequence. Labels are extended by increasing start time, and a
+ * label is discarded when a label ending with the same window, starting earlier, has a value at least as high.
+ * <p>
+ * The constraint on candidate acquisitions is relaxed with a multiplier per candidate acquisition, updated by
+ * subgradient optimization. Each relaxed problem gives an upper bound on the value of the best plan. The sequences
+ * of each relaxed solution are repaired (each candidate acquisition keeps its window of highest value) then
+ * completed by greedy insertion, which gives feasible plans, hence lower bounds.
+ *
+ */
+public class LagrangianAcquisitionPlanner {
+
+	/** Problem for which the plan is built */
+	public final PlanningProblem pb;
+	/** Acquisition windows of the problem */
+	final AcquisitionWindowStore store;
+	/** Interval index over the acquisition windows */
+	final AcquisitionWindowIndex index;
+	/** Value of each window (index: position in the store) */
+	final double[] value;
+	/** Maximum transition time between two windows */
+	final double maxTransitionTime;
+	/** Multiplier of each candidate acquisition (index: candidate idx) */
+	public final double[] multiplier;
+
+	/** Best plan found */
+	GreedyAcquisitionPlanner best;
+	/** Value of the best plan found (lower bound) */
+	public double lowerBound = 0;
+	/** Lowest upper bound found */
+	public double upperBound = Double.POSITIVE_INFINITY;
+
+	// labels of the last satellite solved (grown when needed)
+	/** Window of each label */
+	int[] labelWindow;
+	/** Start time of the window of each label */
+	double[] labelStart;
+	/** Value of the partial sequence of each label */
+	double[] labelValue;
+	/** Label extended for obtaining each label (-1 for the first window of a sequence) */
+	int[] labelPredecessor;
+	int nLabels;
+	/** Highest value of the labels settled at each window */
+	final double[] settledValue;
+	/** Buffer for successor queries */
+	final int[] successors;
+
+	/**
+	 * Create a planner whose objective is the sum of the costs of the windows selected
+	 * @param pb
+	 */
+	public LagrangianAcquisitionPlanner(PlanningProblem pb){
+		this.pb = pb;
+		this.store = pb.getAcquisitionWindowStore();
+		this.index = pb.getAcquisitionWindowIndex();
+		this.value = store.cost;
+		this.maxTransitionTime = store.maxTransitionTime;
+		multiplier = new double[pb.candidateAcquisitions.size()];
+		settledValue = new double[store.nWindows];
+		successors = new int[store.nWindows];
+		labelWindow = new int[1024];
+		labelStart = new double[1024];
+		labelValue = new double[1024];
+		labelPredecessor = new int[1024];
+	}
+
+	/**
+	 *
+	 * @param l label
+	 * @return the time from which any window can be realized after the window of label l
+	 */
+	double getReleaseTime(int l){
+		return labelStart[l] + store.duration[labelWindow[l]] + maxTransitionTime;
+	}
+
+	int addLabel(int w, double start, double v, int predecessor){
+		if(nLabels == labelWindow.length){
+			labelWindow = Arrays.copyOf(labelWindow, 2*nLabels);
+			labelStart = Arrays.copyOf(labelStart, 2*nLabels);
+			labelValue = Arrays.copyOf(labelValue, 2*nLabels);
+			labelPredecessor = Arrays.copyOf(labelPredecessor, 2*nLabels);
+		}
+		labelWindow[nLabels] = w;
+		labelStart[nLabels] = start;
+		labelValue[nLabels] = v;
+		labelPredecessor[nLabels] = predecessor;
+		return nLabels++;
+	}
+
+	/**
+	 * Compute a sequence of maximum value for one satellite, a window being possibly used several times
+	 * and several windows of the same candidate acquisition being possibly selected
+	 * @param s satellite idx
+	 * @param reducedValue value of each window (windows of non-positive value are never selected)
+	 * @param sequence sequence receiving the windows selected (cleared first)
+	 * @return the value of the sequence
+	 */
+	public double solve(int s, final double[] reducedValue, AcquisitionSequence sequence){
+		sequence.clear();
+		nLabels = 0;
+		// labels by increasing start time, highest value first in case of equality
+		PriorityQueue<Integer> queue = new PriorityQueue<Integer>(1024, new java.util.Comparator<Integer>(){
+			@Override
+			public int compare(Integer l1, Integer l2){
+				int c = Double.compare(labelStart[l1], labelStart[l2]);
+				return (c != 0) ? c : Double.compare(labelValue[l2], labelValue[l1]);
+			}
+		});
+		// labels settled, by increasing time from which any window can follow them (end time + maximum transition time)
+		PriorityQueue<Integer> released = new PriorityQueue<Integer>(1024, new java.util.Comparator<Integer>(){
+			@Override
+			public int compare(Integer l1, Integer l2){
+				return Double.compare(getReleaseTime(l1), getReleaseTime(l2));
+			}
+		});
+		int first = store.satelliteStart[s], last = store.satelliteStart[s+1];
+		for(int w=first;w<last;w++){
+			settledValue[w] = 0;
+			// first label of each window: its value is computed when it is extracted (see below)
+			if(reducedValue[w] > 0)
+				queue.add(addLabel(w, store.earliestStart[w], reducedValue[w], -1));
+		}
+		int bestLabel = -1;
+		double bestValue = 0;
+		// best label released so far
+		int bestReleased = -1;
+		double bestReleasedValue = 0;
+		while(!queue.isEmpty()){
+			int l = queue.poll();
+			int u = labelWindow[l];
+			if(labelPredecessor[l] == -1){
+				// a window starting at its earliest start time can follow any label released at that time (at no delay):
+				// all these extensions are replaced by one extension of the best of these labels
+				while(!released.isEmpty() && getReleaseTime(released.peek()) <= labelStart[l]){
+					int r = released.poll();
+					if(labelValue[r] > bestReleasedValue){
+						bestReleasedValue = labelValue[r];
+						bestReleased = r;
+					}
+				}
+				labelValue[l] = reducedValue[u] + bestReleasedValue;
+				labelPredecessor[l] = bestReleased;
+			}
+			double v = labelValue[l];
+			// a label settled earlier at the same window starts at the same time or before
+			if(v <= settledValue[u])
+				continue;
+			settledValue[u] = v;
+			released.add(l);
+			if(v > bestValue){
+				bestValue = v;
+				bestLabel = l;
+			}
+			// explicit extensions, only to windows which may start before the release time of the label
+			double end = labelStart[l] + store.duration[u];
+			int n = index.getSuccessors(u, labelStart[l] - store.earliestStart[u] + maxTransitionTime, successors);
+			for(int i=0;i<n;i++){
+				int w = successors[i];
+				if(reducedValue[w] <= 0 || v + reducedValue[w] <= settledValue[w])
+					continue;
+				double start = Math.max(store.earliestStart[w], end + store.getTransitionTime(u, w));
+				if(start <= store.latestStart[w])
+					queue.add(addLabel(w, start, v + reducedValue[w], l));
+			}
+		}
+		// rebuild the sequence (backwards)
+		int size = 0;
+		for(int l=bestLabel;l!=-1;l=labelPredecessor[l])
+			size++;
+		int[] windows = new int[size];
+		for(int l=bestLabel;l!=-1;l=labelPredecessor[l])
+			windows[--size] = labelWindow[l];
+		for(int w : windows)
+			sequence.insert(w, sequence.size());
+		return bestValue;
+	}
+
+	/**
+	 * Build a feasible plan from sequences which may contain several windows of the same candidate acquisition:
+	 * each candidate acquisition keeps its window of highest value, then windows are inserted greedily (within the mass memory)
+	 * @param sequences sequence of each satellite (not modified)
+	 * @return the plan
+	 */
+	GreedyAcquisitionPlanner repair(AcquisitionSequence[] sequences){
+		GreedyAcquisitionPlanner planner = new GreedyAcquisitionPlanner(pb, value);
+		planner.setMemoryCapacity(Params.massMemoryCapacity);
+		planner.mergeSequences(Arrays.asList(sequences));
+		planner.plan();
+		return planner;
+	}
+
+	/**
+	 * Start from a known plan (for instance a plan repaired by WarmStart), which is kept as best plan as long as
+	 * the subgradient optimization does not find a better one
+	 * @param planner planner containing the plan (whose value must be the sum of the costs of the windows selected)
+	 */
+	public void setIncumbent(GreedyAcquisitionPlanner planner){
+		double v = planner.getValue();
+		if(best == null || v > lowerBound){
+			best = planner;
+			lowerBound = v;
+		}
+	}
+
+	/**
+	 * Run the subgradient optimization
+	 * @param maxIterations maximum number of iterations
+	 * @return the value of the best plan found
+	 */
+	public double solve(int maxIterations){
+		int nSatellites = pb.satellites.size();
+		int nCandidates = multiplier.length;
+		AcquisitionSequence[] sequences = new AcquisitionSequence[nSatellites];
+		for(int s=0;s<nSatellites;s++)
+			sequences[s] = new AcquisitionSequence(store);
+		double[] reducedValue = new double[store.nWindows];
+		int[] count = new int[nCandidates];
+		double stepFactor = 2;
+		int nIterationsWithoutImprovement = 0;
+		for(int iteration=0;iteration<maxIterations;iteration++){
+			for(int i=0;i<store.nWindows;i++)
+				reducedValue[i] = value[i] - multiplier[store.candidate[i]];
+			double bound = 0;
+			for(int c=0;c<nCandidates;c++)
+				bound += multiplier[c];
+			for(int s=0;s<nSatellites;s++)
+				bound += solve(s, reducedValue, sequences[s]);
+			if(bound < upperBound - 1e-9){
+				upperBound = bound;
+				nIterationsWithoutImprovement = 0;
+			}
+			else if(++nIterationsWithoutImprovement >= 5){
+				stepFactor /= 2;
+				nIterationsWithoutImprovement = 0;
+			}
+
+			GreedyAcquisitionPlanner plan = repair(sequences);
+			double v = plan.getValue();
+			if(best == null || v > lowerBound){
+				best = plan;
+				lowerBound = v;
+			}
+
+			// subgradient of the relaxed constraints (number of windows selected - 1 for each candidate acquisition)
+			Arrays.fill(count, 0);
+			for(AcquisitionSequence sequence : sequences){
+				for(int k=0;k<sequence.size();k++)
+					count[store.candidate[sequence.getWindow(k)]]++;
+			}
+			double norm = 0;
+			for(int c=0;c<nCandidates;c++){
+				double g = count[c] - 1;
+				if(g > 0 || multiplier[c] > 0)
+					norm += g * g;
+			}
+			if(norm == 0 || upperBound - lowerBound <= 1e-9) // relaxed solution feasible, or optimality proved
+				break;
+			double step = stepFactor * (upperBound - lowerBound) / norm;
+			for(int c=0;c<nCandidates;c++)
+				multiplier[c] = Math.max(0, multiplier[c] + step * (count[c] - 1));
+		}
+		return lowerBound;
+	}
+
+	/**
+	 *
+	 * @return the best plan found
+	 */
+	public GreedyAcquisitionPlanner getBestPlanner(){
+		return best;
+	}
+
+	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException{
+		PlanningProblem pb = ProblemSnapshot.read(Params.systemDataFile,Params.planningDataFile);
+		pb.printStatistics();
+		long t0 = System.currentTimeMillis();
+		LagrangianAcquisitionPlanner planner = new LagrangianAcquisitionPlanner(pb);
+		planner.solve(200);
+		System.out.println("Lagrangian DP plan: value " + planner.lowerBound + ", upper bound " + planner.upperBound
+				+ " (" + (System.currentTimeMillis() - t0) + " ms)");
+		planner.getBestPlanner().getPlan().writeAcquisitionPlan("output/DPSolutionAcqPlan.txt");
+		Bounds.report("LagrangianAcquisitionPlanner", planner.lowerBound, Math.min(planner.upperBound, new Bounds(pb).getCandidateBound()));
+	}
+
+}
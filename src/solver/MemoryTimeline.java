@@ -0,0 +1,178 @@
+package solver;
+
+import java.util.List;
+
+import problem.Acquisition;
+import problem.DownloadWindowIndex;
+import problem.PlanningProblem;
+import problem.Satellite;
+
+/**
+ * Mass memory usage of one satellite over the planning horizon. The data of an acquisition occupies the memory
+ * from the end of the acquisition until the end of its download. Data which cannot be downloaded is not kept onboard,
+ * so that the constraint for a download is that its data fits in memory from the end of the acquisition until the
+ * end of the download; acquisition planners, which do not know the download plan, use an estimate of the download time.
+ * Time is discretized in steps of timeStep seconds, and an occupation covers every step it intersects (so that usage
+ * is never underestimated). Usage is stored in a segment tree supporting the addition of a volume over a time range
+ * and the maximum usage over a time range, both in O(log n) for n steps.
+ *
+ */
+public class MemoryTimeline {
+
+	/** Duration of a time step (in seconds) */
+	final static double timeStep = 1;
+
+	/** Capacity of the mass memory (in bits) */
+	public final double capacity;
+	/** Start time of the timeline */
+	final double startTime;
+	/** Number of time steps */
+	final int nSteps;
+	/** Number of leaves of the tree (power of 2) */
+	final int nLeaves;
+	/** Maximum usage in the subtree of each node (node k has children 2k and 2k+1), including the volumes added at the node and above */
+	final double[] max;
+	/** Volume added to the whole range of each node */
+	final double[] added;
+
+	/**
+	 * Create an empty timeline over the planning horizon of a problem
+	 * @param pb
+	 * @param capacity capacity of the mass memory (in bits)
+	 */
+	public MemoryTimeline(PlanningProblem pb, double capacity){
+		this.capacity = capacity;
+		this.startTime = pb.horizonStart;
+		nSteps = Math.max(1, (int) Math.ceil((pb.horizonEnd - pb.horizonStart) / timeStep));
+		int n = 1;
+		while(n < nSteps)
+			n *= 2;
+		nLeaves = n;
+		max = new double[2*n];
+		added = new double[2*n];
+	}
+
+	/**
+	 *
+	 * @param t
+	 * @return the time step containing t (clamped to the horizon)
+	 */
+	int getStep(double t){
+		int i = (int) Math.floor((t - startTime) / timeStep);
+		return Math.max(0, Math.min(nSteps - 1, i));
+	}
+
+	/**
+	 * Add a volume to the memory usage over [t1,t2]
+	 * @param t1
+	 * @param t2
+	 * @param volume volume in bits (negative for removing a volume added before)
+	 */
+	public void add(double t1, double t2, double volume){
+		add(1, 0, nLeaves, getStep(t1), getStep(t2) + 1, volume);
+	}
+
+	void add(int node, int lo, int hi, int from, int to, double volume){
+		if(to <= lo || hi <= from)
+			return;
+		if(from <= lo && hi <= to){
+			max[node] += volume;
+			added[node] += volume;
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		add(2*node, lo, mid, from, to, volume);
+		add(2*node+1, mid, hi, from, to, volume);
+		max[node] = added[node] + Math.max(max[2*node], max[2*node+1]);
+	}
+
+	/**
+	 *
+	 * @param t1
+	 * @param t2
+	 * @return the maximum memory usage over [t1,t2]
+	 */
+	public double getMaxUsage(double t1, double t2){
+		return getMax(1, 0, nLeaves, getStep(t1), getStep(t2) + 1);
+	}
+
+	double getMax(int node, int lo, int hi, int from, int to){
+		if(to <= lo || hi <= from)
+			return Double.NEGATIVE_INFINITY;
+		if(from <= lo && hi <= to)
+			return max[node];
+		int mid = (lo + hi) >>> 1;
+		return added[node] + Math.max(getMax(2*node, lo, mid, from, to), getMax(2*node+1, mid, hi, from, to));
+	}
+
+	/**
+	 *
+	 * @return the maximum memory usage over the whole horizon
+	 */
+	public double getMaxUsage(){
+		return max[1];
+	}
+
+	/**
+	 *
+	 * @param t1
+	 * @param t2
+	 * @param volume
+	 * @return true if a volume can be stored over [t1,t2] without exceeding the capacity of the memory
+	 */
+	public boolean canAdd(double t1, double t2, double volume){
+		return getMaxUsage(t1, t2) + volume <= capacity;
+	}
+
+	/**
+	 * Estimate the time at which data can be released from memory, when the download plan is not known yet
+	 * @param pb
+	 * @param satellite
+	 * @param t time at which the data is recorded
+	 * @param downloadDuration
+	 * @return the end of the first download window of the satellite in which the data could be downloaded after t
+	 * (end of the horizon if there is none)
+	 */
+	public static double getEstimatedReleaseTime(PlanningProblem pb, Satellite satellite, double t, double downloadDuration){
+		DownloadWindowIndex.Windows windows = pb.getDownloadWindowIndex().getWindows(satellite);
+		int k = windows.firstEndingAfter(t + downloadDuration);
+		while(k < windows.size() && Math.max(t, windows.start[k]) + downloadDuration > windows.end[k])
+			k++;
+		return (k < windows.size()) ? windows.end[k] : pb.horizonEnd;
+	}
+
+	/**
+	 * Build the memory timeline of each satellite from a plan (acquisitions downloaded)
+	 * @param plan plan with acquisitions and downloads
+	 * @param capacity capacity of the mass memory (in bits)
+	 * @return the timeline of each satellite (index: satellite idx)
+	 */
+	public static MemoryTimeline[] build(SolutionPlan plan, double capacity){
+		PlanningProblem pb = plan.pb;
+		MemoryTimeline[] timelines = new MemoryTimeline[pb.satellites.size()];
+		List<List<Acquisition>> acquisitions = plan.getCandidateDownloadsBySatellite();
+		for(Satellite satellite : pb.satellites){
+			MemoryTimeline timeline = new MemoryTimeline(pb, capacity);
+			for(Acquisition a : acquisitions.get(satellite.idx)){
+				if(plan.getDownloadWindow(a) != null)
+					timeline.add(plan.getAcquisitionTime(a), plan.getDownloadEndTime(a), plan.getVolume(a));
+			}
+			timelines[satellite.idx] = timeline;
+		}
+		return timelines;
+	}
+
+	/**
+	 *
+	 * @param timelines
+	 * @return true if no timeline exceeds its capacity
+	 */
+	public static boolean isRespected(MemoryTimeline[] timelines){
+		for(MemoryTimeline timeline : timelines){
+			if(timeline.getMaxUsage() > timeline.capacity)
+				return false;
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,242 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * Minimum cost flow solver (successive shortest paths, Dijkstra with node potentials). Capacities and costs
+ * are real numbers. Arc k and arc k^1 are the two directions of the same arc (the second one being the residual arc).
+ *
+ */
+public class MinCostFlow {
+
+	/** Tolerance on capacities */
+	final static double epsilon = 1e-9;
+
+	/** Number of nodes */
+	public final int nNodes;
+	/** Number of arcs (including residual arcs) */
+	int nArcs;
+	/** Destination of each arc */
+	int[] arcTo;
+	/** Residual capacity of each arc */
+	double[] arcCapacity;
+	/** Cost of each arc */
+	double[] arcCost;
+	/** Next arc leaving the same node (-1 for the last one) */
+	int[] nextArc;
+	/** First arc leaving each node (-1 if none) */
+	final int[] firstArc;
+	/** Potential of each node */
+	final double[] potential;
+
+	// buffers of the shortest path computation
+	final double[] distance;
+	final int[] predecessorArc;
+	int[] heapNode;
+	double[] heapKey;
+	int heapSize;
+
+	/**
+	 * Create a network without arcs
+	 * @param nNodes
+	 */
+	public MinCostFlow(int nNodes){
+		this.nNodes = nNodes;
+		arcTo = new int[16];
+		arcCapacity = new double[16];
+		arcCost = new double[16];
+		nextArc = new int[16];
+		firstArc = new int[nNodes];
+		Arrays.fill(firstArc, -1);
+		potential = new double[nNodes];
+		distance = new double[nNodes];
+		predecessorArc = new int[nNodes];
+		heapNode = new int[16];
+		heapKey = new double[16];
+	}
+
+	/**
+	 * Add an arc (and its residual arc)
+	 * @param from
+	 * @param to
+	 * @param capacity
+	 * @param cost cost per unit of flow
+	 * @return the index of the arc
+	 */
+	public int addArc(int from, int to, double capacity, double cost){
+		if(nArcs + 2 > arcTo.length){
+			arcTo = Arrays.copyOf(arcTo, 2*arcTo.length);
+			arcCapacity = Arrays.copyOf(arcCapacity, 2*arcCapacity.length);
+			arcCost = Arrays.copyOf(arcCost, 2*arcCost.length);
+			nextArc = Arrays.copyOf(nextArc, 2*nextArc.length);
+		}
+		int k = nArcs;
+		arcTo[k] = to;
+		arcCapacity[k] = capacity;
+		arcCost[k] = cost;
+		nextArc[k] = firstArc[from];
+		firstArc[from] = k;
+		arcTo[k+1] = from;
+		arcCapacity[k+1] = 0;
+		arcCost[k+1] = -cost;
+		nextArc[k+1] = firstArc[to];
+		firstArc[to] = k+1;
+		nArcs += 2;
+		return k;
+	}
+
+	/**
+	 *
+	 * @param k arc index (as returned by addArc)
+	 * @return the flow on arc k
+	 */
+	public double getFlow(int k){
+		return arcCapacity[k^1];
+	}
+
+	/**
+	 * Send flow from source to sink along successive shortest paths
+	 * @param source
+	 * @param sink
+	 * @param maxFlow maximum amount of flow sent
+	 * @param onlyNegativeCost if true, flow is only sent along paths of negative cost (minimum cost flow of any amount)
+	 * @return the total cost of the flow sent
+	 */
+	public double solve(int source, int sink, double maxFlow, boolean onlyNegativeCost){
+		initPotentials(source);
+		double flow = 0, cost = 0;
+		while(flow < maxFlow - epsilon){
+			computeShortestPaths(source, sink);
+			if(distance[sink] == Double.POSITIVE_INFINITY)
+				break;
+			// nodes not settled before the sink keep reduced costs non-negative with the distance of the sink
+			for(int v=0;v<nNodes;v++)
+				potential[v] += Math.min(distance[v], distance[sink]);
+			// real cost of the path found
+			double pathCost = potential[sink] - potential[source];
+			if(onlyNegativeCost && pathCost >= -epsilon)
+				break;
+			double delta = maxFlow - flow;
+			for(int v=sink;v!=source;v=arcTo[predecessorArc[v]^1])
+				delta = Math.min(delta, arcCapacity[predecessorArc[v]]);
+			for(int v=sink;v!=source;v=arcTo[predecessorArc[v]^1]){
+				arcCapacity[predecessorArc[v]] -= delta;
+				arcCapacity[predecessorArc[v]^1] += delta;
+			}
+			flow += delta;
+			cost += delta * pathCost;
+		}
+		return cost;
+	}
+
+	/**
+	 * Initialize potentials with the shortest distances from the source (Bellman-Ford with a queue), so that
+	 * reduced costs are non-negative even if some arc costs are negative
+	 * @param source
+	 */
+	void initPotentials(int source){
+		Arrays.fill(potential, Double.POSITIVE_INFINITY);
+		potential[source] = 0;
+		int[] queue = new int[nNodes];
+		boolean[] inQueue = new boolean[nNodes];
+		int head = 0, tail = 0, queued = 1;
+		queue[tail++] = source;
+		inQueue[source] = true;
+		while(queued > 0){
+			int u = queue[head];
+			head = (head + 1) % nNodes;
+			queued--;
+			inQueue[u] = false;
+			for(int k=firstArc[u];k!=-1;k=nextArc[k]){
+				int v = arcTo[k];
+				if(arcCapacity[k] > epsilon && potential[u] + arcCost[k] < potential[v] - epsilon){
+					potential[v] = potential[u] + arcCost[k];
+					if(!inQueue[v]){
+						queue[tail] = v;
+						tail = (tail + 1) % nNodes;
+						queued++;
+						inQueue[v] = true;
+					}
+				}
+			}
+		}
+		// unreachable nodes stay unreachable (capacities only change along paths from the source)
+		for(int v=0;v<nNodes;v++){
+			if(potential[v] == Double.POSITIVE_INFINITY)
+				potential[v] = 0;
+		}
+	}
+
+	/**
+	 * Dijkstra algorithm on reduced costs (sets distance and predecessorArc), stopped when the sink is settled
+	 * @param source
+	 * @param sink
+	 */
+	void computeShortestPaths(int source, int sink){
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+		distance[source] = 0;
+		heapSize = 0;
+		push(source, 0);
+		while(heapSize > 0){
+			double d = heapKey[0];
+			int u = pop();
+			if(d > distance[u])
+				continue;
+			if(u == sink)
+				break;
+			for(int k=firstArc[u];k!=-1;k=nextArc[k]){
+				if(arcCapacity[k] <= epsilon)
+					continue;
+				int v = arcTo[k];
+				// reduced costs are non-negative, up to rounding errors
+				double nd = d + Math.max(0, arcCost[k] + potential[u] - potential[v]);
+				if(nd < distance[v]){
+					distance[v] = nd;
+					predecessorArc[v] = k;
+					push(v, nd);
+				}
+			}
+		}
+	}
+
+	void push(int node, double key){
+		if(heapSize == heapNode.length){
+			heapNode = Arrays.copyOf(heapNode, 2*heapSize);
+			heapKey = Arrays.copyOf(heapKey, 2*heapSize);
+		}
+		int i = heapSize++;
+		while(i > 0){
+			int parent = (i - 1) >>> 1;
+			if(heapKey[parent] <= key)
+				break;
+			heapNode[i] = heapNode[parent];
+			heapKey[i] = heapKey[parent];
+			i = parent;
+		}
+		heapNode[i] = node;
+		heapKey[i] = key;
+	}
+
+	int pop(){
+		int top = heapNode[0];
+		int node = heapNode[--heapSize];
+		double key = heapKey[heapSize];
+		int i = 0;
+		while(true){
+			int child = 2*i + 1;
+			if(child >= heapSize)
+				break;
+			if(child + 1 < heapSize && heapKey[child+1] < heapKey[child])
+				child++;
+			if(heapKey[child] >= key)
+				break;
+			heapNode[i] = heapNode[child];
+			heapKey[i] = heapKey[child];
+			i = child;
+		}
+		heapNode[i] = node;
+		heapKey[i] = key;
+		return top;
+	}
+
+}
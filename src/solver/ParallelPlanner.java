@@ -0,0 +1,194 @@
+package solver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLStreamException;
+
+import params.Params;
+import problem.Acquisition;
+import problem.AcquisitionWindowStore;
+import problem.PlanningProblem;
+import problem.ProblemSnapshot;
+import problem.Satellite;
+
+/**
+ * Planner which solves the acquisition and download sub-problems of each satellite in parallel, as
+ * ForkJoin tasks over the same (read-only) planning problem:
+ * <ul>
+ * <li>each satellite builds its acquisition plan with the greedy insertion of GreedyAcquisitionPlanner restricted to its own windows;</li>
+ * <li>the acquisition plans are merged in satellite order: a candidate acquisition planned by several satellites is kept on the window
+ * of highest value (lowest satellite idx in case of equality), acquisitions whose data no longer fits in the mass memory are dropped,
+ * and the time freed by the windows dropped is filled again by a sequential greedy insertion of the windows overlapping it;</li>
+ * <li>each satellite then plans its downloads (chronological planning of BadDownloadPlanner_2_Sats), and the downloads are merged in satellite order.</li>
+ * </ul>
+ * The result does not depend on the number of threads nor on the order in which tasks finish.
+ *
+ */
+public class ParallelPlanner {
+
+	/** Problem for which the plan is built */
+	public final PlanningProblem pb;
+	/** Acquisition windows of the problem */
+	final AcquisitionWindowStore store;
+	/** Value of each window (index: position in the store) */
+	final double[] value;
+	/** Pool executing the tasks */
+	final ForkJoinPool pool;
+
+	/**
+	 * Acquisition sub-problem of one satellite
+	 */
+	class AcquisitionTask extends RecursiveTask<AcquisitionSequence> {
+		private static final long serialVersionUID = 1L;
+		/** Planner in which the sequences are merged (only read by the task) */
+		final GreedyAcquisitionPlanner merged;
+		final int satellite;
+		/** Windows of the satellite, by decreasing value */
+		final int[] order;
+
+		AcquisitionTask(GreedyAcquisitionPlanner merged, int satellite, int[] order){
+			this.merged = merged;
+			this.satellite = satellite;
+			this.order = order;
+		}
+
+		@Override
+		protected AcquisitionSequence compute(){
+			int first = store.satelliteStart[satellite];
+			int[] windows = new int[store.satelliteStart[satellite+1] - first];
+			for(int i=0;i<windows.length;i++)
+				windows[i] = first + i;
+			return merged.planSubset(windows, order)[satellite];
+		}
+	}
+
+	/**
+	 * Download sub-problem of one satellite
+	 */
+	class DownloadTask extends RecursiveTask<SolutionPlan> {
+		private static final long serialVersionUID = 1L;
+		final SolutionPlan plan;
+		final Satellite satellite;
+		final List<Acquisition> candidateDownloads;
+
+		DownloadTask(SolutionPlan plan, Satellite satellite, List<Acquisition> candidateDownloads){
+			this.plan = plan;
+			this.satellite = satellite;
+			this.candidateDownloads = candidateDownloads;
+		}
+
+		@Override
+		protected SolutionPlan compute(){
+			// downloads are collected in a plan of their own, since the shared plan is read by the other tasks
+			SolutionPlan downloadPlan = new SolutionPlan(pb);
+			BadDownloadPlanner_2_Sats.planDownloads(plan, satellite, candidateDownloads, downloadPlan);
+			return downloadPlan;
+		}
+	}
+
+	/**
+	 * Create a planner whose acquisition objective is the sum of the costs of the windows selected
+	 * @param pb
+	 * @param pool pool executing the tasks
+	 */
+	public ParallelPlanner(PlanningProblem pb, ForkJoinPool pool){
+		this.pb = pb;
+		this.store = pb.getAcquisitionWindowStore();
+		this.value = store.cost;
+		this.pool = pool;
+		// shared indexes are built before the tasks start
+		pb.getDownloadWindowIndex();
+	}
+
+	/**
+	 * Plan acquisitions
+	 * @return the merged acquisition plan
+	 */
+	public GreedyAcquisitionPlanner planAcquisitions(){
+		GreedyAcquisitionPlanner merged = new GreedyAcquisitionPlanner(pb, value);
+		merged.setMemoryCapacity(Params.massMemoryCapacity);
+		int nSatellites = pb.satellites.size();
+		// the value order is computed once, and split by satellite
+		int[] order = GreedyAcquisitionPlanner.getValueOrder(value);
+		int[] nWindows = new int[nSatellites];
+		int[][] satelliteOrder = new int[nSatellites][];
+		for(int s=0;s<nSatellites;s++)
+			satelliteOrder[s] = new int[store.getNumberOfWindows(s)];
+		for(int w : order){
+			int s = store.satellite[w];
+			satelliteOrder[s][nWindows[s]++] = w;
+		}
+		List<AcquisitionTask> tasks = new ArrayList<AcquisitionTask>();
+		for(int s=0;s<nSatellites;s++)
+			tasks.add(new AcquisitionTask(merged, s, satelliteOrder[s]));
+		for(AcquisitionTask task : tasks)
+			pool.execute(task);
+		List<AcquisitionSequence> sequences = new ArrayList<AcquisitionSequence>();
+		for(AcquisitionTask task : tasks)
+			sequences.add(task.join());
+		merge(merged, sequences);
+		return merged;
+	}
+
+	/**
+	 * Merge the sequences of all satellites into a plan, then fill the time freed by the windows dropped
+	 * @param merged empty plan in which the sequences are merged
+	 * @param sequences sequence of each satellite
+	 */
+	void merge(GreedyAcquisitionPlanner merged, List<AcquisitionSequence> sequences){
+		int[] dropped = merged.mergeSequences(sequences);
+		merged.insertAround(dropped);
+	}
+
+	/**
+	 * Plan the downloads of the acquisitions of a plan
+	 * @param plan plan containing the acquisitions realized, in which downloads are added
+	 */
+	public void planDownloads(SolutionPlan plan){
+		List<List<Acquisition>> candidateDownloadsBySatellite = plan.getCandidateDownloadsBySatellite();
+		List<DownloadTask> tasks = new ArrayList<DownloadTask>();
+		for(Satellite satellite : pb.satellites)
+			tasks.add(new DownloadTask(plan, satellite, candidateDownloadsBySatellite.get(satellite.idx)));
+		for(DownloadTask task : tasks)
+			pool.execute(task);
+		List<SolutionPlan> downloadPlans = new ArrayList<SolutionPlan>();
+		for(DownloadTask task : tasks)
+			downloadPlans.add(task.join());
+		for(SolutionPlan downloadPlan : downloadPlans){
+			for(Acquisition a : downloadPlan.plannedDownload)
+				plan.setDownload(a, downloadPlan.getDownloadWindow(a), downloadPlan.getDownloadStartTime(a), downloadPlan.getDownloadEndTime(a));
+		}
+	}
+
+	/**
+	 * Plan acquisitions and downloads
+	 * @return the solution plan
+	 */
+	public SolutionPlan plan(){
+		SolutionPlan plan = planAcquisitions().getPlan();
+		planDownloads(plan);
+		return plan;
+	}
+
+	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException{
+		PlanningProblem pb = ProblemSnapshot.read(Params.systemDataFile,Params.planningDataFile);
+		pb.printStatistics();
+		long t0 = System.currentTimeMillis();
+		ForkJoinPool pool = new ForkJoinPool();
+		SolutionPlan plan = new ParallelPlanner(pb, pool).plan();
+		pool.shutdown();
+		System.out.println("Parallel plan: " + plan.plannedAcquisitions.size() + " acquisitions, " + plan.plannedDownload.size() + " downloads"
+				+ " (" + (System.currentTimeMillis() - t0) + " ms, " + pool.getParallelism() + " threads)");
+		plan.writeAcquisitionPlan("output/ParallelSolutionAcqPlan.txt");
+		plan.writeDownloadPlan("output/downloadPlan_parallel.txt");
+		Bounds bounds = new Bounds(pb);
+		Bounds.report("ParallelPlanner (acquisitions)", Bounds.getAcquisitionValue(plan), bounds.getAcquisitionBound());
+		Bounds.report("ParallelPlanner (downloads)", FlowDownloadPlanner.getDownloadValue(plan), bounds.getDownloadBound(plan));
+	}
+
+}
@@ -57,9 +57,10 @@ import params.Params;
 import problem.Acquisition;
 import problem.CandidateAcquisition;
 import problem.DownloadWindow;
+import problem.DownloadWindowIndex;
 import problem.PlanningProblem;
 import problem.Satellite;
-import problem.ProblemParserXML;
+import problem.ProblemSnapshot;
 import problem.RecordedAcquisition;
 import problem.Station;
 import problem.User;
@@ -194,10 +195,9 @@ public class PlanViewer {
 			stationVisTasks.put(station,tVis);
 			tasksSeries.add(tVis);
 
-			for(DownloadWindow w : plan.pb.downloadWindows){
-				if(w.satellite == satellite && w.station == station){
-					tVis.addSubtask(new Task("VIS_"+w.satellite.name, getDate(w.start), getDate(w.end)));
-				}
+			DownloadWindowIndex.Windows visibilityWindows = plan.pb.getDownloadWindowIndex().getWindows(satellite, station);
+			for(int i=0;i<visibilityWindows.size();i++){
+				tVis.addSubtask(new Task("VIS_"+satellite.name, getDate(visibilityWindows.start[i]), getDate(visibilityWindows.end[i])));
 			}
 			
 			tVis.addSubtask(new Task("VIS_InitStation"+station.name, date_start_all, date_start_all));					
@@ -207,16 +207,16 @@ public class PlanViewer {
 		// add the acquisition plan
 		for(CandidateAcquisition a : plan.plannedAcquisitions){
 			String name = a.name;
-			if(a.selectedAcquisitionWindow.satellite == satellite)
-				satelliteTask.addSubtask(new Task("ACQ_"+name, getDate(a.selectedAcquisitionStartTime), getDate(a.selectedAcquisitionEndTime)));			
+			if(plan.getSelectedAcquisitionWindow(a).satellite == satellite)
+				satelliteTask.addSubtask(new Task("ACQ_"+name, getDate(plan.getAcquisitionStartTime(a)), getDate(plan.getAcquisitionEndTime(a))));			
 		}
 
 		// add the download plan
 		for(Acquisition a : plan.plannedDownload){
 			String name = a.name;
-			DownloadWindow downloadWindow = a.selectedDownloadWindow;
+			DownloadWindow downloadWindow = plan.getDownloadWindow(a);
 			if(downloadWindow.satellite == satellite)
-				stationDlTasks.get(downloadWindow.station).addSubtask(new Task("DL_"+name, getDate(a.selectedDownloadStartTime), getDate(a.selectedDownloadEndTime)));			
+				stationDlTasks.get(downloadWindow.station).addSubtask(new Task("DL_"+name, getDate(plan.getDownloadStartTime(a)), getDate(plan.getDownloadEndTime(a))));			
 		}
 		dataset.add(tasksSeries);
 	}
@@ -625,7 +625,7 @@ public class PlanViewer {
 	}
 	
 	// Function to write the MATLAB input datafile for acquisitions
-	public static void writeMatlabDatafile_Acquisition(PlanningProblem pb, 
+	public static void writeMatlabDatafile_Acquisition(PlanningProblem pb, SolutionPlan plan,
 			String txtFilename) throws IOException{
 		// generate txt file for Matlab
 		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(txtFilename, false)));
@@ -633,8 +633,8 @@ public class PlanViewer {
 		
 		// gets all the candidate selected acquisition windows
 		for(CandidateAcquisition a : pb.candidateAcquisitions){
-			if(a.selectedAcquisitionWindow != null) {
-				selectedWindows.add(a.selectedAcquisitionWindow);
+			if(plan.isPlanned(a)) {
+				selectedWindows.add(plan.getSelectedAcquisitionWindow(a));
 			}
 		}
 
@@ -703,8 +703,7 @@ public class PlanViewer {
 	
 	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException, ParseException{
 		
-		ProblemParserXML parser = new ProblemParserXML(); 
-		PlanningProblem pb = parser.read(Params.systemDataFile,Params.planningDataFile);
+		PlanningProblem pb = ProblemSnapshot.read(Params.systemDataFile,Params.planningDataFile);
 		SolutionPlan plan = new SolutionPlan(pb);
 		/*
 		SELECTION OF MISSION PLAN - POSSIBILITIES:
@@ -755,7 +754,7 @@ public class PlanViewer {
 		
 		// Acquisition write matlab file
 		String Ack_matlab_out_path = "output/" + matlab_ack_filename;
-		writeMatlabDatafile_Acquisition(pb, Ack_matlab_out_path);
+		writeMatlabDatafile_Acquisition(pb, plan, Ack_matlab_out_path);
 		
 		// Acquisition write matlab file
 		String Dwl_matlab_out_path = "output/" + matlab_dwl_filename;
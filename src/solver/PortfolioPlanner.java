@@ -0,0 +1,284 @@
+package solver;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLStreamException;
+
+import params.Params;
+import problem.AcquisitionWindowStore;
+import problem.PlanningProblem;
+import problem.ProblemSnapshot;
+import problem.Sorting;
+
+/**
+ * Portfolio of acquisition planning strategies run at the same time on a thread pool, over the same (read-only)
+ * planning problem. A strategy is an ordering of the windows used for greedy insertion, possibly perturbed by a
+ * seed, followed by a large neighbourhood search (AcquisitionLNS) until the time budget is spent. All strategies
+ * maximize the sum of the costs of the windows selected. The best plan found by any strategy is kept as a global
+ * incumbent, strategies still running at the end of the time budget are cancelled, and a report gives the result
+ * of each strategy. The results of the strategies are written and read under the lock of the portfolio. If no strategy
+ * has finished its greedy insertion within the time budget, the plan returned is a greedy plan by decreasing cost.
+ *
+ */
+public class PortfolioPlanner {
+
+	/** Orderings of the windows for greedy insertion */
+	public final static int HIGHEST_COST = 0, EARLIEST_START = 1, LOWEST_CLOUD_PROBA = 2, PRIORITY_FIRST = 3, ROLL_SWEEP = 4;
+	/** Name of each ordering */
+	public final static String[] orderingNames = {"highestCost", "earliestStart", "lowestCloudProba", "priorityFirst", "rollSweep"};
+	/** Relative perturbation of the ordering keys for strategies with a non-zero seed */
+	final static double seedNoise = 0.1;
+
+	/**
+	 * Strategy of the portfolio, and its result
+	 */
+	public static class Strategy {
+		/** Ordering of the windows (one of the constants of PortfolioPlanner) */
+		public final int ordering;
+		/** Seed, added to Params.searchSeed (0: ordering not perturbed) */
+		public final long seed;
+		/** Value of the plan obtained by greedy insertion */
+		public double greedyValue = -1;
+		/** Value of the best plan found by the strategy */
+		public double value = -1;
+		/** Number of LNS iterations done */
+		public long nIterations;
+		/** Time spent by the strategy (in milliseconds) */
+		public long time;
+		/** Status at the end of the portfolio: "not started", "running" (cancelled), "done" (fields written under the lock of the portfolio) */
+		public String status = "not started";
+
+		public Strategy(int ordering, long seed){
+			this.ordering = ordering;
+			this.seed = seed;
+		}
+
+		public String getName(){
+			return orderingNames[ordering] + (seed == 0 ? "" : "/" + seed);
+		}
+	}
+
+	/** Problem for which the plan is built */
+	public final PlanningProblem pb;
+	/** Acquisition windows of the problem */
+	final AcquisitionWindowStore store;
+	/** Strategies of the portfolio */
+	public final List<Strategy> strategies;
+	/** Best plan found so far */
+	SolutionPlan bestPlan;
+	/** Value of the best plan found so far */
+	double bestValue = -1;
+	/** Strategy which found the best plan */
+	Strategy bestStrategy;
+	/** Plan inserted first by each strategy (null if the strategies start from an empty plan) */
+	SolutionPlan initialPlan;
+
+	/**
+	 * Create a portfolio with all orderings, each one with the given number of seeds (the first one without perturbation)
+	 * @param pb
+	 * @param nSeeds
+	 */
+	public PortfolioPlanner(PlanningProblem pb, int nSeeds){
+		this.pb = pb;
+		this.store = pb.getAcquisitionWindowStore();
+		// shared indexes are built before the strategies start
+		pb.getAcquisitionWindowIndex();
+		strategies = new ArrayList<Strategy>();
+		for(int seed=0;seed<nSeeds;seed++){
+			for(int ordering=0;ordering<orderingNames.length;ordering++)
+				strategies.add(new Strategy(ordering, seed));
+		}
+	}
+
+	/**
+	 * Start each strategy from a known plan (for instance a plan repaired by WarmStart): the acquisitions of this plan
+	 * are inserted first, then the windows in the order of the strategy
+	 * @param plan
+	 */
+	public void setInitialPlan(SolutionPlan plan){
+		initialPlan = plan;
+	}
+
+	/**
+	 *
+	 * @param strategy
+	 * @return the windows in the order of the strategy
+	 */
+	int[] getOrder(Strategy strategy){
+		int n = store.nWindows;
+		double[] keys = new double[n];
+		for(int i=0;i<n;i++){
+			switch(strategy.ordering){
+			case HIGHEST_COST: keys[i] = -store.cost[i]; break;
+			case EARLIEST_START: keys[i] = store.earliestStart[i]; break;
+			case LOWEST_CLOUD_PROBA: keys[i] = store.cloudProba[i]; break;
+			// priority 1 first, then by decreasing cost (costs are in [0,1])
+			case PRIORITY_FIRST: keys[i] = -store.priority[i] - store.cost[i] / 2; break;
+			// sweep from the lowest to the highest roll angle
+			default: keys[i] = store.rollAngle[i];
+			}
+		}
+		if(strategy.seed != 0){
+			// perturbation relative to the spread of the keys
+			double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+			for(double k : keys){
+				min = Math.min(min, k);
+				max = Math.max(max, k);
+			}
+			Random random = new Random(Params.searchSeed + strategy.seed);
+			for(int i=0;i<n;i++)
+				keys[i] += seedNoise * (max - min) * random.nextDouble();
+		}
+		return Sorting.sortedByKey(n, keys);
+	}
+
+	/**
+	 * Offer a plan as global incumbent
+	 * @param strategy strategy which found the plan (null for the greedy plan used when no strategy has given a plan)
+	 * @param plan
+	 * @param value
+	 */
+	synchronized void offer(Strategy strategy, SolutionPlan plan, double value){
+		if(value > bestValue){
+			bestValue = value;
+			bestPlan = plan;
+			bestStrategy = strategy;
+		}
+	}
+
+	/**
+	 *
+	 * @return the value of the best plan found so far
+	 */
+	public synchronized double getBestValue(){
+		return bestValue;
+	}
+
+	/**
+	 * Run a strategy
+	 * @param strategy
+	 * @param deadline time at which the strategy must end (System.nanoTime)
+	 */
+	void run(Strategy strategy, long deadline) throws IOException{
+		long t0 = System.nanoTime();
+		synchronized(this){
+			strategy.status = "running";
+		}
+		GreedyAcquisitionPlanner planner = new GreedyAcquisitionPlanner(pb);
+		planner.setMemoryCapacity(Params.massMemoryCapacity);
+		if(initialPlan != null)
+			planner.insertPlan(initialPlan);
+		// greedy insertion, abandoned if the strategy is cancelled
+		for(int w : getOrder(strategy)){
+			if(Thread.currentThread().isInterrupted()){
+				synchronized(this){
+					strategy.time = (System.nanoTime() - t0) / 1000000;
+				}
+				return;
+			}
+			planner.tryInsert(w);
+		}
+		double greedyValue = planner.getValue();
+		synchronized(this){
+			strategy.greedyValue = strategy.value = greedyValue;
+		}
+		offer(strategy, planner.getPlan(), greedyValue);
+		AcquisitionLNS lns = new AcquisitionLNS(planner, Params.searchSeed + strategy.seed);
+		lns.run((deadline - System.nanoTime()) / 1E9);
+		offer(strategy, lns.getBestPlan(), lns.getBestValue());
+		synchronized(this){
+			strategy.value = lns.getBestValue();
+			strategy.nIterations = lns.nIterations;
+			strategy.time = (System.nanoTime() - t0) / 1000000;
+			if(!Thread.currentThread().isInterrupted())
+				strategy.status = "done";
+		}
+	}
+
+	/**
+	 * Run all strategies
+	 * @param nThreads number of threads
+	 * @param timeBudget wall-clock time budget (in seconds)
+	 * @return the best plan found
+	 * @throws InterruptedException
+	 */
+	public SolutionPlan run(int nThreads, double timeBudget) throws InterruptedException{
+		// each strategy gets an equal share of the total thread time
+		int nRounds = (strategies.size() + nThreads - 1) / nThreads;
+		final double strategyBudget = timeBudget / nRounds;
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for(final Strategy strategy : strategies){
+			tasks.add(new Callable<Void>(){
+				@Override
+				public Void call() throws IOException{
+					run(strategy, System.nanoTime() + (long) (strategyBudget * 1E9));
+					return null;
+				}
+			});
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		// strategies which are not finished at the end of the time budget are cancelled
+		executor.invokeAll(tasks, (long) (timeBudget * 1000) + 100, TimeUnit.MILLISECONDS);
+		executor.shutdownNow();
+		executor.awaitTermination(1, TimeUnit.SECONDS);
+		synchronized(this){
+			if(bestPlan == null){
+				GreedyAcquisitionPlanner planner = new GreedyAcquisitionPlanner(pb);
+				planner.setMemoryCapacity(Params.massMemoryCapacity);
+				if(initialPlan != null)
+					planner.insertPlan(initialPlan);
+				planner.plan();
+				offer(null, planner.getPlan(), planner.getValue());
+			}
+			return bestPlan;
+		}
+	}
+
+	/**
+	 *
+	 * @return the best plan found so far (null if no strategy has finished its greedy insertion)
+	 */
+	public synchronized SolutionPlan getBestPlan(){
+		return bestPlan;
+	}
+
+	/**
+	 * Write the result of each strategy (one line per strategy: name, status, greedy value, final value, LNS iterations, time in ms)
+	 * @param filename
+	 * @throws IOException
+	 */
+	public synchronized void writeReport(String filename) throws IOException{
+		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(filename, false)));
+		for(Strategy strategy : strategies){
+			writer.write(strategy.getName() + " " + strategy.status.replace(' ', '_') + " " + strategy.greedyValue + " " + strategy.value
+					+ " " + strategy.nIterations + " " + strategy.time + "\n");
+		}
+		writer.write("best " + (bestStrategy == null ? (bestPlan == null ? "none" : "greedy") : bestStrategy.getName()) + " " + bestValue + "\n");
+		writer.flush();
+		writer.close();
+	}
+
+	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException, InterruptedException{
+		PlanningProblem pb = ProblemSnapshot.read(Params.systemDataFile,Params.planningDataFile);
+		pb.printStatistics();
+		PortfolioPlanner portfolio = new PortfolioPlanner(pb, 2);
+		int nThreads = Runtime.getRuntime().availableProcessors();
+		SolutionPlan plan = portfolio.run(nThreads, Params.searchTimeBudget);
+		System.out.println("Portfolio value: " + portfolio.getBestValue() + " (" + plan.plannedAcquisitions.size() + " acquisitions)");
+		plan.writeAcquisitionPlan("output/PortfolioSolutionAcqPlan.txt");
+		portfolio.writeReport("output/portfolioReport.txt");
+		Bounds.report("PortfolioPlanner", portfolio.getBestValue(), new Bounds(pb).getAcquisitionBound());
+	}
+
+}
@@ -0,0 +1,174 @@
+package solver;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLStreamException;
+
+import params.Params;
+import problem.Acquisition;
+import problem.DownloadWindowIndex;
+import problem.PlanningProblem;
+import problem.ProblemSnapshot;
+import problem.Satellite;
+import problem.Sorting;
+
+/**
+ * Download planner which considers acquisitions by priority (priority 0 first), then by decreasing DownloadCost,
+ * then by increasing acquisition time. Each download is placed at the earliest time after its acquisition time
+ * where it fits entirely in a download window, possibly in a gap left between downloads placed before
+ * (each download window keeps its free intervals). Contrary to the chronological planners, time left in a
+ * window is never lost, and a large low-priority download cannot prevent a high-priority one.
+ * Download windows of the same satellite are assumed not to overlap (as in the scenarios provided). Optionally, a
+ * download is planned only if its data fits in mass memory until the end of the download (see MemoryTimeline).
+ *
+ */
+public class PriorityDownloadPlanner {
+
+	/**
+	 * Free intervals of a download window, sorted by increasing start time
+	 */
+	static class FreeIntervals {
+		double[] start;
+		double[] end;
+		int size;
+
+		FreeIntervals(double start, double end){
+			this.start = new double[]{start, 0, 0, 0};
+			this.end = new double[]{end, 0, 0, 0};
+			size = 1;
+		}
+
+		/**
+		 *
+		 * @param release
+		 * @param duration
+		 * @return the position of the first free interval where an activity of the given duration can be realized
+		 * after the release time (-1 if there is none)
+		 */
+		int find(double release, double duration){
+			for(int i=0;i<size;i++){
+				if(Math.max(release, start[i]) + duration <= end[i])
+					return i;
+			}
+			return -1;
+		}
+
+		/**
+		 * Reserve [t1,t2] in the i-th free interval
+		 * @param i
+		 * @param t1
+		 * @param t2
+		 */
+		void reserve(int i, double t1, double t2){
+			boolean before = t1 > start[i], after = t2 < end[i];
+			if(before && after){
+				if(size == start.length){
+					start = Arrays.copyOf(start, 2*size);
+					end = Arrays.copyOf(end, 2*size);
+				}
+				System.arraycopy(start, i+1, start, i+2, size-i-1);
+				System.arraycopy(end, i+1, end, i+2, size-i-1);
+				size++;
+				start[i+1] = t2;
+				end[i+1] = end[i];
+				end[i] = t1;
+			}
+			else if(before)
+				end[i] = t1;
+			else if(after)
+				start[i] = t2;
+			else {
+				System.arraycopy(start, i+1, start, i, size-i-1);
+				System.arraycopy(end, i+1, end, i, size-i-1);
+				size--;
+			}
+		}
+	}
+
+	/**
+	 * Plan the downloads of all satellites
+	 * @param plan plan containing the acquisitions realized, in which downloads are added
+	 * @return the plan
+	 */
+	public static SolutionPlan planDownloads(SolutionPlan plan){
+		return planDownloads(plan, null);
+	}
+
+	/**
+	 * Plan the downloads of all satellites, a download being planned only if its data fits in mass memory
+	 * from the end of the acquisition until the end of the download
+	 * @param plan plan containing the acquisitions realized, in which downloads are added
+	 * @param memory empty memory timeline of each satellite, filled with the downloads planned (null if memory is not taken into account)
+	 * @return the plan
+	 */
+	public static SolutionPlan planDownloads(SolutionPlan plan, MemoryTimeline[] memory){
+		List<List<Acquisition>> candidateDownloadsBySatellite = plan.getCandidateDownloadsBySatellite();
+		for(Satellite satellite : plan.pb.satellites)
+			planDownloads(plan, satellite, candidateDownloadsBySatellite.get(satellite.idx), (memory == null) ? null : memory[satellite.idx]);
+		return plan;
+	}
+
+	/**
+	 * Plan the downloads of one satellite
+	 * @param plan plan containing the acquisitions realized, in which downloads are added
+	 * @param satellite
+	 * @param candidateDownloads acquisitions of the satellite which are candidate for being downloaded, by increasing acquisition time
+	 * @param memory memory timeline of the satellite, filled with the downloads planned (null if memory is not taken into account)
+	 */
+	public static void planDownloads(SolutionPlan plan, Satellite satellite, List<Acquisition> candidateDownloads, MemoryTimeline memory){
+		DownloadWindowIndex.Windows windows = plan.pb.getDownloadWindowIndex().getWindows(satellite);
+		int nWindows = windows.size();
+		int n = candidateDownloads.size();
+		if(nWindows == 0 || n == 0)
+			return;
+		FreeIntervals[] free = new FreeIntervals[nWindows];
+		for(int k=0;k<nWindows;k++)
+			free[k] = new FreeIntervals(windows.start[k], windows.end[k]);
+
+		// by priority, then decreasing DownloadCost (acquisitions are already sorted by acquisition time, and the sort is stable)
+		double[] keys = new double[n];
+		for(int i=0;i<n;i++){
+			Acquisition a = candidateDownloads.get(i);
+			keys[i] = 2 * a.priority - a.DownloadCost;
+		}
+		for(int i : Sorting.sortedByKey(n, keys)){
+			Acquisition a = candidateDownloads.get(i);
+			double release = plan.getAcquisitionTime(a);
+			double duration = plan.getVolume(a) / Params.downlinkRate;
+			for(int k=windows.firstEndingAfter(release + duration);k<nWindows;k++){
+				int f = free[k].find(release, duration);
+				if(f != -1){
+					double t = Math.max(release, free[k].start[f]);
+					// the earliest download is the best one for memory
+					if(memory != null && !memory.canAdd(release, t + duration, plan.getVolume(a)))
+						break;
+					if(memory != null)
+						memory.add(release, t + duration, plan.getVolume(a));
+					free[k].reserve(f, t, t + duration);
+					plan.setDownload(a, plan.pb.getDownloadWindow(windows.idx[k]), t, t + duration);
+					break;
+				}
+			}
+		}
+	}
+
+	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException{
+		PlanningProblem pb = ProblemSnapshot.read(Params.systemDataFile,Params.planningDataFile);
+		pb.printStatistics();
+		SolutionPlan plan = new SolutionPlan(pb);
+		plan.readAcquisitionPlan("output/GoodSolutionAcqPlan.txt");
+		long t0 = System.currentTimeMillis();
+		MemoryTimeline[] memory = new MemoryTimeline[pb.satellites.size()];
+		for(int s=0;s<memory.length;s++)
+			memory[s] = new MemoryTimeline(pb, Params.massMemoryCapacity);
+		planDownloads(plan, memory);
+		System.out.println("Priority download plan: " + plan.plannedDownload.size() + " downloads, value " + FlowDownloadPlanner.getDownloadValue(plan)
+				+ " (" + (System.currentTimeMillis() - t0) + " ms)");
+		plan.writeDownloadPlan("output/downloadPlan_priority.txt");
+		Bounds.report("PriorityDownloadPlanner", FlowDownloadPlanner.getDownloadValue(plan), new Bounds(pb).getDownloadBound(plan));
+	}
+
+}
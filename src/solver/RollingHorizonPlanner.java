@@ -0,0 +1,273 @@
+package solver;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLStreamException;
+
+import params.Params;
+import problem.AcquisitionWindowIndex;
+import problem.AcquisitionWindowStore;
+import problem.PlanningProblem;
+import problem.ProblemSnapshot;
+import problem.Sorting;
+
+/**
+ * Rolling-horizon acquisition planner, for replanning at regular times (for instance at each pass over a station)
+ * while new requests arrive. At each cycle, the acquisitions starting before the current time have already been
+ * executed or uplinked: they are frozen in the sequences. Only the open window [now, now + lookahead] is replanned,
+ * starting from the plan of the previous cycle: the windows of the open window are inserted greedily into this plan,
+ * and the result is compared with a greedy plan of the open window built from scratch (kept only if it is strictly
+ * better, so that the plan uplinked changes as little as possible). A cycle only considers the windows of the open
+ * window (found with the interval index), so that its cost does not depend on the length of the horizon.
+ * <p>
+ * The problem may be modified between two cycles (see DeltaParserXML): the plan is then transferred to the new
+ * acquisition windows before replanning. The mass memory of the satellites is taken into account (see
+ * GreedyAcquisitionPlanner.setMemoryCapacity).
+ *
+ */
+public class RollingHorizonPlanner {
+
+	/** Problem for which the plan is built */
+	public final PlanningProblem pb;
+	/** Time between two cycles (the part of the plan committed at each cycle) */
+	public final double commitInterval;
+	/** Length of the time window replanned at each cycle */
+	public final double lookahead;
+	/** Current plan */
+	GreedyAcquisitionPlanner planner;
+	/** Interval index of the acquisition windows of the current plan */
+	AcquisitionWindowIndex index;
+	/** Current time (start of the open window) */
+	public double now;
+	/** Number of cycles done */
+	public int nCycles;
+
+	// buffers of a cycle
+	int[] windowBuffer;
+	int[] stamp;
+	int currentStamp;
+
+	/**
+	 * Create a planner with an empty plan, whose first cycle is at the start of the horizon
+	 * @param pb
+	 * @param commitInterval time between two cycles
+	 * @param lookahead length of the time window replanned at each cycle (at least commitInterval)
+	 */
+	public RollingHorizonPlanner(PlanningProblem pb, double commitInterval, double lookahead){
+		this.pb = pb;
+		this.commitInterval = commitInterval;
+		this.lookahead = Math.max(lookahead, commitInterval);
+		this.now = pb.horizonStart;
+		planner = new GreedyAcquisitionPlanner(pb);
+		planner.setMemoryCapacity(Params.massMemoryCapacity);
+		initBuffers();
+	}
+
+	/**
+	 * Create a planner starting from a previous plan
+	 * @param initialPlan plan computed before (its acquisitions starting before the first cycle are considered as executed)
+	 * @param commitInterval time between two cycles
+	 * @param lookahead length of the time window replanned at each cycle (at least commitInterval)
+	 * @param now time of the first cycle
+	 */
+	public RollingHorizonPlanner(SolutionPlan initialPlan, double commitInterval, double lookahead, double now){
+		this(initialPlan.pb, commitInterval, lookahead);
+		this.now = now;
+		planner.insertPlan(initialPlan);
+	}
+
+	void initBuffers(){
+		AcquisitionWindowStore store = planner.store;
+		index = pb.getAcquisitionWindowIndex();
+		int maxWindows = 0;
+		for(int s=0;s<planner.sequences.length;s++)
+			maxWindows = Math.max(maxWindows, store.getNumberOfWindows(s));
+		windowBuffer = new int[maxWindows];
+		stamp = new int[store.nWindows];
+		currentStamp = 0;
+	}
+
+	/**
+	 * Transfer the current plan to the acquisition windows of the problem, if it has been modified since the last cycle
+	 * (acquisitions whose window has been removed are lost)
+	 */
+	void synchronize(){
+		AcquisitionWindowStore store = pb.getAcquisitionWindowStore();
+		if(store == planner.store)
+			return;
+		GreedyAcquisitionPlanner previous = planner;
+		planner = new GreedyAcquisitionPlanner(pb);
+		planner.setMemoryCapacity(Params.massMemoryCapacity);
+		for(int s=0;s<planner.sequences.length;s++){
+			AcquisitionSequence sequence = previous.sequences[s];
+			AcquisitionSequence newSequence = planner.sequences[s];
+			for(int k=0;k<sequence.size();k++){
+				int w = sequence.getWindow(k);
+				int w2 = store.getPosition(previous.store.candidate[w], previous.store.windowIdx[w]);
+				// acquisitions are appended at the end of the sequence, and keep their start time
+				newSequence.freeze(newSequence.size(), sequence.getStartTime(k));
+				if(w2 != -1)
+					planner.tryInsert(w2);
+			}
+			// acquisitions executed before now keep their start times, the others are left-shifted again
+			newSequence.freezeAndShift(newSequence.countStartingBefore(Math.nextDown(now)), now);
+		}
+		initBuffers();
+	}
+
+	/**
+	 * Replan the open window [now, now + lookahead]
+	 * @return the value of the acquisitions planned in the open window
+	 */
+	public double replan(){
+		synchronize();
+		AcquisitionWindowStore store = planner.store;
+		AcquisitionSequence[] sequences = planner.sequences;
+		int nSatellites = sequences.length;
+
+		// freeze acquisitions already executed or uplinked, and collect the windows of the open window and of the previous plan
+		if(++currentStamp == 0){
+			Arrays.fill(stamp, 0);
+			currentStamp = 1;
+		}
+		int[] candidates = new int[16];
+		int nCandidates = 0;
+		int[][] seed = new int[nSatellites][];
+		for(int s=0;s<nSatellites;s++){
+			AcquisitionSequence sequence = sequences[s];
+			sequence.freeze(sequence.countStartingBefore(Math.nextDown(now)), now);
+			seed[s] = getOpenWindows(sequence);
+			int n = index.getOverlapping(s, now, now + lookahead, windowBuffer);
+			for(int i=0;i<n+seed[s].length;i++){
+				int w = (i < n) ? windowBuffer[i] : seed[s][i-n];
+				if(stamp[w] == currentStamp)
+					continue;
+				stamp[w] = currentStamp;
+				if(nCandidates == candidates.length)
+					candidates = Arrays.copyOf(candidates, 2*nCandidates);
+				candidates[nCandidates++] = w;
+			}
+		}
+		double[] keys = new double[nCandidates];
+		for(int i=0;i<nCandidates;i++)
+			keys[i] = -planner.value[candidates[i]];
+		int[] order = Sorting.sortedByKey(nCandidates, keys);
+		for(int i=0;i<nCandidates;i++)
+			order[i] = candidates[order[i]];
+
+		// previous plan repaired with the windows of the open window
+		planner.insertAll(order);
+		double repairedValue = getOpenValue();
+		AcquisitionSequence[] repaired = new AcquisitionSequence[nSatellites];
+		for(int s=0;s<nSatellites;s++)
+			repaired[s] = new AcquisitionSequence(sequences[s]);
+
+		// open window planned from scratch
+		clearOpenWindow();
+		planner.insertAll(order);
+		double value = getOpenValue();
+		if(value <= repairedValue + 1e-9){
+			// the repaired plan is restored as it was (same ranks and start times)
+			clearOpenWindow();
+			for(int s=0;s<nSatellites;s++){
+				sequences[s] = repaired[s];
+				for(int w : getOpenWindows(repaired[s])){
+					planner.updateMemory(w, 1);
+					planner.selectedWindow[store.candidate[w]] = w;
+				}
+			}
+			value = repairedValue;
+		}
+		nCycles++;
+		return value;
+	}
+
+	/**
+	 *
+	 * @param sequence
+	 * @return the windows of the acquisitions of a sequence which are not frozen, in order of realization
+	 */
+	static int[] getOpenWindows(AcquisitionSequence sequence){
+		int[] windows = new int[sequence.size() - sequence.getNumberOfFrozen()];
+		for(int i=0;i<windows.length;i++)
+			windows[i] = sequence.getWindow(sequence.getNumberOfFrozen() + i);
+		return windows;
+	}
+
+	/**
+	 *
+	 * @return the value of the acquisitions which are not frozen
+	 */
+	double getOpenValue(){
+		double v = 0;
+		for(AcquisitionSequence sequence : planner.sequences){
+			for(int k=sequence.getNumberOfFrozen();k<sequence.size();k++)
+				v += planner.value[sequence.getWindow(k)];
+		}
+		return v;
+	}
+
+	/**
+	 * Remove all acquisitions which are not frozen
+	 */
+	void clearOpenWindow(){
+		for(int s=0;s<planner.sequences.length;s++){
+			AcquisitionSequence sequence = planner.sequences[s];
+			while(sequence.size() > sequence.getNumberOfFrozen())
+				planner.remove(s, sequence.size()-1);
+		}
+	}
+
+	/**
+	 * Move to the next cycle (the plan of [now, now + commitInterval] is committed)
+	 */
+	public void advance(){
+		now += commitInterval;
+	}
+
+	/**
+	 * Replan at each cycle until the end of the horizon
+	 */
+	public void run(){
+		while(now < pb.horizonEnd){
+			replan();
+			advance();
+		}
+	}
+
+	/**
+	 *
+	 * @return the current plan
+	 */
+	public SolutionPlan getPlan(){
+		return planner.getPlan();
+	}
+
+	/**
+	 *
+	 * @return the value of the current plan
+	 */
+	public double getValue(){
+		return planner.getValue();
+	}
+
+	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException{
+		PlanningProblem pb = ProblemSnapshot.read(Params.systemDataFile,Params.planningDataFile);
+		pb.printStatistics();
+		RollingHorizonPlanner planner = new RollingHorizonPlanner(pb, Params.replanningPeriod, Params.replanningLookahead);
+		long maxCycleTime = 0, t0 = System.currentTimeMillis();
+		while(planner.now < pb.horizonEnd){
+			long t1 = System.nanoTime();
+			planner.replan();
+			maxCycleTime = Math.max(maxCycleTime, System.nanoTime() - t1);
+			planner.advance();
+		}
+		System.out.println("Rolling-horizon plan: " + planner.planner.getNumberOfAcquisitions() + " acquisitions, value " + planner.getValue()
+				+ " after " + planner.nCycles + " cycles (" + (System.currentTimeMillis() - t0) + " ms, longest cycle " + (maxCycleTime / 1000000) + " ms)");
+		planner.getPlan().writeAcquisitionPlan("output/RollingSolutionAcqPlan.txt");
+		Bounds.report("RollingHorizonPlanner", planner.getValue(), new Bounds(pb).getAcquisitionBound());
+	}
+
+}
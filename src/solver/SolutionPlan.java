@@ -1,14 +1,23 @@
 package solver;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import problem.Acquisition;
+import problem.AcquisitionWindow;
 import problem.CandidateAcquisition;
+import problem.DownloadWindow;
 import problem.PlanningProblem;
+import problem.RecordedAcquisition;
+import problem.Satellite;
+import problem.Sorting;
 
 /**
  * Class used for representing a solution plan (describing both the acquisition plan and the download plan)
@@ -24,6 +33,27 @@ public class SolutionPlan {
 	/** List of all acquisitions which are downloaded in the plan */
 	public final List<Acquisition> plannedDownload;
 
+	// ASSIGNMENTS (the problem itself is never modified by a plan, so that several plans can share the same problem)
+
+	/** Index of the acquisition window selected for each candidate acquisition (index: candidate idx, -1 if the acquisition is not planned) */
+	final int[] selectedAcquisitionWindow;
+	/** Start time of each candidate acquisition planned */
+	final double[] acquisitionStartTime;
+	/** End time of each candidate acquisition planned */
+	final double[] acquisitionEndTime;
+	/** Index of the download window selected for each candidate acquisition (index: candidate idx, -1 if the acquisition is not downloaded) */
+	final int[] candidateDownloadWindow;
+	/** Start time of the download of each candidate acquisition downloaded */
+	final double[] candidateDownloadStartTime;
+	/** End time of the download of each candidate acquisition downloaded */
+	final double[] candidateDownloadEndTime;
+	/** Index of the download window selected for each recorded acquisition (index: recorded acquisition idx, -1 if the acquisition is not downloaded) */
+	final int[] recordedDownloadWindow;
+	/** Start time of the download of each recorded acquisition downloaded */
+	final double[] recordedDownloadStartTime;
+	/** End time of the download of each recorded acquisition downloaded */
+	final double[] recordedDownloadEndTime;
+
 	/**
 	 * Build a solution plan
 	 * @param pb
@@ -32,53 +62,344 @@ public class SolutionPlan {
 		this.pb = pb;
 		plannedAcquisitions = new ArrayList<CandidateAcquisition>();
 		plannedDownload = new ArrayList<Acquisition>();
+		int nCandidates = pb.candidateAcquisitions.size();
+		int nRecorded = pb.recordedAcquisitions.size();
+		selectedAcquisitionWindow = new int[nCandidates];
+		Arrays.fill(selectedAcquisitionWindow, -1);
+		acquisitionStartTime = new double[nCandidates];
+		acquisitionEndTime = new double[nCandidates];
+		candidateDownloadWindow = new int[nCandidates];
+		Arrays.fill(candidateDownloadWindow, -1);
+		candidateDownloadStartTime = new double[nCandidates];
+		candidateDownloadEndTime = new double[nCandidates];
+		recordedDownloadWindow = new int[nRecorded];
+		Arrays.fill(recordedDownloadWindow, -1);
+		recordedDownloadStartTime = new double[nRecorded];
+		recordedDownloadEndTime = new double[nRecorded];
+	}
+
+	/**
+	 * Plan a candidate acquisition (if it is already planned, its window and times are replaced)
+	 * @param a
+	 * @param window window selected for realizing the acquisition
+	 * @param startTime
+	 * @param endTime
+	 */
+	public void setAcquisition(CandidateAcquisition a, AcquisitionWindow window, double startTime, double endTime){
+		if(selectedAcquisitionWindow[a.idx] == -1)
+			plannedAcquisitions.add(a);
+		selectedAcquisitionWindow[a.idx] = window.idx;
+		acquisitionStartTime[a.idx] = startTime;
+		acquisitionEndTime[a.idx] = endTime;
+	}
+
+	/**
+	 * 
+	 * @param a
+	 * @return true if the candidate acquisition is realized in the plan
+	 */
+	public boolean isPlanned(CandidateAcquisition a){
+		return selectedAcquisitionWindow[a.idx] != -1;
+	}
+
+	/**
+	 * 
+	 * @param a
+	 * @return the acquisition window selected for realizing the candidate acquisition (null if the acquisition is not planned)
+	 */
+	public AcquisitionWindow getSelectedAcquisitionWindow(CandidateAcquisition a){
+		int w = selectedAcquisitionWindow[a.idx];
+		return (w == -1) ? null : a.getAcquisitionWindow(w);
+	}
+
+	/**
+	 * 
+	 * @param a
+	 * @return the start time of a candidate acquisition planned
+	 */
+	public double getAcquisitionStartTime(CandidateAcquisition a){
+		return acquisitionStartTime[a.idx];
+	}
+
+	/**
+	 * 
+	 * @param a
+	 * @return the end time of a candidate acquisition planned
+	 */
+	public double getAcquisitionEndTime(CandidateAcquisition a){
+		return acquisitionEndTime[a.idx];
+	}
+
+	/**
+	 * 
+	 * @param a acquisition recorded, or candidate acquisition planned
+	 * @return the satellite used for realizing the acquisition
+	 */
+	public Satellite getSatellite(Acquisition a){
+		if(a instanceof RecordedAcquisition)
+			return ((RecordedAcquisition) a).satellite;
+		return getSelectedAcquisitionWindow((CandidateAcquisition) a).satellite;
+	}
+
+	/**
+	 * 
+	 * @param a acquisition recorded, or candidate acquisition planned
+	 * @return the time at which the acquisition ends (in seconds from the start time of the planning horizon)
+	 */
+	public double getAcquisitionTime(Acquisition a){
+		if(a instanceof RecordedAcquisition)
+			return ((RecordedAcquisition) a).acquisitionTime;
+		return acquisitionEndTime[((CandidateAcquisition) a).idx];
+	}
+
+	/**
+	 * 
+	 * @param a acquisition recorded, or candidate acquisition planned
+	 * @return the volume (in bits) associated with the acquisition
+	 */
+	public long getVolume(Acquisition a){
+		if(a instanceof RecordedAcquisition)
+			return ((RecordedAcquisition) a).volume;
+		return getSelectedAcquisitionWindow((CandidateAcquisition) a).volume;
+	}
+
+	/**
+	 * Plan the download of an acquisition (if it is already downloaded, its window and times are replaced)
+	 * @param a
+	 * @param window
+	 * @param startTime
+	 * @param endTime
+	 */
+	public void setDownload(Acquisition a, DownloadWindow window, double startTime, double endTime){
+		if(a instanceof RecordedAcquisition){
+			int i = ((RecordedAcquisition) a).idx;
+			if(recordedDownloadWindow[i] == -1)
+				plannedDownload.add(a);
+			recordedDownloadWindow[i] = window.idx;
+			recordedDownloadStartTime[i] = startTime;
+			recordedDownloadEndTime[i] = endTime;
+		}
+		else {
+			int i = ((CandidateAcquisition) a).idx;
+			if(candidateDownloadWindow[i] == -1)
+				plannedDownload.add(a);
+			candidateDownloadWindow[i] = window.idx;
+			candidateDownloadStartTime[i] = startTime;
+			candidateDownloadEndTime[i] = endTime;
+		}
+	}
+
+	/**
+	 * 
+	 * @param a
+	 * @return the download window selected for the acquisition (null if the acquisition is not downloaded)
+	 */
+	public DownloadWindow getDownloadWindow(Acquisition a){
+		int w = (a instanceof RecordedAcquisition) ? recordedDownloadWindow[((RecordedAcquisition) a).idx] : candidateDownloadWindow[((CandidateAcquisition) a).idx];
+		return (w == -1) ? null : pb.getDownloadWindow(w);
+	}
+
+	/**
+	 * 
+	 * @param a
+	 * @return the start time of the download of an acquisition downloaded
+	 */
+	public double getDownloadStartTime(Acquisition a){
+		if(a instanceof RecordedAcquisition)
+			return recordedDownloadStartTime[((RecordedAcquisition) a).idx];
+		return candidateDownloadStartTime[((CandidateAcquisition) a).idx];
+	}
+
+	/**
+	 * 
+	 * @param a
+	 * @return the end time of the download of an acquisition downloaded
+	 */
+	public double getDownloadEndTime(Acquisition a){
+		if(a instanceof RecordedAcquisition)
+			return recordedDownloadEndTime[((RecordedAcquisition) a).idx];
+		return candidateDownloadEndTime[((CandidateAcquisition) a).idx];
+	}
+
+	/**
+	 * 
+	 * @return for each satellite (index: satellite idx), all acquisitions which are candidate for being downloaded 
+	 * sorted by increasing acquisition time (acquisitions already recorded onboard first in case of equality), built in a single pass
+	 */
+	public List<List<Acquisition>> getCandidateDownloadsBySatellite(){
+		List<List<Acquisition>> candidateDownloads = new ArrayList<List<Acquisition>>();
+		for(Satellite satellite : pb.satellites)
+			candidateDownloads.add(new ArrayList<Acquisition>(pb.getRecordedAcquisitions(satellite)));
+		for(CandidateAcquisition a : plannedAcquisitions)
+			candidateDownloads.get(getSelectedAcquisitionWindow(a).satellite.idx).add(a);
+		for(List<Acquisition> acquisitions : candidateDownloads)
+			sortByAcquisitionTime(acquisitions);
+		return candidateDownloads;
+	}
+
+	/**
+	 * Sort acquisitions by increasing acquisition time (stable), acquisition times being read once
+	 * @param acquisitions
+	 */
+	void sortByAcquisitionTime(List<Acquisition> acquisitions){
+		int n = acquisitions.size();
+		Acquisition[] unsorted = acquisitions.toArray(new Acquisition[n]);
+		double[] times = new double[n];
+		for(int i=0;i<n;i++)
+			times[i] = getAcquisitionTime(unsorted[i]);
+		int[] order = Sorting.sortedByKey(n, times);
+		for(int i=0;i<n;i++)
+			acquisitions.set(i, unsorted[order[i]]);
 	}
 
 	/**
 	 * Add to the acquisition plan all acquisitions which are selected according to the input file
 	 * @param filename
-	 * @throws IOException
+	 * @throws IOException if a line cannot be read, or refers to an acquisition or a window which is not in the problem
 	 */
 	public void readAcquisitionPlan(String filename) throws IOException{
+		readAcquisitionPlan(filename, false);
+	}
+
+	/**
+	 * Add to the acquisition plan all acquisitions which are selected according to the input file
+	 * @param filename
+	 * @param ignoreInvalidLines true for ignoring the lines which cannot be read, or which refer to acquisitions or windows which
+	 * are no longer in the problem (for instance when reading a plan computed before a modification of the problem), false for
+	 * throwing an exception
+	 * @return the number of lines ignored
+	 * @throws IOException
+	 */
+	public int readAcquisitionPlan(String filename, boolean ignoreInvalidLines) throws IOException{
 		BufferedReader br = new BufferedReader(new FileReader(filename));
 		String[] tab = new String[4];
+		int nIgnored = 0;
 		String currentLine = br.readLine();
 		while(currentLine != null){
-			tab = currentLine.trim().split(" ");
-			CandidateAcquisition a = pb.getCandidateAcquisition(Integer.parseInt(tab[0]));
-			if(a.selectedAcquisitionWindow == null){ // acquisition not planned yet
-				a.selectedAcquisitionWindow = a.getAcquisitionWindow(Integer.parseInt(tab[1]));
-				a.selectedAcquisitionStartTime = Double.parseDouble(tab[2]);
-				a.selectedAcquisitionEndTime = Double.parseDouble(tab[3]);
-				//a.selectedAcquisitionEndTime = Double.parseDouble(tab[3]); catch satellite
-				plannedAcquisitions.add(a);				
+			tab = currentLine.trim().split("\\s+");
+			boolean valid = false;
+			if(tab.length >= 4){
+				try {
+					int idx = Integer.parseInt(tab[0]);
+					int windowIdx = Integer.parseInt(tab[1]);
+					double startTime = Double.parseDouble(tab[2]);
+					double endTime = Double.parseDouble(tab[3]);
+					CandidateAcquisition a = (idx >= 0 && idx < pb.candidateAcquisitions.size()) ? pb.getCandidateAcquisition(idx) : null;
+					if(a != null && !a.removed && windowIdx >= 0 && windowIdx < a.acquisitionWindows.size() && !a.getAcquisitionWindow(windowIdx).removed){
+						valid = true;
+						if(!isPlanned(a)) // acquisition not planned yet in this plan (the first window read is kept)
+							setAcquisition(a, a.getAcquisitionWindow(windowIdx), startTime, endTime);
+					}
+				} catch(NumberFormatException e){
+				}
+			}
+			if(!valid && !currentLine.trim().isEmpty()){
+				if(!ignoreInvalidLines){
+					br.close();
+					throw new IOException(filename + ": invalid acquisition \"" + currentLine + "\"");
+				}
+				nIgnored++;
 			}
 			currentLine = br.readLine();
 		}		
-		br.close();		
+		br.close();
+		return nIgnored;
+	}
+
+	/**
+	 * Write the acquisition plan, in the format of the solution files written by the OPL acquisition models
+	 * (one line per acquisition: candidate acquisition idx, acquisition window idx, start time, end time, satellite idx from 1)
+	 * @param filename
+	 * @throws IOException
+	 */
+	public void writeAcquisitionPlan(String filename) throws IOException{
+		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(filename, false)));
+		for(CandidateAcquisition a : plannedAcquisitions){
+			AcquisitionWindow w = getSelectedAcquisitionWindow(a);
+			writer.write(a.idx + " " + w.idx + " " + getAcquisitionStartTime(a) + " " + getAcquisitionEndTime(a) + " " + (w.satellite.idx+1) + "\n");
+		}
+		writer.flush();
+		writer.close();
+	}
+
+	/**
+	 * Write the download plan, in the format read by readDownloadPlan (one line per download, in the order in which
+	 * downloads have been added: REC or CAND, acquisition idx, download window idx, start time, end time)
+	 * @param filename
+	 * @throws IOException
+	 */
+	public void writeDownloadPlan(String filename) throws IOException{
+		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(filename, false)));
+		boolean firstLine = true;
+		for(Acquisition a : plannedDownload){
+			if(firstLine)
+				firstLine = false;
+			else
+				writer.write("\n");
+			String type = (a instanceof RecordedAcquisition) ? "REC " : "CAND ";
+			writer.write(type + a.getIdx() + " " + getDownloadWindow(a).idx + " " + getDownloadStartTime(a) + " " + getDownloadEndTime(a));
+		}
+		writer.flush();
+		writer.close();
+	}
+
+	/**
+	 * Add to the download plan all downloads which are selected according to the input file
+	 * @param filename
+	 * @throws IOException if a line cannot be read, or refers to an acquisition or a download window which is not in the problem
+	 */
+	public void readDownloadPlan(String filename) throws IOException{
+		readDownloadPlan(filename, false);
 	}
 
 	/**
 	 * Add to the download plan all downloads which are selected according to the input file
 	 * @param filename
+	 * @param ignoreInvalidLines true for ignoring the lines which cannot be read, or which refer to acquisitions or download windows
+	 * which are no longer in the problem, or to candidate acquisitions which are not planned (for instance when reading a plan
+	 * computed before a modification of the problem), false for throwing an exception
+	 * @return the number of lines ignored
 	 * @throws IOException
 	 */
-	public void readDownloadPlan(String filename) throws IOException{	
+	public int readDownloadPlan(String filename, boolean ignoreInvalidLines) throws IOException{
 		BufferedReader br = new BufferedReader(new FileReader(filename));
 		String[] tab = new String[4];
+		int nIgnored = 0;
 		String currentLine = br.readLine();
 		while(currentLine != null){
-			tab = currentLine.trim().split(" ");
-			boolean recorded = tab[0].equals("REC");  
-			int idx = Integer.parseInt(tab[1]);
-			Acquisition a = recorded ? pb.getRecordedAcquisition(idx) : pb.getCandidateAcquisition(idx);
-			a.selectedDownloadWindow = pb.getDownloadWindow(Integer.parseInt(tab[2]));
-			a.selectedDownloadStartTime = Double.parseDouble(tab[3]);
-			a.selectedDownloadEndTime = Double.parseDouble(tab[4]);			
-			plannedDownload.add(a);				
+			tab = currentLine.trim().split("\\s+");
+			boolean valid = false;
+			if(tab.length >= 5){
+				try {
+					boolean recorded = tab[0].equals("REC");
+					int idx = Integer.parseInt(tab[1]);
+					int windowIdx = Integer.parseInt(tab[2]);
+					double startTime = Double.parseDouble(tab[3]);
+					double endTime = Double.parseDouble(tab[4]);
+					Acquisition a = null;
+					if(recorded && idx >= 0 && idx < pb.recordedAcquisitions.size())
+						a = pb.getRecordedAcquisition(idx);
+					else if(!recorded && idx >= 0 && idx < pb.candidateAcquisitions.size()
+							&& (!ignoreInvalidLines || isPlanned(pb.getCandidateAcquisition(idx))))
+						a = pb.getCandidateAcquisition(idx);
+					if(a != null && !a.removed && windowIdx >= 0 && windowIdx < pb.downloadWindows.size() && !pb.getDownloadWindow(windowIdx).removed){
+						valid = true;
+						setDownload(a, pb.getDownloadWindow(windowIdx), startTime, endTime);
+					}
+				} catch(NumberFormatException e){
+				}
+			}
+			if(!valid && !currentLine.trim().isEmpty()){
+				if(!ignoreInvalidLines){
+					br.close();
+					throw new IOException(filename + ": invalid download \"" + currentLine + "\"");
+				}
+				nIgnored++;
+			}
 			currentLine = br.readLine();
 		}		
-		br.close();	
+		br.close();
+		return nIgnored;
 	}
 
 }
@@ -0,0 +1,158 @@
+package solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLStreamException;
+
+import params.Params;
+import problem.Acquisition;
+import problem.CandidateAcquisition;
+import problem.DownloadWindow;
+import problem.PlanningProblem;
+import problem.ProblemSnapshot;
+import problem.Sorting;
+
+/**
+ * Warm start of the planners from a plan computed before, possibly for a slightly different problem (for instance
+ * a plan of the results directory, or the plan of the previous replanning). The plan is read with
+ * SolutionPlan.readAcquisitionPlan and readDownloadPlan with ignoreInvalidLines true, so that the acquisitions and windows
+ * no longer in the problem are ignored instead of rejecting the file, then repaired:
+ * <ul>
+ * <li>acquisitions are inserted by increasing start time in left-shifted sequences, so that an acquisition whose window
+ * has changed, or which no longer respects transition times with the acquisitions kept before it, is dropped;</li>
+ * <li>downloads are kept if their acquisition is still planned, and if they still fit in their download window after the
+ * acquisition time, without overlapping the downloads kept before them on the same satellite.</li>
+ * </ul>
+ * The repaired plan can be used as initial plan of the searches (AcquisitionLNS, PortfolioPlanner.setInitialPlan,
+ * LagrangianAcquisitionPlanner.setIncumbent, RollingHorizonPlanner) and written as a MIP start of the OPL models
+ * (GoodAcquisitionPlanner.writeMipStartFile).
+ *
+ */
+public class WarmStart {
+
+	/** Tolerance on the times read */
+	final static double epsilon = 1e-6;
+
+	/** Problem for which the plan is repaired */
+	public final PlanningProblem pb;
+	/** Plan read */
+	public final SolutionPlan previous;
+	/** Number of lines of the files read which have been ignored */
+	public int nIgnoredLines;
+	/** Number of acquisitions of the plan read dropped by the repair */
+	public int nDroppedAcquisitions;
+	/** Number of downloads of the plan read dropped by the repair */
+	public int nDroppedDownloads;
+
+	/**
+	 * Create a warm start with an empty plan
+	 * @param pb
+	 */
+	public WarmStart(PlanningProblem pb){
+		this.pb = pb;
+		this.previous = new SolutionPlan(pb);
+	}
+
+	/**
+	 * Read acquisitions of the previous plan
+	 * @param filename acquisition plan (format of GoodSolutionAcqPlan.txt)
+	 * @throws IOException
+	 */
+	public void readAcquisitionPlan(String filename) throws IOException{
+		nIgnoredLines += previous.readAcquisitionPlan(filename, true);
+	}
+
+	/**
+	 * Read downloads of the previous plan (downloads of candidate acquisitions are read only if the acquisitions have been read before)
+	 * @param filename download plan (format of downloadPlan.txt)
+	 * @throws IOException
+	 */
+	public void readDownloadPlan(String filename) throws IOException{
+		nIgnoredLines += previous.readDownloadPlan(filename, true);
+	}
+
+	/**
+	 *
+	 * @return a planner containing the acquisitions of the previous plan which are still feasible (mass memory included), whose value is
+	 * the sum of the costs of the windows selected (the planner can be completed and improved by a search)
+	 */
+	public GreedyAcquisitionPlanner getInitialPlanner(){
+		GreedyAcquisitionPlanner planner = new GreedyAcquisitionPlanner(pb);
+		planner.setMemoryCapacity(Params.massMemoryCapacity);
+		nDroppedAcquisitions = previous.plannedAcquisitions.size() - planner.insertPlan(previous);
+		return planner;
+	}
+
+	/**
+	 *
+	 * @return the repaired plan (acquisitions of getInitialPlanner, and downloads of the previous plan which are still feasible)
+	 */
+	public SolutionPlan repair(){
+		SolutionPlan plan = getInitialPlanner().getPlan();
+		repairDownloads(plan);
+		return plan;
+	}
+
+	/**
+	 * Add to a plan the downloads of the previous plan which are still feasible in this plan, by increasing start time
+	 * @param plan plan containing the repaired acquisitions, and no download
+	 */
+	void repairDownloads(SolutionPlan plan){
+		int n = previous.plannedDownload.size();
+		double[] startTimes = new double[n];
+		for(int i=0;i<n;i++)
+			startTimes[i] = previous.getDownloadStartTime(previous.plannedDownload.get(i));
+		double[] lastEnd = new double[pb.satellites.size()];
+		Arrays.fill(lastEnd, Double.NEGATIVE_INFINITY);
+		nDroppedDownloads = 0;
+		for(int i : Sorting.sortedByKey(n, startTimes)){
+			Acquisition a = previous.plannedDownload.get(i);
+			if(a instanceof CandidateAcquisition && !plan.isPlanned((CandidateAcquisition) a)){
+				nDroppedDownloads++;
+				continue;
+			}
+			DownloadWindow window = previous.getDownloadWindow(a);
+			int s = plan.getSatellite(a).idx;
+			double start = startTimes[i];
+			double end = start + plan.getVolume(a) / Params.downlinkRate;
+			if(window.satellite.idx != s || start < window.start - epsilon || end > window.end + epsilon
+					|| start < plan.getAcquisitionTime(a) - epsilon || start < lastEnd[s] - epsilon){
+				nDroppedDownloads++;
+				continue;
+			}
+			plan.setDownload(a, window, start, end);
+			lastEnd[s] = end;
+		}
+	}
+
+	public static void main(String[] args) throws XMLStreamException, FactoryConfigurationError, IOException{
+		PlanningProblem pb = ProblemSnapshot.read(Params.systemDataFile,Params.planningDataFile);
+		pb.printStatistics();
+		long t0 = System.currentTimeMillis();
+		WarmStart warmStart = new WarmStart(pb);
+		warmStart.readAcquisitionPlan("output/GoodSolutionAcqPlan.txt");
+		if(new File("output/downloadPlan.txt").exists())
+			warmStart.readDownloadPlan("output/downloadPlan.txt");
+		SolutionPlan plan = warmStart.repair();
+		System.out.println("Warm start: " + plan.plannedAcquisitions.size() + " acquisitions, " + plan.plannedDownload.size() + " downloads kept ("
+				+ warmStart.nIgnoredLines + " lines ignored, " + warmStart.nDroppedAcquisitions + " acquisitions and " + warmStart.nDroppedDownloads
+				+ " downloads dropped, " + (System.currentTimeMillis() - t0) + " ms)");
+		plan.writeAcquisitionPlan("output/WarmStartSolutionAcqPlan.txt");
+		GoodAcquisitionPlanner.writeMipStartFile(plan, "output/GoodAcqPlanning.mst", false);
+		GoodAcquisitionPlanner.writeMipStartFile(plan, "output/GoodAcqPlanningSparse.mst", true);
+
+		// search started from the repaired plan
+		GreedyAcquisitionPlanner planner = warmStart.getInitialPlanner();
+		planner.plan();
+		AcquisitionLNS lns = new AcquisitionLNS(planner, Params.searchSeed);
+		System.out.println("Initial (warm start) value: " + lns.getBestValue());
+		lns.setOutputFiles("output/LNSSolutionAcqPlan.txt", "output/LNSCurve.txt");
+		lns.run(Params.searchTimeBudget);
+		System.out.println("LNS value: " + lns.getBestValue() + " after " + lns.nIterations + " iterations");
+		Bounds.report("WarmStart+AcquisitionLNS", lns.getBestValue(), new Bounds(pb).getAcquisitionBound());
+	}
+
+}